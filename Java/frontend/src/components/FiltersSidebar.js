@@ -1,7 +1,7 @@
 // frontend/src/components/FiltersSidebar.js
 import React, { useState } from 'react';
 
-const FiltersSidebar = ({ availableFilters, onApplyFilters }) => {
+const FiltersSidebar = ({ availableFilters, facets = {}, onApplyFilters }) => {
   const [selectedFilters, setSelectedFilters] = useState({});
 
   const handleFilterChange = (filter, value) => {
@@ -54,7 +54,15 @@ const FiltersSidebar = ({ availableFilters, onApplyFilters }) => {
               placeholder={`Filter by ${filter}`}
               onChange={(e) => handleFilterChange(filter, e.target.value)}
               className="filter-input"
+              list={facets[filter] ? `facet-${filter}` : undefined}
             />
+            {facets[filter] && (
+              <datalist id={`facet-${filter}`}>
+                {facets[filter].map(({ value, count }) => (
+                  <option key={value} value={value}>{`${value} (${count})`}</option>
+                ))}
+              </datalist>
+            )}
             <small>Enter values separated by commas</small>
           </div>
         ))}
@@ -11,7 +11,7 @@ import './PricingDashboard.css';
 const PricingDashboard = () => {
   const [userRole, setUserRole] = useState('pricing_manager');
   const [activeTab, setActiveTab] = useState('buildings');
-  const { products, availableFilters, loading, error, loadData, applyFilters } = useProducts(userRole);
+  const { products, availableFilters, facets, loading, error, loadData, applyFilters } = useProducts(userRole);
 
   const getTotalProducts = () => {
     return products.reduce((total, building) => total + building.products.length, 0);
@@ -71,6 +71,7 @@ const PricingDashboard = () => {
           <>
             <FiltersSidebar 
               availableFilters={availableFilters} 
+              facets={facets}
               onApplyFilters={applyFilters} 
             />
 
@@ -17,6 +17,8 @@ const ProductTable = ({ products }) => {
         </thead>
         <tbody>
           {products.map(product => {
+            // null when the role's query plan does not include recommendations
+            const hasRecommendation = product.recommendedPrice != null;
             const priceChange = ((product.recommendedPrice - product.currentPrice) / product.currentPrice * 100);
             const isIncrease = priceChange > 0;
             
@@ -40,12 +42,14 @@ const ProductTable = ({ products }) => {
                   {product.currentPrice} {product.currency}
                 </td>
                 <td className="price recommended">
-                  {product.recommendedPrice} {product.currency}
+                  {hasRecommendation ? `${product.recommendedPrice} ${product.currency}` : '—'}
                 </td>
                 <td>
-                  <span className={`change-indicator ${isIncrease ? 'increase' : 'decrease'}`}>
-                    {isIncrease ? '↗' : '↘'} {Math.abs(priceChange).toFixed(1)}%
-                  </span>
+                  {hasRecommendation && (
+                    <span className={`change-indicator ${isIncrease ? 'increase' : 'decrease'}`}>
+                      {isIncrease ? '↗' : '↘'} {Math.abs(priceChange).toFixed(1)}%
+                    </span>
+                  )}
                 </td>
               </tr>
             );
@@ -1,6 +1,9 @@
 import { useState, useEffect } from 'react';
 import { productAPI } from '../services/api';
 
+// Re-request the page; answered with 304 until the data changes
+const POLL_INTERVAL_MS = 30000;
+
 export const useMultiCurrency = () => {
   const [products, setProducts] = useState([]);
   const [loading, setLoading] = useState(true);
@@ -51,6 +54,17 @@ export const useMultiCurrency = () => {
 
   useEffect(() => {
     loadData();
+    const timer = setInterval(async () => {
+      try {
+        const response = await productAPI.getMultiCurrencyProducts(sortBy, sortDirection, page, pageSize);
+        if (!response.notModified) {
+          setProducts(response.data);
+        }
+      } catch (err) {
+        console.error('Error polling multi-currency data:', err);
+      }
+    }, POLL_INTERVAL_MS);
+    return () => clearInterval(timer);
   }, [sortBy, sortDirection, page]);
 
   return {
@@ -1,12 +1,21 @@
 // frontend/src/hooks/useProducts.js
-import { useState, useEffect } from 'react';
-import { productAPI } from '../services/api';
+import { useState, useEffect, useRef } from 'react';
+import { productAPI, applyProductChanges, dataVersionOf, subscribeToProductChanges } from '../services/api';
+
+// Binary columnar responses instead of JSON for the product grid
+const USE_COLUMNAR = true;
 
 export const useProducts = (userRole) => {
   const [products, setProducts] = useState([]);
   const [availableFilters, setAvailableFilters] = useState([]);
+  const [facets, setFacets] = useState({});
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
+  // Data version and filters of the products shown, for asking the server what changed since
+  const dataVersion = useRef(null);
+  const filterRequestRef = useRef({});
+  // Bumped after each full load, to reopen the change stream from the new version and filters
+  const [streamGeneration, setStreamGeneration] = useState(0);
 
   const loadData = async () => {
     setLoading(true);
@@ -16,9 +25,15 @@ export const useProducts = (userRole) => {
       const filtersResponse = await productAPI.getFilters(userRole);
       setAvailableFilters(filtersResponse.data);
 
+      const facetsResponse = await productAPI.getFacets({}, userRole);
+      setFacets(facetsResponse.data.facets);
+
       // Load products
-      const productsResponse = await productAPI.getAllProducts();
+      const productsResponse = await productAPI.getAllProducts(userRole, USE_COLUMNAR);
       setProducts(productsResponse.data);
+      dataVersion.current = dataVersionOf(productsResponse);
+      filterRequestRef.current = {};
+      setStreamGeneration((generation) => generation + 1);
     } catch (err) {
       setError('Failed to load data. Make sure your backend is running on port 8080.');
       console.error('Error loading data:', err);
@@ -62,8 +77,15 @@ export const useProducts = (userRole) => {
       });
 
       console.log('Sending filter request:', filterRequest);
-      const response = await productAPI.getFilteredProducts(filterRequest);
+      const [response, facetsResponse] = await Promise.all([
+        productAPI.getFilteredProducts(filterRequest, userRole, USE_COLUMNAR),
+        productAPI.getFacets(filterRequest, userRole),
+      ]);
       setProducts(response.data);
+      setFacets(facetsResponse.data.facets);
+      dataVersion.current = dataVersionOf(response);
+      filterRequestRef.current = filterRequest;
+      setStreamGeneration((generation) => generation + 1);
     } catch (err) {
       setError('Failed to apply filters');
       console.error('Error applying filters:', err);
@@ -76,9 +98,33 @@ export const useProducts = (userRole) => {
     loadData();
   }, [userRole]);
 
+  // Price changes are pushed as they are ingested instead of polled
+  useEffect(() => {
+    if (dataVersion.current === null || Number.isNaN(dataVersion.current)) {
+      return undefined;
+    }
+    const source = subscribeToProductChanges(filterRequestRef.current, userRole, dataVersion.current, {
+      onBatch: (changes) => {
+        setProducts((current) => applyProductChanges(current, changes));
+        dataVersion.current = changes.version;
+      },
+      onReset: async () => {
+        try {
+          const response = await productAPI.getFilteredProducts(filterRequestRef.current, userRole, USE_COLUMNAR);
+          setProducts(response.data);
+          dataVersion.current = dataVersionOf(response);
+        } catch (err) {
+          console.error('Error reloading products:', err);
+        }
+      },
+    });
+    return () => source.close();
+  }, [userRole, streamGeneration]);
+
   return {
     products,
     availableFilters,
+    facets,
     loading,
     error,
     loadData,
@@ -7,12 +7,208 @@ const api = axios.create({
   baseURL: API_BASE_URL,
 });
 
+// Compact binary alternative to JSON for the grouped-by-building endpoints (see ColumnarProductMessageConverter)
+export const COLUMNAR_TYPE = 'application/vnd.hotel-pricing.columnar';
+
+// Decodes a columnar response into the same building groups the JSON endpoint returns
+export const decodeColumnarProducts = (buffer) => {
+  const view = new DataView(buffer);
+  const utf8 = new TextDecoder();
+  let offset = 0;
+  const readInt = () => {
+    const value = view.getInt32(offset);
+    offset += 4;
+    return value;
+  };
+  const readInts = (count) => Array.from({ length: count }, readInt);
+  const readDoubles = (count) => Array.from({ length: count }, () => {
+    const value = view.getFloat64(offset);
+    offset += 8;
+    return Number.isNaN(value) ? null : value;
+  });
+
+  if (utf8.decode(new Uint8Array(buffer, 0, 4)) !== 'HPC1') {
+    throw new Error('Not a columnar product response');
+  }
+  offset = 4;
+  const strings = Array.from({ length: readInt() }, () => {
+    const length = readInt();
+    const value = utf8.decode(new Uint8Array(buffer, offset, length));
+    offset += length;
+    return value;
+  });
+  const lookup = (index) => (index < 0 ? null : strings[index]);
+
+  const groups = Array.from({ length: readInt() }, () => ({ buildingName: lookup(readInt()), size: readInt() }));
+  const rowCount = readInt();
+  const [productIds, roomNames, beds, roomTypes, privatePools, currencies] =
+    Array.from({ length: 6 }, () => readInts(rowCount));
+  const currentPrices = readDoubles(rowCount);
+  const recommendedPrices = readDoubles(rowCount);
+
+  let row = 0;
+  return groups.map(({ buildingName, size }) => ({
+    buildingName,
+    products: Array.from({ length: size }, () => {
+      const product = {
+        productId: lookup(productIds[row]),
+        roomName: lookup(roomNames[row]),
+        beds: beds[row],
+        roomType: lookup(roomTypes[row]),
+        privatePool: lookup(privatePools[row]),
+        currentPrice: currentPrices[row],
+        recommendedPrice: recommendedPrices[row],
+        currency: lookup(currencies[row]),
+      };
+      row += 1;
+      return product;
+    }),
+  }));
+};
+
+// Request options for a columnar response; JSON stays the default. A 304 has no body to decode.
+const columnar = (enabled) => (enabled ? {
+  headers: { Accept: COLUMNAR_TYPE },
+  responseType: 'arraybuffer',
+  transformResponse: [(data) => (data && data.byteLength ? decodeColumnarProducts(data) : data)],
+} : {});
+
+const okOrNotModified = (status) => (status >= 200 && status < 300) || status === 304;
+
+// Last ETag and body per request, replayed when the server answers 304 Not Modified
+const conditionalCache = new Map();
+
+// Sends If-None-Match with the ETag of the previous identical request, so polling costs a 304 until the data changes
+const conditional = async (method, url, body, options = {}) => {
+  const key = `${method} ${url} ${JSON.stringify(body ?? null)} ${options.headers?.Accept ?? ''}`;
+  const cached = conditionalCache.get(key);
+  const response = await api.request({
+    ...options,
+    method,
+    url,
+    data: body,
+    headers: { ...options.headers, ...(cached ? { 'If-None-Match': cached.etag } : {}) },
+    validateStatus: okOrNotModified,
+  });
+  if (response.status === 304 && cached) {
+    return { ...response, data: cached.data, notModified: true };
+  }
+  if (response.headers.etag) {
+    conditionalCache.set(key, { etag: response.headers.etag, data: response.data });
+  }
+  return response;
+};
+
+// Data version of a grouped-by-building or multi-currency response, to pass as since= later
+export const dataVersionOf = (response) => Number(response.headers['x-data-version']);
+
+// Applies a grouped-by-building?since= response to the building groups of the earlier version
+export const applyProductChanges = (groups, changes) => {
+  if (changes.full) {
+    return changes.groups;
+  }
+  const dropped = new Set(changes.removedProductIds);
+  changes.groups.forEach((group) => group.products.forEach((product) => dropped.add(product.productId)));
+  const byBuilding = new Map(groups.map((group) => [group.buildingName,
+    group.products.filter((product) => !dropped.has(product.productId))]));
+  changes.groups.forEach((group) => {
+    const products = byBuilding.get(group.buildingName) ?? [];
+    byBuilding.set(group.buildingName, [...products, ...group.products]
+      .sort((a, b) => (a.roomName ?? '').localeCompare(b.roomName ?? '')));
+  });
+  return [...byBuilding.entries()]
+    .filter(([, products]) => products.length > 0)
+    .sort(([a], [b]) => (a === null) - (b === null) || (a ?? '').localeCompare(b ?? ''))
+    .map(([buildingName, products]) => ({ buildingName, products }));
+};
+
+// Query string with a repeated parameter per list value, as the GET endpoints bind filters
+const filterParams = (filters) => {
+  const params = new URLSearchParams();
+  Object.entries(filters).forEach(([name, value]) => {
+    (Array.isArray(value) ? value : [value]).filter((v) => v != null).forEach((v) => params.append(name, v));
+  });
+  return params;
+};
+
+// Opens the pushed change stream: onBatch gets each ingested version's changes in the shape
+// applyProductChanges takes, onReset is called when the result has to be refetched. Close the returned EventSource.
+export const subscribeToProductChanges = (filters, userRole, since, { onBatch, onReset }) => {
+  const params = filterParams(filters);
+  params.set('userRole', userRole);
+  params.set('since', since);
+  const source = new EventSource(`${API_BASE_URL}/stream?${params}`);
+  let groups = [];
+  let removedProductIds = [];
+  // A reconnect resumes after the last complete batch (Last-Event-ID), so a partial one is dropped
+  source.onopen = () => {
+    groups = [];
+    removedProductIds = [];
+  };
+  source.addEventListener('building', (event) => groups.push(JSON.parse(event.data)));
+  source.addEventListener('removed', (event) => {
+    removedProductIds = removedProductIds.concat(JSON.parse(event.data));
+  });
+  source.addEventListener('version', (event) => {
+    onBatch({ ...JSON.parse(event.data), full: false, removedProductIds, groups });
+    groups = [];
+    removedProductIds = [];
+  });
+  source.addEventListener('reset', (event) => onReset(JSON.parse(event.data)));
+  return source;
+};
+
+const SCENARIOS_URL = 'http://localhost:8080/api/pricing/scenarios';
+
+// Reprices every product matching scenario.filters under the scenario's tiers and multipliers.
+// onRows gets each batch of parsed NDJSON rows as it arrives; resolves to the scenario id once the stream ends.
+// Aborting the signal closes the stream, which cancels the scenario on the server.
+export const runPricingScenario = async (scenario, userRole, { onRows, signal } = {}) => {
+  const response = await fetch(`${SCENARIOS_URL}?userRole=${userRole}`, {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json', Accept: 'application/x-ndjson' },
+    body: JSON.stringify(scenario),
+    signal,
+  });
+  if (!response.ok) {
+    throw new Error(`Pricing scenario failed with status ${response.status}`);
+  }
+  const reader = response.body.getReader();
+  const utf8 = new TextDecoder();
+  let pending = '';
+  for (let chunk = await reader.read(); !chunk.done; chunk = await reader.read()) {
+    const lines = (pending + utf8.decode(chunk.value, { stream: true })).split('\n');
+    pending = lines.pop();
+    onRows?.(lines.filter((line) => line).map((line) => JSON.parse(line)));
+  }
+  return response.headers.get('X-Scenario-Id');
+};
+
+export const pricingScenarioAPI = {
+  // Rows evaluated and written so far, and the status of a running or recent scenario
+  getProgress: (scenarioId) => axios.get(`${SCENARIOS_URL}/${scenarioId}`),
+  cancel: (scenarioId) => axios.delete(`${SCENARIOS_URL}/${scenarioId}`),
+};
+
 export const productAPI = {
-  getAllProducts: () => api.get('/grouped-by-building'),
-  getFilteredProducts: (filters) => api.post('/grouped-by-building', filters),
+  // userRole picks the server-side query plan: allowed filters and returned columns
+  // useColumnar opts into the binary encoding, much smaller for large portfolios
+  getAllProducts: (userRole, useColumnar = false) =>
+    conditional('get', `/grouped-by-building?userRole=${userRole}`, undefined, columnar(useColumnar)),
+  getFilteredProducts: (filters, userRole, useColumnar = false) =>
+    conditional('post', `/grouped-by-building?userRole=${userRole}`, filters, columnar(useColumnar)),
+  // Only the products that changed since a data version; status 304 while it is still current
+  getProductChanges: (since, filters = {}, userRole) =>
+    api.post(`/grouped-by-building?since=${since}&userRole=${userRole}`, filters,
+      { validateStatus: okOrNotModified }),
   getFilters: (userRole) => api.get(`/filters?userRole=${userRole}`),
+  // Distinct values with row counts per filter, narrowed by the other active filters
+  getFacets: (filters = {}, userRole) => api.post(`/facets?userRole=${userRole}`, filters),
   getMultiCurrencyProducts: (sortBy = 'current_price', sortDirection = 'asc', page = 0, size = 20) =>
-    api.get(`/multi-currency?sortBy=${sortBy}&sortDirection=${sortDirection}&page=${page}&size=${size}`),
+    conditional('get', `/multi-currency?sortBy=${sortBy}&sortDirection=${sortDirection}&page=${page}&size=${size}`),
+  // Next page after the X-Next-Cursor header of the previous response, cheaper than page=N for deep pages
+  getMultiCurrencyProductsAfter: (cursor, sortBy = 'current_price', sortDirection = 'asc', size = 20) =>
+    api.get(`/multi-currency?sortBy=${sortBy}&sortDirection=${sortDirection}&size=${size}&cursor=${encodeURIComponent(cursor)}`),
 };
 
 export default api;
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.Java.benchmark;
+
+import com.Java.service.DemandTierPricingEngine;
+import com.Java.service.DuckDBService;
+import com.Java.service.DuckDBServiceFactory;
+import com.Java.service.ParquetSnapshotService;
+import com.Java.service.ProductMetrics;
+import com.Java.service.SampleDataFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * DuckDBService over a generated catalogue of the given size, wired the way Spring would wire it.
+ * Catalogues are generated once under target/benchmark-data and reused by later runs.
+ * The filter result cache is disabled so every invocation measures the query itself.
+ */
+final class BenchmarkCatalogue implements AutoCloseable {
+
+    private static final Path DATA_ROOT = Paths.get("target", "benchmark-data");
+
+    private final DuckDBService duckDBService;
+
+    private BenchmarkCatalogue(DuckDBService duckDBService) {
+        this.duckDBService = duckDBService;
+    }
+
+    static BenchmarkCatalogue open(int productCount) throws Exception {
+        Path bucket = DATA_ROOT.resolve("bucket-" + productCount);
+        Path complete = bucket.resolve(".complete");
+        if (!Files.exists(complete)) {
+            SampleDataFixtures.writeBucket(bucket, productCount);
+            Files.createFile(complete);
+        }
+
+        ParquetSnapshotService snapshotService = new ParquetSnapshotService();
+        ReflectionTestUtils.setField(snapshotService, "sourceUri", bucket.toAbsolutePath().toUri().toString());
+        ReflectionTestUtils.setField(snapshotService, "localDir", DATA_ROOT.resolve("snapshot-" + productCount).toString());
+        ReflectionTestUtils.setField(snapshotService, "region", "eu-north-1");
+        ReflectionTestUtils.setField(snapshotService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        snapshotService.init();
+
+        DemandTierPricingEngine pricingEngine = new DemandTierPricingEngine();
+        ReflectionTestUtils.setField(pricingEngine, "demandTiers", "0.8=1.20,0.6=1.10,0.4=1.05");
+        ReflectionTestUtils.setField(pricingEngine, "baseMultiplier", "0.95");
+        ReflectionTestUtils.setField(pricingEngine, "defaultBookingRate", 0.5);
+        pricingEngine.init();
+
+        // Metered like production, so recording cost is part of the measurement
+        ProductMetrics metrics = new ProductMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", new SimpleMeterRegistry());
+
+        DuckDBService duckDBService = DuckDBServiceFactory.of(snapshotService, pricingEngine, metrics)
+                .with("aws.s3.bucket-name", "benchmark")
+                .with("products.cache.max-entries", 0)
+                .with("products.cache.ttl-seconds", 0)
+                .with("products.slow-query.threshold-ms", Long.MAX_VALUE / 1_000_000)
+                .create();
+        duckDBService.init();
+        return new BenchmarkCatalogue(duckDBService);
+    }
+
+    /**
+     * all: no filter; building: one of eight buildings (~12%); narrow: building, beds and grade (~0.4%)
+     */
+    static DuckDBService.ProductFilterRequest filtersFor(String selectivity) {
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        switch (selectivity) {
+            case "all":
+                break;
+            case "narrow":
+                filters.setBeds(List.of(2));
+                filters.setGrades(List.of(5));
+                // fall through
+            case "building":
+                filters.setBuildings(List.of("North Tower"));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown selectivity: " + selectivity);
+        }
+        return filters;
+    }
+
+    DuckDBService getDuckDBService() {
+        return duckDBService;
+    }
+
+    @Override
+    public void close() throws Exception {
+        duckDBService.close();
+    }
+}
@@ -0,0 +1,65 @@
+package com.Java.benchmark;
+
+import com.Java.dto.BuildingGroupResponse;
+import com.Java.service.ProductGroupingService;
+import com.Java.service.ProductRow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java-side shaping of an already fetched result: grouping by building and row to ProductSummary mapping
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GroupingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int productCount;
+
+    @Param({"all", "building", "narrow"})
+    private String selectivity;
+
+    private final ProductGroupingService groupingService = new ProductGroupingService();
+    private final ProductGroupingService parallelGroupingService = new ProductGroupingService();
+    private List<ProductRow> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        try (BenchmarkCatalogue catalogue = BenchmarkCatalogue.open(productCount)) {
+            rows = catalogue.getDuckDBService()
+                    .getProductsWithFiltersOptimized(BenchmarkCatalogue.filtersFor(selectivity));
+        }
+        ReflectionTestUtils.setField(parallelGroupingService, "parallelThreshold", 20_000);
+        parallelGroupingService.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallelGroupingService.close();
+    }
+
+    @Benchmark
+    public List<BuildingGroupResponse> groupProductsByBuilding() {
+        return groupingService.groupProductsByBuilding(rows);
+    }
+
+    @Benchmark
+    public List<BuildingGroupResponse> groupProductsByBuildingParallel() {
+        return parallelGroupingService.groupProductsByBuilding(rows);
+    }
+
+    @Benchmark
+    public void mapToProductSummary(Blackhole blackhole) {
+        for (ProductRow row : rows) {
+            blackhole.consume(groupingService.mapToProductSummary(row));
+        }
+    }
+}
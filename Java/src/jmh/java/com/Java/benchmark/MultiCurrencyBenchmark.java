@@ -0,0 +1,64 @@
+package com.Java.benchmark;
+
+import com.Java.service.DuckDBService;
+import com.Java.service.MultiCurrencyRow;
+import com.Java.service.ProductPageCursor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-currency pivot, sort and page: first page, and a page halfway through the catalogue by offset and by cursor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MultiCurrencyBenchmark {
+
+    private static final String SORT_CURRENCY = "EUR";
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    private int productCount;
+
+    private BenchmarkCatalogue catalogue;
+    private DuckDBService duckDBService;
+    private int middleOffset;
+    private ProductPageCursor middleCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        catalogue = BenchmarkCatalogue.open(productCount);
+        duckDBService = catalogue.getDuckDBService();
+        middleOffset = productCount / 2;
+
+        MultiCurrencyRow beforeMiddle = duckDBService
+                .getMultiCurrencyPage(SORT_CURRENCY, false, null, middleOffset - 1, 1).get(0);
+        middleCursor = new ProductPageCursor(SORT_CURRENCY, false, beforeMiddle.getPrice(SORT_CURRENCY),
+                beforeMiddle.getProductId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        catalogue.close();
+    }
+
+    @Benchmark
+    public List<MultiCurrencyRow> firstPage() {
+        return duckDBService.getMultiCurrencyPage(SORT_CURRENCY, false, null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<MultiCurrencyRow> middlePageByOffset() {
+        return duckDBService.getMultiCurrencyPage(SORT_CURRENCY, false, null, middleOffset, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<MultiCurrencyRow> middlePageByCursor() {
+        return duckDBService.getMultiCurrencyPage(SORT_CURRENCY, false, middleCursor, 0, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,52 @@
+package com.Java.benchmark;
+
+import com.Java.service.DemandTierPricingEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch repricing over primitive price and booking-rate columns
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingEngineBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int productCount;
+
+    private DemandTierPricingEngine engine;
+    private long[] pricesMinor;
+    private double[] bookingRates;
+    private long[] recommendedMinor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new DemandTierPricingEngine();
+        ReflectionTestUtils.setField(engine, "demandTiers", "0.8=1.20,0.6=1.10,0.4=1.05");
+        ReflectionTestUtils.setField(engine, "baseMultiplier", "0.95");
+        ReflectionTestUtils.setField(engine, "defaultBookingRate", 0.5);
+        engine.init();
+
+        SplittableRandom random = new SplittableRandom(42);
+        pricesMinor = new long[productCount];
+        bookingRates = new double[productCount];
+        recommendedMinor = new long[productCount];
+        for (int i = 0; i < productCount; i++) {
+            pricesMinor[i] = 5_000 + random.nextLong(45_100);
+            bookingRates[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(1000) / 1000.0;
+        }
+    }
+
+    @Benchmark
+    public long[] repriceBatch() {
+        engine.recommend(pricesMinor, bookingRates, recommendedMinor, productCount);
+        return recommendedMinor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.Java.benchmark;
+
+import com.Java.dto.BuildingGroupResponse;
+import com.Java.service.DuckDBService;
+import com.Java.service.ProductRow;
+import com.Java.service.RoleQueryPlan;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter query against the materialized product view, materialized as a list and streamed row by row,
+ * and the same filter grouped by building from the in-memory product store
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductQueryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int productCount;
+
+    @Param({"all", "building", "narrow"})
+    private String selectivity;
+
+    private BenchmarkCatalogue catalogue;
+    private DuckDBService.ProductFilterRequest filters;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        catalogue = BenchmarkCatalogue.open(productCount);
+        filters = BenchmarkCatalogue.filtersFor(selectivity);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        catalogue.close();
+    }
+
+    @Benchmark
+    public List<ProductRow> filterQuery() {
+        return catalogue.getDuckDBService().getProductsWithFiltersOptimized(filters);
+    }
+
+    @Benchmark
+    public void filterQueryStreamed(Blackhole blackhole) {
+        catalogue.getDuckDBService().streamProductsWithFilters(filters, blackhole::consume);
+    }
+
+    @Benchmark
+    public List<BuildingGroupResponse> productStoreGrouped() {
+        return catalogue.getDuckDBService().getProductsGroupedByBuilding(filters, RoleQueryPlan.FULL);
+    }
+}
@@ -0,0 +1,43 @@
+package com.Java.controller;
+
+import com.Java.service.DuckDBService;
+import com.Java.service.SlowQueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+
+    private static final int MAX_SLOW_QUERIES = 1000;
+
+    @Autowired
+    private DuckDBService duckDBService;
+
+    /**
+     * Most recent slow queries, newest first: SQL, bound parameters, timings, rows and, for sampled
+     * entries, DuckDB's EXPLAIN ANALYZE profile. endpoint narrows to one API endpoint (or "refresh").
+     */
+    @GetMapping("/slow-queries")
+    public ResponseEntity<List<SlowQueryLog.SlowQuery>> getSlowQueries(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String endpoint) {
+        if (limit < 1 || limit > MAX_SLOW_QUERIES) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(duckDBService.getSlowQueryLog().recent(limit, endpoint));
+    }
+
+    /**
+     * Empty the slow-query log, e.g. before reproducing a regression
+     */
+    @DeleteMapping("/slow-queries")
+    public ResponseEntity<Void> clearSlowQueries() {
+        duckDBService.getSlowQueryLog().clear();
+        return ResponseEntity.noContent().build();
+    }
+}
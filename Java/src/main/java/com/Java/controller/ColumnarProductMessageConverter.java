@@ -0,0 +1,170 @@
+package com.Java.controller;
+
+import com.Java.dto.BuildingGroupResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes grouped products in a compact columnar binary form for clients sending
+ * Accept: application/vnd.hotel-pricing.columnar. Every string goes into one dictionary, so building
+ * names, room types and currencies are sent once, and each row costs 44 bytes of fixed-width columns.
+ * Prices are float64, which is what a JSON client ends up with anyway.
+ *
+ * Layout, big-endian (the default for a JavaScript DataView):
+ * <pre>
+ * "HPC1"
+ * int32 stringCount, then per string: int32 byteLength, UTF-8 bytes
+ * int32 groupCount, then per group: int32 buildingName, int32 productCount
+ * int32 rowCount, then whole columns in group order:
+ *   int32 productId[], int32 roomName[], int32 beds[], int32 roomType[], int32 privatePool[], int32 currency[],
+ *   float64 currentPrice[], float64 recommendedPrice[]
+ * </pre>
+ * String columns are dictionary indexes, -1 for null. A null price is NaN.
+ * Decoded by decodeColumnarProducts in the frontend's services/api.js.
+ */
+@Component
+public class ColumnarProductMessageConverter extends AbstractGenericHttpMessageConverter<List<BuildingGroupResponse>> {
+
+    public static final String COLUMNAR_VALUE = "application/vnd.hotel-pricing.columnar";
+    public static final MediaType COLUMNAR = MediaType.parseMediaType(COLUMNAR_VALUE);
+
+    private static final byte[] MAGIC = "HPC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int NULL_INDEX = -1;
+
+    public ColumnarProductMessageConverter() {
+        super(COLUMNAR);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (type == null || !canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass())
+                && BuildingGroupResponse.class.equals(resolved.getGeneric(0).resolve());
+    }
+
+    @Override
+    protected void writeInternal(List<BuildingGroupResponse> groups, @Nullable Type type,
+                                 HttpOutputMessage outputMessage) throws IOException {
+        int rowCount = 0;
+        for (BuildingGroupResponse group : groups) {
+            rowCount += group.getProducts().size();
+        }
+
+        Dictionary dictionary = new Dictionary();
+        int[] groupBuildings = new int[groups.size()];
+        int[] productIds = new int[rowCount];
+        int[] roomNames = new int[rowCount];
+        int[] beds = new int[rowCount];
+        int[] roomTypes = new int[rowCount];
+        int[] privatePools = new int[rowCount];
+        int[] currencies = new int[rowCount];
+        double[] currentPrices = new double[rowCount];
+        double[] recommendedPrices = new double[rowCount];
+
+        int row = 0;
+        for (int g = 0; g < groups.size(); g++) {
+            BuildingGroupResponse group = groups.get(g);
+            groupBuildings[g] = dictionary.indexOf(group.getBuildingName());
+            for (BuildingGroupResponse.ProductSummary product : group.getProducts()) {
+                productIds[row] = dictionary.indexOf(product.getProductId());
+                roomNames[row] = dictionary.indexOf(product.getRoomName());
+                beds[row] = product.getBeds() != null ? product.getBeds() : 0;
+                roomTypes[row] = dictionary.indexOf(product.getRoomType());
+                privatePools[row] = dictionary.indexOf(product.getPrivatePool());
+                currencies[row] = dictionary.indexOf(product.getCurrency());
+                currentPrices[row] = toDouble(product.getCurrentPrice());
+                recommendedPrices[row] = toDouble(product.getRecommendedPrice());
+                row++;
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody()));
+        out.write(MAGIC);
+        out.writeInt(dictionary.values.size());
+        for (String value : dictionary.values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(groups.size());
+        for (int g = 0; g < groups.size(); g++) {
+            out.writeInt(groupBuildings[g]);
+            out.writeInt(groups.get(g).getProducts().size());
+        }
+        out.writeInt(rowCount);
+        for (int[] column : new int[][] {productIds, roomNames, beds, roomTypes, privatePools, currencies}) {
+            for (int value : column) {
+                out.writeInt(value);
+            }
+        }
+        for (double[] column : new double[][] {currentPrices, recommendedPrices}) {
+            for (double value : column) {
+                out.writeDouble(value);
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    public List<BuildingGroupResponse> read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Columnar product encoding is response-only", inputMessage);
+    }
+
+    @Override
+    protected List<BuildingGroupResponse> readInternal(Class<? extends List<BuildingGroupResponse>> clazz,
+                                                       HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Columnar product encoding is response-only", inputMessage);
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Strings in first-seen order
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            if (value == null) {
+                return NULL_INDEX;
+            }
+            return indexes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+    }
+}
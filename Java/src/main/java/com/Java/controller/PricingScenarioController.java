@@ -0,0 +1,154 @@
+package com.Java.controller;
+
+import com.Java.service.DuckDBService;
+import com.Java.service.FilterConfigurationService;
+import com.Java.service.FilterNotAllowedException;
+import com.Java.service.PricingEngine;
+import com.Java.service.PricingScenario;
+import com.Java.service.QueryRejectedException;
+import com.Java.service.RepricingJob;
+import com.Java.service.RepricingService;
+import com.Java.service.RoleQueryPlan;
+import com.Java.service.UnknownRoleException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+
+@RestController
+@RequestMapping("/api/pricing/scenarios")
+@CrossOrigin(origins = "*", exposedHeaders = {PricingScenarioController.SCENARIO_ID_HEADER, HttpHeaders.LOCATION,
+        HttpHeaders.RETRY_AFTER, ProductGroupController.DATA_VERSION_HEADER})
+public class PricingScenarioController {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingScenarioController.class);
+    static final String SCENARIO_ID_HEADER = "X-Scenario-Id";
+
+    @Autowired
+    private RepricingService repricingService;
+
+    @Autowired
+    private FilterConfigurationService filterConfigurationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Reprice every product matching the scenario's filters under its tiers and multipliers, streamed back
+     * as NDJSON, one product per line, as chunks are evaluated. The scenario id in X-Scenario-Id is for
+     * following progress (GET) or cancelling (DELETE); closing the connection cancels it too.
+     * Only roles that see recommended prices can run scenarios.
+     */
+    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> runScenario(
+            @RequestBody PricingScenario scenario,
+            @RequestParam(required = false) String userRole) {
+        RoleQueryPlan plan = filterConfigurationService.getQueryPlan(userRole);
+        DuckDBService.ProductFilterRequest filters = scenario.getFilters() != null
+                ? scenario.getFilters() : new DuckDBService.ProductFilterRequest();
+        if (!plan.includesRecommendedPrice()) {
+            log.debug("Refused pricing scenario for role {}", plan.getName());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        RepricingJob job;
+        try {
+            plan.checkAllowed(filters);
+            job = repricingService.start(scenario, filters);
+        } catch (FilterNotAllowedException e) {
+            log.debug("Refused pricing scenario: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (QueryRejectedException e) {
+            log.warn("Shedding pricing scenario: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            log.debug("Invalid pricing scenario: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Cannot run pricing scenario: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // NDJSON: the newline written after each row is the only separator
+                generator.setRootValueSeparator(null);
+                job.forEachRow(new RepricingJob.RowWriter() {
+                    @Override
+                    public void write(String productId, String buildingName, String currency, long currentPrice,
+                                      long recommendedPrice, long scenarioPrice) throws IOException {
+                        generator.writeStartObject();
+                        generator.writeStringField("productId", productId);
+                        generator.writeStringField("buildingName", buildingName);
+                        generator.writeStringField("currency", currency);
+                        generator.writeNumberField("currentPrice", PricingEngine.fromMinorUnits(currentPrice));
+                        generator.writeNumberField("recommendedPrice", PricingEngine.fromMinorUnits(recommendedPrice));
+                        generator.writeNumberField("scenarioPrice", PricingEngine.fromMinorUnits(scenarioPrice));
+                        generator.writeEndObject();
+                        generator.writeRaw('\n');
+                    }
+
+                    @Override
+                    public void endChunk() throws IOException {
+                        generator.flush();
+                    }
+                });
+            } catch (IOException e) {
+                log.debug("Client aborted pricing scenario {}: {}", job.getId(), e.getMessage());
+                job.cancel();
+            } catch (CancellationException e) {
+                log.debug("Pricing scenario {} cancelled while streaming", job.getId());
+            } catch (Exception e) {
+                // Headers are already sent at this point, the truncated body is all we can signal
+                log.error("Error streaming pricing scenario {}", job.getId(), e);
+                job.cancel();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(SCENARIO_ID_HEADER, job.getId())
+                .header(HttpHeaders.LOCATION, "/api/pricing/scenarios/" + job.getId())
+                .header(ProductGroupController.DATA_VERSION_HEADER, String.valueOf(job.getDataVersion()))
+                .body(body);
+    }
+
+    @ExceptionHandler(UnknownRoleException.class)
+    public ResponseEntity<Void> unknownRole(UnknownRoleException e) {
+        log.debug("Refused pricing scenario: {}", e.getMessage());
+        return ResponseEntity.badRequest().build();
+    }
+
+    /**
+     * Progress of a running or recently finished scenario: rows evaluated and written out of the total
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<RepricingJob> getScenario(@PathVariable String id) {
+        RepricingJob job = repricingService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Cancel a running scenario; its stream ends where it got to
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelScenario(@PathVariable String id) {
+        if (repricingService.getJob(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return repricingService.cancel(id) ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
@@ -1,71 +1,496 @@
 package com.Java.controller;
 
 import com.Java.dto.BuildingGroupResponse;
+import com.Java.dto.ProductChangesResponse;
 import com.Java.service.DuckDBService;
+import com.Java.service.FacetIndex;
+import com.Java.service.FilterNotAllowedException;
 import com.Java.service.FilterConfigurationService;
+import com.Java.service.FilterResultCache;
+import com.Java.service.MultiCurrencyRow;
+import com.Java.service.ProductFilterKey;
+import com.Java.service.ProductGroupingService;
+import com.Java.service.ProductMetrics;
+import com.Java.service.ProductChangeStream;
+import com.Java.service.ProductPageCursor;
+import com.Java.service.ProductQueryExecutor;
+import com.Java.service.ProductRow;
+import com.Java.service.QueryRejectedException;
+import com.Java.service.RoleQueryPlan;
+import com.Java.service.UnknownRoleException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/products")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {ProductGroupController.NEXT_CURSOR_HEADER, HttpHeaders.RETRY_AFTER,
+        HttpHeaders.ETAG, ProductGroupController.DATA_VERSION_HEADER})
 public class ProductGroupController {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductGroupController.class);
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String DATA_VERSION_HEADER = "X-Data-Version";
+    private static final String DEFAULT_MULTI_CURRENCY_SORT = "current_price";
+    private static final int MAX_MULTI_CURRENCY_PAGE_SIZE = 500;
+
     @Autowired
     private DuckDBService duckDBService;
     
     @Autowired
     private FilterConfigurationService filterConfigurationService;
 
+    @Autowired
+    private ProductGroupingService productGroupingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductQueryExecutor queryExecutor;
+
+    @Autowired
+    private ProductMetrics metrics;
+
+    @Autowired
+    private ProductChangeStream changeStream;
+
+    @Value("${products.stream.timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
     /**
      * Get all products grouped by building (no filters)
      */
-    @GetMapping("/grouped-by-building")
-    public ResponseEntity<List<BuildingGroupResponse>> getProductsGroupedByBuilding() {
-        return getProductsGroupedByBuilding(new DuckDBService.ProductFilterRequest());
+    @GetMapping(value = "/grouped-by-building",
+            produces = {MediaType.APPLICATION_JSON_VALUE, ColumnarProductMessageConverter.COLUMNAR_VALUE})
+    public CompletableFuture<ResponseEntity<List<BuildingGroupResponse>>> getProductsGroupedByBuilding(
+            @RequestParam(required = false) String userRole,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return getProductsGroupedByBuilding(new DuckDBService.ProductFilterRequest(), userRole, ifNoneMatch);
+    }
+
+    /**
+     * Get filtered products grouped by building, with the columns of the role's query plan.
+     * Filters the role may not use are refused with 403.
+     * JSON by default, or the compact columnar encoding for Accept: application/vnd.hotel-pricing.columnar.
+     * The ETag names the data version and the request, so a poll with If-None-Match gets 304 without a query
+     * until the next snapshot; X-Data-Version is the version to pass as since= for the changes only.
+     */
+    @PostMapping(value = "/grouped-by-building",
+            produces = {MediaType.APPLICATION_JSON_VALUE, ColumnarProductMessageConverter.COLUMNAR_VALUE})
+    public CompletableFuture<ResponseEntity<List<BuildingGroupResponse>>> getProductsGroupedByBuilding(
+            @RequestBody DuckDBService.ProductFilterRequest filterRequest,
+            @RequestParam(required = false) String userRole,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        RoleQueryPlan plan = filterConfigurationService.getQueryPlan(userRole);
+        long version = duckDBService.getDataVersion();
+        String eTag = eTag(version, ProductFilterKey.of(filterRequest, plan.getName()).canonicalText());
+        if (matchesETag(ifNoneMatch, eTag) && plan.disallowedFilters(filterRequest).isEmpty()) {
+            return CompletableFuture.completedFuture(notModified(eTag, version));
+        }
+        // Dispatched without a running slot: only a request that ends up querying takes one, not those answered
+        // from the cache or by an identical query already in flight
+        return handle(queryExecutor.dispatch(() -> groupProductsByBuilding(filterRequest, plan, version, eTag)));
+    }
+
+    private ResponseEntity<List<BuildingGroupResponse>> groupProductsByBuilding(
+            DuckDBService.ProductFilterRequest filterRequest, RoleQueryPlan plan, long version, String eTag) {
+        try {
+            List<BuildingGroupResponse> response;
+            try (ProductQueryExecutor.Permit permit = queryExecutor.acquireRunning()) {
+                response = duckDBService.getProductsGroupedByBuilding(filterRequest, plan);
+            }
+            if (response == null) {
+                // No product store for this data version, filter on DuckDB
+                List<ProductRow> data = duckDBService.getProductsWithFiltersOptimized(filterRequest, plan,
+                        queryExecutor::acquireRunning);
+                response = metrics.timeGrouping(ProductMetrics.GROUPED_BY_BUILDING,
+                        () -> productGroupingService.groupProductsByBuilding(data));
+            }
+
+            if (metrics.sampled()) {
+                log.info("grouped-by-building filters={} rows={} groups={}", ProductFilterKey.of(filterRequest),
+                        response.stream().mapToInt(group -> group.getProducts().size()).sum(), response.size());
+            }
+            // Tagged with the version read before the query: a snapshot landing meanwhile costs one more full fetch
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .header(DATA_VERSION_HEADER, String.valueOf(version))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(response);
+        } catch (FilterNotAllowedException e) {
+            return forbidden(e);
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected grouped-by-building request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (QueryRejectedException e) {
+            // Timed out waiting on an identical in-flight query, answered as 429 by runQuery
+            throw e;
+        } catch (Exception e) {
+            log.error("Error in getProductsGroupedByBuilding", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Products that changed since a data version (no filters)
+     */
+    @GetMapping(value = "/grouped-by-building", params = "since", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<ProductChangesResponse>> getProductChanges(
+            @RequestParam long since,
+            @RequestParam(required = false) String userRole) {
+        return getProductChanges(new DuckDBService.ProductFilterRequest(), since, userRole);
     }
 
     /**
-     * Get filtered products grouped by building
+     * Filtered products grouped by building, only those whose rows changed since the data version given as
+     * since (the X-Data-Version of an earlier response), plus the ids of products to drop.
+     * 304 while the data version is still the same. JSON only.
      */
-    @PostMapping("/grouped-by-building")
-    public ResponseEntity<List<BuildingGroupResponse>> getProductsGroupedByBuilding(
-            @RequestBody DuckDBService.ProductFilterRequest filterRequest) {
+    @PostMapping(value = "/grouped-by-building", params = "since", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<ProductChangesResponse>> getProductChanges(
+            @RequestBody DuckDBService.ProductFilterRequest filterRequest,
+            @RequestParam long since,
+            @RequestParam(required = false) String userRole) {
+        RoleQueryPlan plan = filterConfigurationService.getQueryPlan(userRole);
+        long version = duckDBService.getDataVersion();
+        if (since == version && plan.disallowedFilters(filterRequest).isEmpty()) {
+            return CompletableFuture.completedFuture(notModified(null, version));
+        }
+        return runQuery(() -> productChanges(filterRequest, plan, since));
+    }
+
+    private ResponseEntity<ProductChangesResponse> productChanges(DuckDBService.ProductFilterRequest filterRequest,
+                                                                  RoleQueryPlan plan, long since) {
         try {
-            System.out.println("Applying filters: " + filterRequest);
-            
-            List<Map<String, Object>> data = duckDBService.getProductsWithFiltersOptimized(filterRequest);
-            List<BuildingGroupResponse> response = groupProductsByBuilding(data);
-            
-            System.out.println("Returning " + response.size() + " building groups");
-            return ResponseEntity.ok(response);
+            ProductChangesResponse changes = duckDBService.getProductChangesSince(since, filterRequest, plan);
+            if (changes == null) {
+                // No product store to compare with, send the whole result
+                long version = duckDBService.getDataVersion();
+                List<ProductRow> data = duckDBService.getProductsWithFiltersOptimized(filterRequest, plan);
+                changes = new ProductChangesResponse(version, since, true, List.of(),
+                        metrics.timeGrouping(ProductMetrics.GROUPED_BY_BUILDING_CHANGES,
+                                () -> productGroupingService.groupProductsByBuilding(data)));
+            }
+            return ResponseEntity.ok()
+                    .header(DATA_VERSION_HEADER, String.valueOf(changes.getVersion()))
+                    .body(changes);
+        } catch (FilterNotAllowedException e) {
+            return forbidden(e);
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected grouped-by-building changes request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (QueryRejectedException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error in getProductsGroupedByBuilding: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error in getProductChanges", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Server-Sent Events with the products that change as new data is ingested, per building, for the filters
+     * given as query parameters (buildings=A&buildings=B...). Changes are sent from since, the X-Data-Version
+     * of the response the client started from; a reconnecting EventSource resumes from its Last-Event-ID.
+     * Streams time out after products.stream.timeout-ms, which an EventSource simply reconnects from.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamProductChanges(
+            DuckDBService.ProductFilterRequest filterRequest,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) String userRole) {
+        RoleQueryPlan plan = filterConfigurationService.getQueryPlan(userRole);
+        try {
+            plan.checkAllowed(filterRequest);
+            long sinceVersion = lastEventId != null ? Long.parseLong(lastEventId)
+                    : since != null ? since : duckDBService.getDataVersion();
+            SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+            changeStream.subscribe(emitter, filterRequest, plan, sinceVersion);
+            return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+        } catch (FilterNotAllowedException e) {
+            return forbidden(e);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (QueryRejectedException e) {
+            return tooManyRequests(e);
+        }
+    }
+
+    /**
+     * Stream all products grouped by building (no filters)
+     */
+    @GetMapping(value = "/grouped-by-building/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamProductsGroupedByBuilding(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(required = false) String userRole) {
+        return streamProductsGroupedByBuilding(new DuckDBService.ProductFilterRequest(), accept, userRole);
+    }
+
+    /**
+     * Stream filtered products grouped by building. Rows arrive in building order, so each group is
+     * written out as soon as the building name changes and memory stays flat whatever the result size.
+     * Produces one group per line (NDJSON) by default, or a chunked JSON array for Accept: application/json.
+     */
+    @PostMapping(value = "/grouped-by-building/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamProductsGroupedByBuilding(
+            @RequestBody DuckDBService.ProductFilterRequest filterRequest,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(required = false) String userRole) {
+        RoleQueryPlan plan = filterConfigurationService.getQueryPlan(userRole);
+        try {
+            plan.checkAllowed(filterRequest);
+        } catch (FilterNotAllowedException e) {
+            return forbidden(e);
+        }
+        boolean jsonArray = accept != null && !accept.contains(MediaType.APPLICATION_NDJSON_VALUE)
+                && accept.contains(MediaType.APPLICATION_JSON_VALUE);
+
+        // Taken up front so an overloaded engine is reported as 429 before the 200 headers go out
+        ProductQueryExecutor.Permit permit;
+        try {
+            permit = queryExecutor.acquire();
+        } catch (QueryRejectedException e) {
+            return tooManyRequests(e);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (permit; JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                BuildingGroupWriter writer = new BuildingGroupWriter(generator, jsonArray);
+                duckDBService.streamProductsWithFilters(filterRequest, plan,
+                        row -> writer.add(row.getBuildingName(), productGroupingService.mapToProductSummary(row)));
+                writer.finish();
+            } catch (UncheckedIOException e) {
+                log.debug("Client aborted grouped-by-building stream: {}", e.getMessage());
+            } catch (Exception e) {
+                // Headers are already sent at this point, the truncated body is all we can signal
+                log.error("Error in streamProductsGroupedByBuilding", e);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(jsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Writes one BuildingGroupResponse per building as rows for that building stop arriving
+     */
+    private static class BuildingGroupWriter {
+        private final JsonGenerator generator;
+        private final boolean jsonArray;
+        private String currentBuilding;
+        private List<BuildingGroupResponse.ProductSummary> currentProducts = new ArrayList<>();
+
+        BuildingGroupWriter(JsonGenerator generator, boolean jsonArray) throws IOException {
+            this.generator = generator;
+            this.jsonArray = jsonArray;
+            // NDJSON: the newline written after each group is the only separator
+            generator.setRootValueSeparator(null);
+            if (jsonArray) {
+                generator.writeStartArray();
+            }
+        }
+
+        void add(String buildingName, BuildingGroupResponse.ProductSummary product) {
+            if (!currentProducts.isEmpty() && !Objects.equals(buildingName, currentBuilding)) {
+                flushGroup();
+            }
+            currentBuilding = buildingName;
+            currentProducts.add(product);
+        }
+
+        void finish() throws IOException {
+            if (!currentProducts.isEmpty()) {
+                flushGroup();
+            }
+            if (jsonArray) {
+                generator.writeEndArray();
+            }
+            generator.flush();
+        }
+
+        private void flushGroup() {
+            try {
+                generator.writeObject(new BuildingGroupResponse(currentBuilding, currentProducts));
+                if (!jsonArray) {
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            currentProducts = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Run a query handler on the query executor, freeing the servlet thread while it waits on DuckDB.
+     * A saturated engine answers 429 with Retry-After straight away instead of queueing the request.
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> runQuery(Supplier<ResponseEntity<T>> handler) {
+        return handle(queryExecutor.submit(handler));
+    }
+
+    private static <T> CompletableFuture<ResponseEntity<T>> handle(CompletableFuture<ResponseEntity<T>> query) {
+        return query.exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof QueryRejectedException) {
+                return tooManyRequests((QueryRejectedException) cause);
+            }
+            log.error("Error running product query", cause);
             return ResponseEntity.internalServerError().build();
+        });
+    }
+
+    private static <T> ResponseEntity<T> tooManyRequests(QueryRejectedException e) {
+        log.warn("Shedding product query: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
+
+    /**
+     * Weak ETag for a response of a data version, request being everything else that shapes it.
+     * The tag carries a SHA-256 of both, so it is the same on every instance and across restarts, and two
+     * different requests do not share one the way two equal hashCode()s could.
+     * Weak, as JSON, columnar and gzipped bodies of the same data all carry it.
+     */
+    static String eTag(long version, String... request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((version + ";").getBytes(StandardCharsets.UTF_8));
+            for (String part : request) {
+                // Length-prefixed, null apart from "null", so the boundaries between parts are part of the digest
+                String field = part == null ? "-;" : part.length() + ":" + part + ";";
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+            }
+            return "W/\"" + version + "-" + HexFormat.of().formatHex(digest.digest()) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * If-None-Match against the current ETag with weak comparison. Unlike Spring's checkNotModified this
+     * also answers POST with 304 rather than 412: the filter body is part of what the ETag identifies.
+     */
+    static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = eTag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaqueTag)) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String eTag, long version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .header(DATA_VERSION_HEADER, String.valueOf(version));
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        return response.build();
     }
 
     /**
-     * Get role-specific filter configuration
+     * A misspelt or unknown role is refused rather than given some other role's plan
+     */
+    @ExceptionHandler(UnknownRoleException.class)
+    public ResponseEntity<Void> unknownRole(UnknownRoleException e) {
+        log.debug("Refused product query: {}", e.getMessage());
+        return ResponseEntity.badRequest().build();
+    }
+
+    private static <T> ResponseEntity<T> forbidden(FilterNotAllowedException e) {
+        log.debug("Refused product query: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+
+    /**
+     * Get role-specific filter configuration; without a role, the filters of the least privileged role
      */
     @GetMapping("/filters")
     public ResponseEntity<List<String>> getFilterConfiguration(
-            @RequestParam(defaultValue = "pricing_manager") String userRole) {
+            @RequestParam(required = false) String userRole) {
         try {
             List<String> filters = filterConfigurationService.getFiltersForRole(userRole);
             return ResponseEntity.ok(filters);
+        } catch (UnknownRoleException e) {
+            log.debug("Refused filter configuration: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            System.err.println("Error getting filter configuration: " + e.getMessage());
+            log.error("Error getting filter configuration: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Distinct values of every filterable column with row counts, for the filter sidebar
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetIndex.FacetCounts> getFacets(
+            @RequestParam(required = false) String userRole) {
+        return getFacets(new DuckDBService.ProductFilterRequest(), userRole);
+    }
+
+    /**
+     * Facet counts narrowed by the current filters. Each facet is counted under the filters on the other
+     * facets, so the values that could still be added to a selection keep their counts.
+     * Served from an in-memory index of the current data version, DuckDB is not queried.
+     */
+    @PostMapping("/facets")
+    public ResponseEntity<FacetIndex.FacetCounts> getFacets(
+            @RequestBody DuckDBService.ProductFilterRequest filterRequest,
+            @RequestParam(required = false) String userRole) {
+        try {
+            filterConfigurationService.getQueryPlan(userRole).checkAllowed(filterRequest);
+            return ResponseEntity.ok(duckDBService.getFacetCounts(filterRequest));
+        } catch (FilterNotAllowedException e) {
+            return forbidden(e);
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected facet request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Get filter result cache counters
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<FilterResultCache.Stats> getCacheStats() {
+        return ResponseEntity.ok(duckDBService.getCacheStats());
+    }
+
     /**
      * Get available user roles
      */
@@ -96,114 +521,74 @@ public class ProductGroupController {
         public void setDisplayName(String displayName) { this.displayName = displayName; }
     }
 
-    private List<BuildingGroupResponse> groupProductsByBuilding(List<Map<String, Object>> data) {
-        System.out.println("Processing " + data.size() + " records");
-
-        Map<String, List<Map<String, Object>>> groupedByBuilding = data.stream()
-                .collect(Collectors.groupingBy(row -> (String) row.get("building_name")));
-
-        return groupedByBuilding.entrySet().stream()
-                .map(entry -> {
-                    String buildingName = entry.getKey();
-                    List<BuildingGroupResponse.ProductSummary> products = entry.getValue().stream()
-                            .map(this::mapToProductSummary)
-                            .collect(Collectors.toList());
-
-                    return new BuildingGroupResponse(buildingName, products);
-                })
-                .sorted(Comparator.comparing(BuildingGroupResponse::getBuildingName))
-                .collect(Collectors.toList());
-    }
-
-    private BuildingGroupResponse.ProductSummary mapToProductSummary(Map<String, Object> row) {
-        BigDecimal currentPrice = row.get("current_price") != null ?
-                new BigDecimal(row.get("current_price").toString()) : BigDecimal.ZERO;
-
-        Double bookingRate = row.get("booking_rate") != null ?
-                Double.parseDouble(row.get("booking_rate").toString()) : 0.5;
-
-        // Smart pricing based on demand
-        BigDecimal multiplier;
-        if (bookingRate >= 0.8) {
-            multiplier = BigDecimal.valueOf(1.20); // High demand: +20%
-        } else if (bookingRate >= 0.6) {
-            multiplier = BigDecimal.valueOf(1.10); // Good demand: +10%
-        } else if (bookingRate >= 0.4) {
-            multiplier = BigDecimal.valueOf(1.05); // Medium demand: +5%
-        } else {
-            multiplier = BigDecimal.valueOf(0.95); // Low demand: -5%
-        }
-
-        BigDecimal recommendedPrice = currentPrice.multiply(multiplier);
-
-        return new BuildingGroupResponse.ProductSummary(
-                (String) row.get("product_id"),
-                (String) row.get("room_name"),
-                row.get("beds") != null ? Integer.parseInt(row.get("beds").toString()) : 0,
-                (String) row.get("room_type"),
-                (String) row.get("private_pool"),
-                currentPrice,
-                recommendedPrice,
-                (String) row.get("currency")
-        );
-    }
-
+    /**
+     * Page of products with their price in every currency.
+     * Pivot, sort and pagination run in DuckDB over the materialized multi-currency view, so a page costs
+     * the same whatever the catalogue size. sortBy is a currency code; the default "current_price" lists by product id.
+     * When the page is full, X-Next-Cursor carries a cursor to pass back for the next page instead of page=N.
+     * Conditional on If-None-Match like grouped-by-building: 304 until the data version changes.
+     */
     @GetMapping("/multi-currency")
-    public ResponseEntity<List<MultiCurrencyProductResponse>> getMultiCurrencyProducts(
+    public CompletableFuture<ResponseEntity<List<MultiCurrencyProductResponse>>> getMultiCurrencyProducts(
             @RequestParam(defaultValue = "current_price") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDirection,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        try {
-            List<Map<String, Object>> data = duckDBService.getProductsWithFiltersOptimized(new DuckDBService.ProductFilterRequest());
-
-            // Group by product ID, collect all currencies
-            Map<String, MultiCurrencyProductResponse> productMap = new HashMap<>();
-
-            for (Map<String, Object> row : data) {
-                String productId = (String) row.get("product_id");
-                String currency = (String) row.get("currency");
-
-                if (!productMap.containsKey(productId)) {
-                    MultiCurrencyProductResponse product = new MultiCurrencyProductResponse();
-                    product.setProductId(productId);
-                    product.setRoomName((String) row.get("room_name"));
-                    product.setBuildingName((String) row.get("building_name"));
-                    product.setPrices(new HashMap<>());
-                    productMap.put(productId, product);
-                }
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long version = duckDBService.getDataVersion();
+        String eTag = eTag(version, sortBy, sortDirection, String.valueOf(page), String.valueOf(size), cursor);
+        if (matchesETag(ifNoneMatch, eTag)) {
+            return CompletableFuture.completedFuture(notModified(eTag, version));
+        }
+        return runQuery(() -> multiCurrencyPage(sortBy, sortDirection, page, size, cursor, version, eTag));
+    }
 
-                if (currency != null && row.get("current_price") != null) {
-                    BigDecimal price = new BigDecimal(row.get("current_price").toString());
-                    productMap.get(productId).getPrices().put(currency, price);
-                }
+    private ResponseEntity<List<MultiCurrencyProductResponse>> multiCurrencyPage(
+            String sortBy, String sortDirection, int page, int size, String cursor, long version, String eTag) {
+        try {
+            String sortCurrency = DEFAULT_MULTI_CURRENCY_SORT.equals(sortBy) ? null : sortBy;
+            boolean descending = "desc".equals(sortDirection);
+            if (page < 0 || size < 1 || size > MAX_MULTI_CURRENCY_PAGE_SIZE
+                    || (sortCurrency != null && !duckDBService.getCurrencies().contains(sortCurrency))) {
+                return ResponseEntity.badRequest().build();
             }
 
-            List<MultiCurrencyProductResponse> result = new ArrayList<>(productMap.values());
-
-            result.sort((a, b) -> {
-                BigDecimal priceA = a.getPrices().getOrDefault(sortBy, BigDecimal.ZERO);
-                BigDecimal priceB = b.getPrices().getOrDefault(sortBy, BigDecimal.ZERO);
-
-                // Handle null prices (products without that currency)
-                if (priceA.equals(BigDecimal.ZERO) && !priceB.equals(BigDecimal.ZERO)) {
-                    return 1; // Put products without price at the end
-                }
-                if (!priceA.equals(BigDecimal.ZERO) && priceB.equals(BigDecimal.ZERO)) {
-                    return -1; // Put products with price first
+            ProductPageCursor after = null;
+            if (cursor != null && !cursor.isBlank()) {
+                after = ProductPageCursor.decode(cursor);
+                if (!after.matches(sortCurrency, descending)) {
+                    return ResponseEntity.badRequest().build();
                 }
+            }
 
-                return "desc".equals(sortDirection) ? priceB.compareTo(priceA) : priceA.compareTo(priceB);
-            });
-
-            // pagination
-            int start = page * size;
-            int end = Math.min(start + size, result.size());
-            List<MultiCurrencyProductResponse> paginatedResult = result.subList(start, end);
+            List<MultiCurrencyProductResponse> result = new ArrayList<>();
+            for (MultiCurrencyRow row : duckDBService.getMultiCurrencyPage(sortCurrency, descending, after,
+                    page * size, size)) {
+                MultiCurrencyProductResponse product = new MultiCurrencyProductResponse();
+                product.setProductId(row.getProductId());
+                product.setRoomName(row.getRoomName());
+                product.setBuildingName(row.getBuildingName());
+                // Prices are typed by the row mapper, only the present ones are in the row
+                product.setPrices(row.getPrices());
+                result.add(product);
+            }
 
-            return ResponseEntity.ok(paginatedResult);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .eTag(eTag)
+                    .header(DATA_VERSION_HEADER, String.valueOf(version));
+            if (result.size() == size) {
+                MultiCurrencyProductResponse last = result.get(result.size() - 1);
+                BigDecimal lastPrice = sortCurrency != null ? last.getPrices().get(sortCurrency) : null;
+                response.header(NEXT_CURSOR_HEADER,
+                        new ProductPageCursor(sortCurrency, descending, lastPrice, last.getProductId()).encode());
+            }
+            return response.body(result);
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected multi-currency request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            System.err.println("Error in getMultiCurrencyProducts: " + e.getMessage());
+            log.error("Error in getMultiCurrencyProducts", e);
             return ResponseEntity.internalServerError().build();
         }
     }
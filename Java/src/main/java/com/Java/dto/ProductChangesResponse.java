@@ -0,0 +1,33 @@
+package com.Java.dto;
+
+import java.util.List;
+
+/**
+ * Products that changed between two data versions of a grouped-by-building result.
+ * Apply to the result of sinceVersion: drop every product in removedProductIds, then replace all rows of
+ * each product in groups with the rows given. When full is set the earlier version was no longer known,
+ * and groups is the whole result to replace the old one with.
+ */
+public class ProductChangesResponse {
+    private long version;
+    private long sinceVersion;
+    private boolean full;
+    private List<String> removedProductIds;
+    private List<BuildingGroupResponse> groups;
+
+    public ProductChangesResponse(long version, long sinceVersion, boolean full, List<String> removedProductIds,
+                                  List<BuildingGroupResponse> groups) {
+        this.version = version;
+        this.sinceVersion = sinceVersion;
+        this.full = full;
+        this.removedProductIds = removedProductIds;
+        this.groups = groups;
+    }
+
+    // Getters
+    public long getVersion() { return version; }
+    public long getSinceVersion() { return sinceVersion; }
+    public boolean isFull() { return full; }
+    public List<String> getRemovedProductIds() { return removedProductIds; }
+    public List<BuildingGroupResponse> getGroups() { return groups; }
+}
@@ -0,0 +1,134 @@
+package com.Java.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Demand-based pricing: the multiplier comes from the first tier whose minimum booking rate is reached,
+ * falling back to the base multiplier below every tier.
+ * Multipliers are held in basis points so a reprice is integer arithmetic with a single half-up rounding.
+ */
+@Service
+public class DemandTierPricingEngine implements PricingEngine {
+
+    private static final long BASIS_POINTS = 10_000;
+    // Multipliers above 10x are refused: no real tier goes there, and it keeps price * bps far from overflowing
+    private static final BigDecimal MAX_MULTIPLIER = BigDecimal.TEN;
+
+    // Comma-separated minBookingRate=multiplier pairs, in any order
+    @Value("${pricing.demand-tiers:0.8=1.20,0.6=1.10,0.4=1.05}")
+    private String demandTiers;
+
+    @Value("${pricing.base-multiplier:0.95}")
+    private String baseMultiplier;
+
+    @Value("${pricing.default-booking-rate:0.5}")
+    private double defaultBookingRate;
+
+    // Highest threshold first
+    private double[] thresholds;
+    private BigDecimal[] thresholdLiterals;
+    private long[] multipliersBps;
+    private long baseMultiplierBps;
+
+    @PostConstruct
+    public void init() {
+        List<BigDecimal[]> tiers = new ArrayList<>();
+        for (String tier : demandTiers.split(",")) {
+            if (tier.isBlank()) {
+                continue;
+            }
+            String[] parts = tier.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid pricing tier '" + tier + "', expected minBookingRate=multiplier");
+            }
+            tiers.add(new BigDecimal[]{new BigDecimal(parts[0].trim()), new BigDecimal(parts[1].trim())});
+        }
+        tiers.sort(Comparator.comparing((BigDecimal[] tier) -> tier[0]).reversed());
+
+        thresholds = new double[tiers.size()];
+        thresholdLiterals = new BigDecimal[tiers.size()];
+        multipliersBps = new long[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            thresholdLiterals[i] = tiers.get(i)[0];
+            thresholds[i] = tiers.get(i)[0].doubleValue();
+            multipliersBps[i] = toBasisPoints(tiers.get(i)[1]);
+        }
+        baseMultiplierBps = toBasisPoints(new BigDecimal(baseMultiplier.trim()));
+    }
+
+    /**
+     * Engine for a what-if scenario: the scenario's tiers, base multiplier and default booking rate where given,
+     * this engine's configuration otherwise
+     *
+     * @throws IllegalArgumentException if a tier or multiplier is malformed, or a multiplier is negative or above 10
+     */
+    public DemandTierPricingEngine forScenario(PricingScenario scenario) {
+        DemandTierPricingEngine engine = new DemandTierPricingEngine();
+        engine.demandTiers = scenario.getDemandTiers() != null ? scenario.getDemandTiers() : demandTiers;
+        engine.baseMultiplier = scenario.getBaseMultiplier() != null ? scenario.getBaseMultiplier() : baseMultiplier;
+        engine.defaultBookingRate = scenario.getDefaultBookingRate() != null
+                ? scenario.getDefaultBookingRate() : defaultBookingRate;
+        engine.init();
+        return engine;
+    }
+
+    @Override
+    public long recommend(long priceMinor, double bookingRate) {
+        return applyBasisPoints(priceMinor, multiplierBps(bookingRate));
+    }
+
+    /**
+     * Multiplier for a booking rate in basis points, the default booking rate standing in for NaN
+     */
+    public long multiplierBps(double bookingRate) {
+        double rate = Double.isNaN(bookingRate) ? defaultBookingRate : bookingRate;
+        for (int i = 0; i < thresholds.length; i++) {
+            if (rate >= thresholds[i]) {
+                return multipliersBps[i];
+            }
+        }
+        return baseMultiplierBps;
+    }
+
+    @Override
+    public String toSqlExpression(String priceColumn, String bookingRateColumn) {
+        String rate = "coalesce(" + bookingRateColumn + ", " + BigDecimal.valueOf(defaultBookingRate).toPlainString() + ")";
+        StringBuilder multiplier = new StringBuilder("CASE");
+        for (int i = 0; i < thresholds.length; i++) {
+            multiplier.append(" WHEN ").append(rate).append(" >= ").append(thresholdLiterals[i].toPlainString())
+                    .append(" THEN ").append(basisPointsLiteral(multipliersBps[i]));
+        }
+        multiplier.append(" ELSE ").append(basisPointsLiteral(baseMultiplierBps)).append(" END");
+        return "CAST(round(coalesce(" + priceColumn + ", 0) * " + multiplier + ", " + MINOR_UNIT_SCALE
+                + ") AS DECIMAL(18," + MINOR_UNIT_SCALE + "))";
+    }
+
+    /**
+     * price * bps / 10000, rounded half away from zero like SQL round()
+     */
+    private static long applyBasisPoints(long priceMinor, long bps) {
+        long scaled = Math.multiplyExact(priceMinor, bps);
+        return scaled >= 0 ? (scaled + BASIS_POINTS / 2) / BASIS_POINTS : -((-scaled + BASIS_POINTS / 2) / BASIS_POINTS);
+    }
+
+    private static long toBasisPoints(BigDecimal multiplier) {
+        if (multiplier.signum() < 0 || multiplier.compareTo(MAX_MULTIPLIER) > 0) {
+            throw new IllegalArgumentException("Pricing multiplier " + multiplier + " is outside 0 to " + MAX_MULTIPLIER);
+        }
+        try {
+            return multiplier.movePointRight(4).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Pricing multiplier " + multiplier + " has more than 4 decimal places", e);
+        }
+    }
+
+    private static String basisPointsLiteral(long bps) {
+        return BigDecimal.valueOf(bps, 4).toPlainString();
+    }
+}
@@ -1,39 +1,297 @@
 package com.Java.service;
 
+import com.Java.dto.BuildingGroupResponse;
+import com.Java.dto.ProductChangesResponse;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.duckdb.DuckDBDriver;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class DuckDBService {
 
+    private static final Logger log = LoggerFactory.getLogger(DuckDBService.class);
+
+    /**
+     * Denormalized products x buildings x prices x cluster_metrics table, rebuilt once per snapshot version
+     */
+    public static final String PRODUCT_VIEW = "product_view";
+    private static final String PRODUCT_VIEW_SHADOW = "product_view_shadow";
+
+    /**
+     * One row per product with a price column per currency (price_USD, price_EUR, ...), rebuilt with the product view
+     */
+    public static final String PRODUCT_CURRENCY_VIEW = "product_currency_view";
+    private static final String PRODUCT_CURRENCY_VIEW_SHADOW = "product_currency_view_shadow";
+    public static final String CURRENCY_COLUMN_PREFIX = "price_";
+
+    // Datasets whose newly landed files can be merged into the live tables without a rebuild
+    private static final Set<String> DELTA_DATASETS =
+            Set.of(ParquetSnapshotService.PRICES, ParquetSnapshotService.CLUSTER_METRICS);
+
+    // SQL macro wrapping the pricing engine's expression
+    private static final String RECOMMENDED_PRICE_MACRO = "recommended_price";
+
+    // "?,?,?" strings by placeholder count
+    private static final Map<Integer, String> PLACEHOLDERS = new ConcurrentHashMap<>();
+
+    // Columns a RoleQueryPlan may project, besides the computed recommended price
+    private static final Set<String> PRODUCT_VIEW_COLUMNS = Set.of("building_name", "product_id", "room_name", "beds",
+            "room_type", "private_pool", "grade", "arrival_date", "current_price", "currency", "booking_rate", "cluster_key");
+
+    // SELECT ... FROM product_view by plan name, compiled on first use
+    private static final Map<String, String> PLAN_SELECTS = new ConcurrentHashMap<>();
+
+    // Shape of the product view, used until the first snapshot with products is available
+    private static final String EMPTY_PRODUCT_VIEW_DDL = """
+        CREATE TABLE IF NOT EXISTS product_view (
+            building_name VARCHAR,
+            product_id VARCHAR,
+            room_name VARCHAR,
+            beds INTEGER,
+            room_type VARCHAR,
+            private_pool VARCHAR,
+            grade INTEGER,
+            arrival_date DATE,
+            current_price DECIMAL(10,2),
+            currency VARCHAR,
+            booking_rate DECIMAL(5,3),
+            cluster_key VARCHAR
+        )
+        """;
+
+    private static final String EMPTY_PRODUCT_CURRENCY_VIEW_DDL = """
+        CREATE TABLE IF NOT EXISTS product_currency_view (
+            product_id VARCHAR,
+            room_name VARCHAR,
+            building_name VARCHAR
+        )
+        """;
+
+    // Which snapshot the tables in a database file were built from, written in the same transaction as the tables
+    private static final String SNAPSHOT_STATE = "snapshot_state";
+    private static final String SNAPSHOT_STATE_DDL = """
+        CREATE TABLE IF NOT EXISTS snapshot_state (
+            data_version BIGINT,
+            snapshot_key VARCHAR
+        )
+        """;
+
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
+    @Value("${products.cache.max-entries:256}")
+    private int cacheMaxEntries;
+
+    @Value("${products.cache.ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
+    @Value("${products.single-flight.timeout-ms:30000}")
+    private long singleFlightTimeoutMs;
+
+    @Value("${products.slow-query.threshold-ms:500}")
+    private long slowQueryThresholdMs;
+
+    @Value("${products.slow-query.capacity:200}")
+    private int slowQueryCapacity;
+
+    @Value("${products.slow-query.explain-sample-rate:0.1}")
+    private double explainSampleRate;
+
+    @Value("${products.store.enabled:true}")
+    private boolean productStoreEnabled;
+
+    @Value("${products.delta.history:8}")
+    private int deltaHistory;
+
+    // Empty for an in-memory database rebuilt on every start
+    @Value("${duckdb.database-file:}")
+    private String databaseFile;
+
+    @Value("${duckdb.pool.max-size:0}")
+    private int poolMaxSize;
+
+    @Value("${duckdb.statement-cache-size:64}")
+    private int statementCacheSize;
+
+    @Value("${duckdb.connection-init-sql:}")
+    private String connectionInitSql;
+
+    @Value("${duckdb.stream-results:true}")
+    private boolean streamResults;
+
+    private final ParquetSnapshotService snapshotService;
+    private final PricingEngine pricingEngine;
+    private final ProductMetrics metrics;
+    private final ProductGroupingService groupingService;
+
+    private SharedDuckDBDataSource duckDB;
+    private HikariDataSource dataSource;
     private JdbcTemplate jdbcTemplate;
+    private FilterResultCache<List<ProductRow>> resultCache;
+    private SingleFlight<ProductFilterKey, List<ProductRow>> filterQueries;
+    private SlowQueryLog slowQueries;
+    private ThreadPoolExecutor profiler;
+    private volatile long dataVersion = -1;
+    private volatile long productRowCount;
+    private volatile FacetIndex facetIndex = FacetIndex.builder(-1).build();
+    private volatile ProductStore productStore;
+    // Product fingerprints of the latest data versions, to answer since=<version> with what changed
+    private final ConcurrentSkipListMap<Long, ProductStore.Fingerprints> fingerprintHistory =
+            new ConcurrentSkipListMap<>();
+    private volatile List<String> currencies = List.of();
+    private boolean persistent;
+
+    @Autowired
+    public DuckDBService(ParquetSnapshotService snapshotService, PricingEngine pricingEngine, ProductMetrics metrics,
+                         ProductGroupingService groupingService) {
+        this.snapshotService = snapshotService;
+        this.pricingEngine = pricingEngine;
+        this.metrics = metrics;
+        this.groupingService = groupingService;
+    }
+
+    /**
+     * For test doubles that override the methods they are called through; never initialised
+     */
+    protected DuckDBService() {
+        this(null, null, null, null);
+    }
 
     @PostConstruct
     public void init() {
         try {
-            DriverManagerDataSource dataSource = new DriverManagerDataSource();
-            dataSource.setDriverClassName("org.duckdb.DuckDBDriver");
-            dataSource.setUrl("jdbc:duckdb:");
-            
+            Properties properties = new Properties();
+            // Lets result sets be consumed chunk by chunk instead of being fully materialized first
+            properties.setProperty(DuckDBDriver.JDBC_STREAM_RESULTS, String.valueOf(streamResults));
+            this.duckDB = openDatabase(properties);
+            this.dataSource = createPool(duckDB);
             this.jdbcTemplate = new JdbcTemplate(dataSource);
-            setupAWS();
+            this.resultCache = new FilterResultCache<>(cacheMaxEntries, Duration.ofSeconds(cacheTtlSeconds));
+            this.filterQueries = new SingleFlight<>(Duration.ofMillis(singleFlightTimeoutMs));
+            this.slowQueries = new SlowQueryLog(slowQueryCapacity);
+            // EXPLAIN ANALYZE reruns the query, so profiles are taken one at a time off the request path
+            // and dropped rather than queued when slow queries come in bursts
+            this.profiler = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "duckdb-profiler");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.DiscardPolicy());
+            jdbcTemplate.execute(EMPTY_PRODUCT_VIEW_DDL);
+            jdbcTemplate.execute(EMPTY_PRODUCT_CURRENCY_VIEW_DDL);
+            jdbcTemplate.execute(SNAPSHOT_STATE_DDL);
+            // Recommendations are computed in the query plan rather than row by row in Java
+            jdbcTemplate.execute("CREATE OR REPLACE MACRO " + RECOMMENDED_PRICE_MACRO + "(price, booking_rate) AS "
+                    + pricingEngine.toSqlExpression("price", "booking_rate"));
+            if (persistent) {
+                restoreProductView();
+            }
+            refreshProductView();
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize DuckDB", e);
         }
     }
 
-    private void setupAWS() {
-        jdbcTemplate.execute("SET s3_region='eu-north-1'");
-        jdbcTemplate.execute("SET s3_access_key_id='" + System.getenv("AWS_ACCESS_KEY_ID") + "'");
-        jdbcTemplate.execute("SET s3_secret_access_key='" + System.getenv("AWS_SECRET_ACCESS_KEY") + "'");
+    @PreDestroy
+    public void close() throws SQLException {
+        if (profiler != null) {
+            profiler.shutdownNow();
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (duckDB != null) {
+            duckDB.close();
+        }
+    }
+
+    /**
+     * The database in duckdb.database-file when set, so the product view built by the previous run is there
+     * at startup. Falls back to an in-memory database when the file cannot be opened, e.g. while another
+     * instance still holds its lock.
+     */
+    private SharedDuckDBDataSource openDatabase(Properties properties) throws SQLException {
+        List<String> initSql = parseInitSql(connectionInitSql);
+        if (databaseFile != null && !databaseFile.isBlank()) {
+            Path file = Paths.get(databaseFile).toAbsolutePath();
+            try {
+                Files.createDirectories(file.getParent());
+                SharedDuckDBDataSource database = new SharedDuckDBDataSource("jdbc:duckdb:" + file, properties,
+                        initSql, statementCacheSize);
+                persistent = true;
+                log.info("Using DuckDB database file {}", file);
+                return database;
+            } catch (IOException | SQLException e) {
+                log.warn("Cannot open DuckDB database file {}, starting in memory: {}", file, e.getMessage());
+            }
+        }
+        return new SharedDuckDBDataSource("jdbc:duckdb:", properties, initSql, statementCacheSize);
+    }
+
+    /**
+     * Pool of connections onto the shared database, one per core unless configured otherwise
+     */
+    private HikariDataSource createPool(SharedDuckDBDataSource duckDB) {
+        int size = poolMaxSize > 0 ? poolMaxSize : Runtime.getRuntime().availableProcessors();
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("duckdb");
+        config.setDataSource(duckDB);
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * duckdb.connection-init-sql holds ';'-separated statements run on every new pooled connection
+     */
+    private static List<String> parseInitSql(String sql) {
+        if (sql == null || sql.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(sql.split(";"))
+                .map(String::trim)
+                .filter(statement -> !statement.isEmpty())
+                .collect(Collectors.toList());
     }
 
     public String getBucketName() {
@@ -41,11 +299,338 @@ public class DuckDBService {
     }
 
     /**
-     * Get products with optional filters using JdbcTemplate
+     * Snapshot version the product view was built from
+     */
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Rows in the product view, the denominator of filter selectivity
+     */
+    public long getProductRowCount() {
+        return productRowCount;
+    }
+
+    /**
+     * Currencies with a price column in the multi-currency view, sorted
+     */
+    public List<String> getCurrencies() {
+        return currencies;
+    }
+
+    /**
+     * Hit/miss/eviction counters of the filter result cache
+     */
+    public FilterResultCache.Stats getCacheStats() {
+        return resultCache.getStats();
+    }
+
+    /**
+     * Recent queries over products.slow-query.threshold-ms
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueries;
+    }
+
+    /**
+     * Filter requests that were served by an identical query already in flight
+     */
+    public long getCoalescedQueryCount() {
+        return filterQueries.getShared();
+    }
+
+    // Ahead of other listeners, so they see the new data version
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onSnapshotUpdated(SnapshotUpdatedEvent event) {
+        if (!applyDeltas(event)) {
+            refreshProductView();
+        }
+    }
+
+    /**
+     * Merge newly landed prices and cluster_metrics files into the live tables instead of rebuilding them.
+     * Price rows are upserted by product_id (a product's rows are replaced by the ones in the delta) and booking
+     * rates by cluster_key, in one transaction, so readers see either the previous or the new version.
+     * Returns false when the update cannot be applied incrementally and needs a full rebuild: another dataset
+     * changed, an existing file was rewritten or removed, a version was skipped, or a new currency appeared.
+     */
+    public synchronized boolean applyDeltas(SnapshotUpdatedEvent event) {
+        if (!event.isAppendOnly() || dataVersion != event.getVersion() - 1
+                || !DELTA_DATASETS.containsAll(event.getChangedDatasets())
+                || !snapshotService.hasDataset(ParquetSnapshotService.PRODUCTS)
+                || !snapshotService.hasDataset(ParquetSnapshotService.BUILDINGS)) {
+            return false;
+        }
+        List<String> priceFiles = event.getAddedFiles().getOrDefault(ParquetSnapshotService.PRICES, List.of());
+        List<String> metricFiles = event.getAddedFiles().getOrDefault(ParquetSnapshotService.CLUSTER_METRICS, List.of());
+
+        String priceDelta = readParquet(ParquetSnapshotService.PRICES, fileList(priceFiles), "");
+        if (!priceFiles.isEmpty()) {
+            List<String> deltaCurrencies = jdbcTemplate.queryForList("SELECT DISTINCT Currency FROM " + priceDelta
+                    + " WHERE Currency IS NOT NULL", String.class);
+            if (!currencies.containsAll(deltaCurrencies)) {
+                return false; // needs a new column in the multi-currency view
+            }
+        }
+
+        long start = System.nanoTime();
+        String snapshotKey = snapshotKey();
+        int[] counts = jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                int priceRows = 0;
+                int metricRows = 0;
+                if (!priceFiles.isEmpty()) {
+                    statement.execute("CREATE OR REPLACE TEMP TABLE price_delta AS SELECT product_id, Price, Currency FROM "
+                            + priceDelta);
+                    // Everything but the price of the affected products, taken from the rows being replaced
+                    statement.execute("CREATE OR REPLACE TEMP TABLE price_delta_products AS SELECT DISTINCT "
+                            + "building_name, product_id, room_name, beds, room_type, private_pool, grade, arrival_date, "
+                            + "booking_rate, cluster_key FROM " + PRODUCT_VIEW
+                            + " WHERE product_id IN (SELECT product_id FROM price_delta)");
+                    statement.execute("DELETE FROM " + PRODUCT_VIEW + " WHERE product_id IN (SELECT product_id FROM price_delta)");
+                    priceRows = statement.executeUpdate("INSERT INTO " + PRODUCT_VIEW + " (building_name, product_id, "
+                            + "room_name, beds, room_type, private_pool, grade, arrival_date, current_price, currency, "
+                            + "booking_rate, cluster_key) SELECT a.building_name, a.product_id, a.room_name, a.beds, "
+                            + "a.room_type, a.private_pool, a.grade, a.arrival_date, d.Price, d.Currency, a.booking_rate, "
+                            + "a.cluster_key FROM price_delta_products a JOIN price_delta d USING (product_id)");
+                    statement.execute("DELETE FROM " + PRODUCT_CURRENCY_VIEW
+                            + " WHERE product_id IN (SELECT product_id FROM price_delta)");
+                    statement.execute("INSERT INTO " + PRODUCT_CURRENCY_VIEW + " " + buildProductCurrencyViewSql(
+                            PRODUCT_VIEW, "product_id IN (SELECT product_id FROM price_delta)", currencies));
+                    statement.execute("DROP TABLE price_delta");
+                    statement.execute("DROP TABLE price_delta_products");
+                }
+                if (!metricFiles.isEmpty()) {
+                    metricRows = statement.executeUpdate("UPDATE " + PRODUCT_VIEW + " SET booking_rate = d.booking_rate "
+                            + "FROM (SELECT cluster_key, first(booking_rate) AS booking_rate FROM "
+                            + readParquet(ParquetSnapshotService.CLUSTER_METRICS, fileList(metricFiles), "")
+                            + " GROUP BY cluster_key) d WHERE "
+                            + PRODUCT_VIEW + ".cluster_key = d.cluster_key");
+                }
+                saveSnapshotState(statement, event.getVersion(), snapshotKey);
+                connection.commit();
+                return new int[]{priceRows, metricRows};
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+        checkpoint();
+        productRowCount = jdbcTemplate.queryForObject("SELECT count(*) FROM " + PRODUCT_VIEW, Long.class);
+        publishIndexes(event.getVersion());
+        dataVersion = event.getVersion();
+        resultCache.invalidateOlderThan(event.getVersion());
+
+        long elapsed = System.nanoTime() - start;
+        metrics.recordRefresh("delta", elapsed);
+        log.info("Applied deltas for snapshot version {}: {} price rows, {} rows with new booking rates in {} ms",
+                event.getVersion(), counts[0], counts[1], elapsed / 1_000_000);
+        return true;
+    }
+
+    /**
+     * Rebuild the product view for the current snapshot version.
+     * The new data goes into a shadow table that is swapped in with a rename inside one transaction,
+     * so readers keep scanning the previous table and never see half-built data.
+     */
+    public synchronized void refreshProductView() {
+        long version = snapshotService.getVersion();
+        if (version == dataVersion) {
+            return;
+        }
+        if (!snapshotService.hasDataset(ParquetSnapshotService.PRODUCTS)
+                || !snapshotService.hasDataset(ParquetSnapshotService.BUILDINGS)) {
+            log.info("No products in snapshot version {}, product view left as is", version);
+            publishIndexes(version);
+            dataVersion = version;
+            return;
+        }
+
+        long start = System.nanoTime();
+        String productViewSql = buildProductViewSql();
+        String snapshotKey = snapshotKey();
+        jdbcTemplate.execute("CREATE OR REPLACE TABLE " + PRODUCT_VIEW_SHADOW + " AS " + productViewSql);
+        List<String> newCurrencies = jdbcTemplate.queryForList("SELECT DISTINCT currency FROM " + PRODUCT_VIEW_SHADOW
+                + " WHERE currency IS NOT NULL ORDER BY currency", String.class);
+        jdbcTemplate.execute("CREATE OR REPLACE TABLE " + PRODUCT_CURRENCY_VIEW_SHADOW + " AS "
+                + buildProductCurrencyViewSql(PRODUCT_VIEW_SHADOW, null, newCurrencies));
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + PRODUCT_VIEW);
+                statement.execute("ALTER TABLE " + PRODUCT_VIEW_SHADOW + " RENAME TO " + PRODUCT_VIEW);
+                statement.execute("DROP TABLE IF EXISTS " + PRODUCT_CURRENCY_VIEW);
+                statement.execute("ALTER TABLE " + PRODUCT_CURRENCY_VIEW_SHADOW + " RENAME TO " + PRODUCT_CURRENCY_VIEW);
+                saveSnapshotState(statement, version, snapshotKey);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+            return null;
+        });
+        checkpoint();
+        currencies = List.copyOf(newCurrencies);
+        productRowCount = jdbcTemplate.queryForObject("SELECT count(*) FROM " + PRODUCT_VIEW, Long.class);
+        publishIndexes(version);
+        dataVersion = version;
+        resultCache.invalidateOlderThan(version);
+
+        long elapsed = System.nanoTime() - start;
+        metrics.recordRefresh("rebuild", elapsed);
+        if (elapsed >= TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs)) {
+            // Parquet reads and the four-way join; not profiled, as that would read the whole snapshot again
+            slowQueries.add(new SlowQueryLog.SlowQuery(Instant.now(), "refresh", productViewSql, List.of(),
+                    elapsed / 1_000_000, elapsed / 1_000_000, productRowCount, version));
+        }
+        log.info("Product view rebuilt for snapshot version {}: {} rows in {} ms", version, productRowCount,
+                elapsed / 1_000_000);
+    }
+
+    /**
+     * Serve the tables left in the database file by the previous run when they were built from the snapshot
+     * now on disk, instead of reading the Parquet files and joining them again. Only the in-memory indexes
+     * are rebuilt, from the product view.
+     */
+    private void restoreProductView() {
+        List<Map<String, Object>> state = jdbcTemplate.queryForList("SELECT data_version, snapshot_key FROM "
+                + SNAPSHOT_STATE);
+        if (state.isEmpty() || !snapshotService.hasDataset(ParquetSnapshotService.PRODUCTS)
+                || !snapshotKey().equals(state.get(0).get("snapshot_key"))) {
+            log.info("Database file does not hold the current snapshot, rebuilding the product view");
+            return;
+        }
+        long start = System.nanoTime();
+        long version = snapshotService.getVersion();
+        currencies = List.copyOf(jdbcTemplate.queryForList("SELECT DISTINCT currency FROM " + PRODUCT_VIEW
+                + " WHERE currency IS NOT NULL ORDER BY currency", String.class));
+        productRowCount = jdbcTemplate.queryForObject("SELECT count(*) FROM " + PRODUCT_VIEW, Long.class);
+        publishIndexes(version);
+        dataVersion = version;
+
+        long elapsed = System.nanoTime() - start;
+        metrics.recordRefresh("restore", elapsed);
+        log.info("Product view restored from the database file for snapshot version {} (built as version {}): "
+                + "{} rows in {} ms", version, state.get(0).get("data_version"), productRowCount, elapsed / 1_000_000);
+    }
+
+    /**
+     * Identifies the snapshot content and the SQL the product view is built with, so a database file written
+     * by another snapshot or another release of the view is never reused
+     */
+    private String snapshotKey() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(snapshotService.getContentKey().getBytes(StandardCharsets.UTF_8));
+            digest.update(buildProductViewSql().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void saveSnapshotState(Statement statement, long version, String snapshotKey) throws SQLException {
+        statement.execute("DELETE FROM " + SNAPSHOT_STATE);
+        statement.execute("INSERT INTO " + SNAPSHOT_STATE + " VALUES (" + version + ", '" + snapshotKey + "')");
+    }
+
+    /**
+     * Write the WAL into the database file so the next start opens it without replaying the rebuild
+     */
+    private void checkpoint() {
+        if (!persistent) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CHECKPOINT");
+        } catch (DataAccessException e) {
+            // Busy with other transactions; DuckDB checkpoints on its own and on close
+            log.debug("Checkpoint skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Build the product store from one scan of the product view and the facet index over the store's own
+     * bitmaps. Only when there is no store does the facet index scan the view itself.
+     */
+    private void publishIndexes(long version) {
+        ProductStore store = buildProductStore(version);
+        facetIndex = store != null ? FacetIndex.of(store) : buildFacetIndex(version);
+        publishProductStore(store);
+    }
+
+    /**
+     * One pass over the filterable columns of the product view, in the row order the facet index expects
+     */
+    private FacetIndex buildFacetIndex(long version) {
+        FacetIndex.Builder builder = FacetIndex.builder(version);
+        jdbcTemplate.query("SELECT building_name, room_type, beds, grade, private_pool, arrival_date FROM "
+                + PRODUCT_VIEW + " ORDER BY arrival_date NULLS FIRST", (RowCallbackHandler) resultSet -> {
+            Date arrivalDate = resultSet.getDate(6);
+            builder.add(resultSet.getString(1), resultSet.getString(2), intOrNull(resultSet.getObject(3)),
+                    intOrNull(resultSet.getObject(4)), resultSet.getString(5),
+                    arrivalDate != null ? arrivalDate.toLocalDate() : null);
+        });
+        return builder.build();
+    }
+
+    /**
+     * Columnar copy of the product view in building_name, room_name order, or null when the store is disabled
+     * or the view does not fit it (in which case filters go to DuckDB)
      */
-    public List<Map<String, Object>> getProductsWithFiltersOptimized(ProductFilterRequest filters) {
-        String baseSql = """
-        SELECT 
+    private ProductStore buildProductStore(long version) {
+        if (!productStoreEnabled) {
+            return null;
+        }
+        ProductStore.Builder builder = ProductStore.builder(version);
+        try {
+            jdbcTemplate.query("SELECT building_name, product_id, room_name, beds, room_type, private_pool, grade, "
+                    + "arrival_date, current_price, currency, booking_rate FROM " + PRODUCT_VIEW
+                    + " ORDER BY building_name NULLS LAST, room_name NULLS LAST", (RowCallbackHandler) resultSet -> {
+                Date arrivalDate = resultSet.getDate(8);
+                builder.add(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3),
+                        intOrNull(resultSet.getObject(4)), resultSet.getString(5), resultSet.getString(6),
+                        intOrNull(resultSet.getObject(7)), arrivalDate != null ? arrivalDate.toLocalDate() : null,
+                        resultSet.getBigDecimal(9), resultSet.getString(10), resultSet.getBigDecimal(11));
+            });
+            return builder.build(pricingEngine);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("Product store not built for snapshot version {}, filters will run on DuckDB: {}", version,
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Make a store the current one and keep its fingerprints, dropping the oldest beyond products.delta.history
+     */
+    private void publishProductStore(ProductStore store) {
+        productStore = store;
+        if (store != null && deltaHistory > 0) {
+            fingerprintHistory.put(store.getDataVersion(), store.getFingerprints());
+            while (fingerprintHistory.size() > deltaHistory) {
+                fingerprintHistory.pollFirstEntry();
+            }
+        }
+    }
+
+    private static Integer intOrNull(Object value) {
+        return value != null ? ((Number) value).intValue() : null;
+    }
+
+    /**
+     * The four-way join over the local snapshot.
+     * Rows are stored in arrival_date order, so each row group covers a narrow date range and the
+     * min/max statistics DuckDB keeps per row group let date-range filters skip most of the table.
+     */
+    private String buildProductViewSql() {
+        return """
+        SELECT
             b.Building as building_name,
             p.Id as product_id,
             p.room_name as room_name,
@@ -56,30 +641,398 @@ public class DuckDBService {
             p.arrival_date as arrival_date,
             pr.Price as current_price,
             pr.Currency as currency,
-            cm.booking_rate as booking_rate
-        FROM read_parquet('s3://%s/clustering/clustered_products/*.parquet') p
-        JOIN read_parquet('s3://%s/buildings/*.parquet') b ON p.Id = b.product_id
-        LEFT JOIN read_parquet('s3://%s/prices/*.parquet') pr ON p.Id = pr.product_id
-        LEFT JOIN read_parquet('s3://%s/clustering/cluster_metrics/*.parquet') cm ON p.cluster_key = cm.cluster_key
-        """.formatted(bucketName, bucketName, bucketName, bucketName);
+            cm.booking_rate as booking_rate,
+            p.cluster_key as cluster_key
+        FROM %s p
+        JOIN %s b ON p.Id = b.product_id
+        LEFT JOIN %s pr ON p.Id = pr.product_id
+        LEFT JOIN %s cm ON p.cluster_key = cm.cluster_key
+        ORDER BY p.arrival_date, b.Building
+        """.formatted(
+                snapshotRelation(ParquetSnapshotService.PRODUCTS, null),
+                snapshotRelation(ParquetSnapshotService.BUILDINGS, null),
+                latestLandedRelation(ParquetSnapshotService.PRICES, "product_id",
+                        "SELECT NULL::VARCHAR AS product_id, NULL::DECIMAL(10,2) AS Price, NULL::VARCHAR AS Currency WHERE false"),
+                latestLandedRelation(ParquetSnapshotService.CLUSTER_METRICS, "cluster_key",
+                        "SELECT NULL::VARCHAR AS cluster_key, NULL::DECIMAL(5,3) AS booking_rate WHERE false"));
+    }
 
-        List<String> conditions = new ArrayList<>();
+    /**
+     * Pivot of a product view table: one row per product, one price column per currency.
+     * Done with conditional aggregates rather than PIVOT so products without any price keep a row
+     * and no column is created for a NULL currency.
+     */
+    private String buildProductCurrencyViewSql(String source, String condition, List<String> currencyCodes) {
+        StringBuilder sql = new StringBuilder("SELECT product_id, first(room_name) AS room_name, first(building_name) AS building_name");
+        for (String currency : currencyCodes) {
+            sql.append(", max(current_price) FILTER (WHERE currency = ").append(formatValue(currency)).append(") AS ")
+                    .append(quoteIdentifier(CURRENCY_COLUMN_PREFIX + currency));
+        }
+        sql.append(" FROM ").append(source);
+        if (condition != null) {
+            sql.append(" WHERE ").append(condition);
+        }
+        return sql.append(" GROUP BY product_id").toString();
+    }
+
+    /**
+     * One page of the multi-currency view, sorted on a currency's price inside DuckDB.
+     * Products without a price in that currency go last; product_id breaks ties so the order is total.
+     * Pass the cursor from the previous page to seek past it (keyset pagination, cost independent of depth),
+     * or null to start at the given offset.
+     *
+     * @param sortCurrency currency to sort on, or null to list by product_id
+     * @throws IllegalArgumentException if the currency has no price column
+     */
+    public List<MultiCurrencyRow> getMultiCurrencyPage(String sortCurrency, boolean descending,
+                                                       ProductPageCursor after, int offset, int limit) {
+        if (sortCurrency != null && !currencies.contains(sortCurrency)) {
+            throw new IllegalArgumentException("Unknown currency: " + sortCurrency);
+        }
         List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(PRODUCT_CURRENCY_VIEW);
+
+        String priceColumn = sortCurrency != null ? quoteIdentifier(CURRENCY_COLUMN_PREFIX + sortCurrency) : null;
+        if (after != null) {
+            sql.append(" WHERE ").append(keysetCondition(priceColumn, descending, after, parameters));
+        }
+        sql.append(" ORDER BY ");
+        if (priceColumn != null) {
+            sql.append(priceColumn).append(descending ? " DESC" : " ASC").append(" NULLS LAST, ");
+        }
+        sql.append("product_id LIMIT ? OFFSET ?");
+        parameters.add(limit);
+        parameters.add(after != null ? 0 : offset);
+
+        List<MultiCurrencyRow> rows = new ArrayList<>(limit);
+        queryRows(ProductMetrics.MULTI_CURRENCY, sql.toString(), parameters, new MultiCurrencyRow.Mapper(), rows::add);
+        return rows;
+    }
+
+    /**
+     * Rows strictly after the cursor in (price NULLS LAST, product_id) order
+     */
+    private String keysetCondition(String priceColumn, boolean descending, ProductPageCursor after,
+                                   List<Object> parameters) {
+        if (priceColumn == null) {
+            parameters.add(after.getProductId());
+            return "product_id > ?";
+        }
+        if (after.getPrice() == null) {
+            parameters.add(after.getProductId());
+            return priceColumn + " IS NULL AND product_id > ?";
+        }
+        parameters.add(after.getPrice());
+        parameters.add(after.getPrice());
+        parameters.add(after.getProductId());
+        String beyond = descending ? " < ?" : " > ?";
+        return "(" + priceColumn + beyond + " OR (" + priceColumn + " = ? AND product_id > ?) OR "
+                + priceColumn + " IS NULL)";
+    }
+
+    /**
+     * Get products with optional filters, with every column
+     */
+    public List<ProductRow> getProductsWithFiltersOptimized(ProductFilterRequest filters) {
+        return getProductsWithFiltersOptimized(filters, RoleQueryPlan.FULL);
+    }
+
+    /**
+     * Get products with optional filters and the plan's columns, served from the result cache when the same filter
+     * was already run with the same plan against the current data version.
+     * Identical requests arriving while the query runs share that one execution instead of starting their own.
+     *
+     * @throws FilterNotAllowedException if the plan does not allow one of the filters
+     */
+    public List<ProductRow> getProductsWithFiltersOptimized(ProductFilterRequest filters, RoleQueryPlan plan) {
+        return getProductsWithFiltersOptimized(filters, plan, () -> () -> { });
+    }
+
+    /**
+     * Like getProductsWithFiltersOptimized, taking a slot from runningSlot only when this call runs the query:
+     * a cached result or an identical query already in flight is served without one, so a burst of the same
+     * request holds one slot rather than one per request.
+     *
+     * @throws FilterNotAllowedException if the plan does not allow one of the filters
+     * @throws QueryRejectedException if no slot is free, or the query in flight is not done within the timeout
+     */
+    public List<ProductRow> getProductsWithFiltersOptimized(ProductFilterRequest filters, RoleQueryPlan plan,
+                                                            Supplier<ProductQueryExecutor.Permit> runningSlot) {
+        plan.checkAllowed(filters);
+        ProductFilterKey key = ProductFilterKey.of(filters, plan.getName());
+        long version = dataVersion;
+
+        List<ProductRow> cached = resultCache.get(key, version);
+        if (cached != null) {
+            return cached;
+        }
+
+        return filterQueries.execute(key, version, () -> {
+            try (ProductQueryExecutor.Permit permit = runningSlot.get()) {
+                List<ProductRow> rows = Collections.unmodifiableList(queryProducts(plan, key.toRequest()));
+                resultCache.put(key, version, rows);
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Columnar product store of the current data version, null when it is disabled or could not be built
+     */
+    public ProductStore getProductStore() {
+        return productStore;
+    }
+
+    /**
+     * Approximate heap held by the product store, 0 when it is disabled
+     */
+    public long getProductStoreBytes() {
+        ProductStore store = productStore;
+        return store != null ? store.getMemoryBytes() : 0;
+    }
+
+    /**
+     * Filtered products grouped by building from the in-memory product store of the current data version:
+     * the filter is evaluated on its bitmap and date indexes and rows go straight into the groups, without
+     * querying DuckDB or building a map per row. Timed like the filter query: index evaluation as execution
+     * and building the groups as materialization.
+     * Returns null when there is no product store, for the caller to fall back to the filter query.
+     *
+     * @throws FilterNotAllowedException if the plan does not allow one of the filters
+     * @throws IllegalArgumentException if an arrival date is not yyyy-MM-dd
+     */
+    public List<BuildingGroupResponse> getProductsGroupedByBuilding(ProductFilterRequest filters, RoleQueryPlan plan) {
+        plan.checkAllowed(filters);
+        ProductStore store = productStore;
+        if (store == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        int[] rows = store.filter(filters);
+        long filtered = System.nanoTime();
+        List<BuildingGroupResponse> groups = store.groupByBuilding(rows, plan, groupingService.poolFor(rows.length));
+        long grouped = System.nanoTime();
+        metrics.recordQuery(ProductMetrics.GROUPED_BY_BUILDING, filtered - start, grouped - filtered, rows.length);
+        metrics.recordSelectivity(ProductMetrics.GROUPED_BY_BUILDING, rows.length, store.getRowCount());
+        return groups;
+    }
+
+    /**
+     * Filtered products that changed since an earlier data version, grouped by building, from the product store.
+     * When the fingerprints of that version are no longer kept (products.delta.history) the whole result is
+     * returned, marked full. Returns null when there is no product store, like getProductsGroupedByBuilding.
+     *
+     * @throws FilterNotAllowedException if the plan does not allow one of the filters
+     * @throws IllegalArgumentException if an arrival date is not yyyy-MM-dd
+     */
+    public ProductChangesResponse getProductChangesSince(long sinceVersion, ProductFilterRequest filters,
+                                                         RoleQueryPlan plan) {
+        plan.checkAllowed(filters);
+        ProductStore store = productStore;
+        if (store == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        int[] rows = store.filter(filters);
+        ProductStore.Fingerprints older = fingerprintHistory.get(sinceVersion);
+        List<String> removed = List.of();
+        if (older != null) {
+            ProductStore.Changes changes = store.changesSince(older, rows);
+            rows = changes.getRows();
+            removed = changes.getRemovedProductIds();
+        }
+        long filtered = System.nanoTime();
+        List<BuildingGroupResponse> groups = store.groupByBuilding(rows, plan, groupingService.poolFor(rows.length));
+        long grouped = System.nanoTime();
+        metrics.recordQuery(ProductMetrics.GROUPED_BY_BUILDING_CHANGES, filtered - start, grouped - filtered,
+                rows.length);
+        return new ProductChangesResponse(store.getDataVersion(), sinceVersion, older == null, removed, groups);
+    }
+
+    /**
+     * Distinct values of each filterable column with the number of rows matching the filters on the other
+     * columns, answered from the facet index of the current data version without querying DuckDB
+     *
+     * @throws IllegalArgumentException if an arrival date is not yyyy-MM-dd
+     */
+    public FacetIndex.FacetCounts getFacetCounts(ProductFilterRequest filters) {
+        return facetIndex.count(filters);
+    }
+
+    /**
+     * Stream filtered products with every column
+     */
+    public void streamProductsWithFilters(ProductFilterRequest filters, Consumer<ProductRow> rowConsumer) {
+        streamProductsWithFilters(filters, RoleQueryPlan.FULL, rowConsumer);
+    }
+
+    /**
+     * Stream filtered products row by row in building order without materializing the result.
+     * A result that is already cached for the current data version is replayed instead.
+     *
+     * @throws FilterNotAllowedException if the plan does not allow one of the filters
+     */
+    public void streamProductsWithFilters(ProductFilterRequest filters, RoleQueryPlan plan,
+                                          Consumer<ProductRow> rowConsumer) {
+        plan.checkAllowed(filters);
+        ProductFilterKey key = ProductFilterKey.of(filters, plan.getName());
+        List<ProductRow> cached = resultCache.get(key, dataVersion);
+        if (cached != null) {
+            cached.forEach(rowConsumer);
+            return;
+        }
+
+        List<Object> parameters = new ArrayList<>();
+        String sql = buildFilterSql(plan, key.toRequest(), parameters);
+        long rows = queryRows(ProductMetrics.GROUPED_BY_BUILDING_STREAM, sql, parameters, new ProductRow.Mapper(),
+                rowConsumer);
+        metrics.recordSelectivity(ProductMetrics.GROUPED_BY_BUILDING_STREAM, rows, productRowCount);
+    }
+
+    /**
+     * Run the filter query against the product view using JdbcTemplate
+     */
+    private List<ProductRow> queryProducts(RoleQueryPlan plan, ProductFilterRequest filters) {
+        List<Object> parameters = new ArrayList<>();
+        String finalSql = buildFilterSql(plan, filters, parameters);
+
+        List<ProductRow> rows = new ArrayList<>();
+        queryRows(ProductMetrics.GROUPED_BY_BUILDING, finalSql, parameters, new ProductRow.Mapper(), rows::add);
+        metrics.recordSelectivity(ProductMetrics.GROUPED_BY_BUILDING, rows.size(), productRowCount);
+        return rows;
+    }
+
+    /**
+     * Run a query and hand each row, mapped by the typed row mapper, to the consumer, timing execution and
+     * row materialization separately for the endpoint. Returns the row count.
+     */
+    private <T> long queryRows(String endpoint, String sql, List<Object> parameters, RowMapper<T> rowMapper,
+                               Consumer<? super T> rowConsumer) {
+        long start = System.nanoTime();
+        return jdbcTemplate.query(sql, (ResultSetExtractor<Long>) resultSet -> {
+            long executed = System.nanoTime();
+            long rows = 0;
+            while (resultSet.next()) {
+                rowConsumer.accept(rowMapper.mapRow(resultSet, (int) rows));
+                rows++;
+            }
+            long materialized = System.nanoTime();
+            metrics.recordQuery(endpoint, executed - start, materialized - executed, rows);
+            if (materialized - start >= TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs)) {
+                recordSlowQuery(endpoint, sql, parameters, materialized - start, executed - start, rows);
+            }
+            if (metrics.sampled()) {
+                log.info("query endpoint={} rows={} executeMs={} materializeMs={}", endpoint, rows,
+                        (executed - start) / 1_000_000, (materialized - executed) / 1_000_000);
+            }
+            return rows;
+        }, parameters.toArray());
+    }
+
+    /**
+     * Add a query to the slow-query log, and for a sampled share of them queue an EXPLAIN ANALYZE
+     * whose profile is attached to the entry once it completes
+     */
+    private void recordSlowQuery(String endpoint, String sql, List<Object> parameters, long wallNanos,
+                                 long executeNanos, long rows) {
+        SlowQueryLog.SlowQuery query = new SlowQueryLog.SlowQuery(Instant.now(), endpoint, sql,
+                parameters.stream().map(String::valueOf).collect(Collectors.toList()),
+                wallNanos / 1_000_000, executeNanos / 1_000_000, rows, dataVersion);
+        slowQueries.add(query);
+        log.warn("slow query id={} endpoint={} wallMs={} executeMs={} rows={}", query.getId(), endpoint,
+                query.getWallTimeMs(), query.getExecuteTimeMs(), rows);
+
+        if (explainSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < explainSampleRate) {
+            String inlined = inlineParameters(sql, parameters);
+            profiler.execute(() -> {
+                try {
+                    query.setProfile(explainAnalyze(inlined));
+                } catch (Exception e) {
+                    log.debug("EXPLAIN ANALYZE failed for slow query {}: {}", query.getId(), e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * DuckDB's profile of a query, run as a plain statement (EXPLAIN cannot take bound parameters)
+     */
+    private String explainAnalyze(String sql) {
+        return jdbcTemplate.query("EXPLAIN ANALYZE " + sql, (ResultSetExtractor<String>) resultSet -> {
+            StringBuilder profile = new StringBuilder();
+            while (resultSet.next()) {
+                profile.append(resultSet.getString(2));
+            }
+            return profile.toString();
+        });
+    }
+
+    /**
+     * Replace each ? placeholder outside string literals with the SQL literal of its parameter
+     */
+    private String inlineParameters(String sql, List<Object> parameters) {
+        StringBuilder inlined = new StringBuilder(sql.length() + parameters.size() * 8);
+        Iterator<Object> values = parameters.iterator();
+        boolean inString = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                inString = !inString;
+            }
+            if (c == '?' && !inString && values.hasNext()) {
+                Object value = values.next();
+                if (value instanceof BigDecimal) {
+                    inlined.append(((BigDecimal) value).toPlainString());
+                } else {
+                    inlined.append(value instanceof Number ? value.toString() : formatValue(String.valueOf(value)));
+                }
+            } else {
+                inlined.append(c);
+            }
+        }
+        return inlined.toString();
+    }
+
+    /**
+     * SELECT list of a plan over the product view. Only the plan's columns are scanned, and
+     * the pricing expression (with the booking_rate it reads) only runs for plans that return recommendations.
+     */
+    private static String compilePlanSelect(RoleQueryPlan plan) {
+        StringJoiner columns = new StringJoiner(",\n    ", "SELECT\n    ", "\nFROM " + PRODUCT_VIEW + "\n");
+        for (String column : plan.getColumns()) {
+            if (RoleQueryPlan.RECOMMENDED_PRICE.equals(column)) {
+                columns.add(RECOMMENDED_PRICE_MACRO + "(current_price, booking_rate) AS " + RoleQueryPlan.RECOMMENDED_PRICE);
+            } else if (PRODUCT_VIEW_COLUMNS.contains(column)) {
+                columns.add(column);
+            } else {
+                throw new IllegalArgumentException("Unknown product view column in plan " + plan.getName() + ": " + column);
+            }
+        }
+        return columns.toString();
+    }
+
+    /**
+     * Build the filter query over the product view, adding the bound values to parameters
+     */
+    private String buildFilterSql(RoleQueryPlan plan, ProductFilterRequest filters, List<Object> parameters) {
+        String baseSql = PLAN_SELECTS.computeIfAbsent(plan.getName(), name -> compilePlanSelect(plan));
+
+        List<String> conditions = new ArrayList<>();
         
         // Build WHERE conditions with parameterised queries
-        addInConditionParameterised(conditions, parameters, "b.Building", filters.getBuildings());
-        addInConditionParameterised(conditions, parameters, "p.room_type", filters.getRoomTypes());
-        addInConditionParameterised(conditions, parameters, "p.\"no._of_beds\"", filters.getBeds());
-        addInConditionParameterised(conditions, parameters, "p.Grade", filters.getGrades());
-        addInConditionParameterised(conditions, parameters, "p.private_pool", filters.getPrivatePool());
+        addInConditionParameterised(conditions, parameters, "building_name", filters.getBuildings());
+        addInConditionParameterised(conditions, parameters, "room_type", filters.getRoomTypes());
+        addInConditionParameterised(conditions, parameters, "beds", filters.getBeds());
+        addInConditionParameterised(conditions, parameters, "grade", filters.getGrades());
+        addInConditionParameterised(conditions, parameters, "private_pool", filters.getPrivatePool());
         
         // Date range filters and parameterised 
         if (filters.getArrivalDateFrom() != null) {
-            conditions.add("p.arrival_date >= ?");
+            conditions.add("arrival_date >= ?");
             parameters.add(filters.getArrivalDateFrom());
         }
         if (filters.getArrivalDateTo() != null) {
-            conditions.add("p.arrival_date <= ?");
+            conditions.add("arrival_date <= ?");
             parameters.add(filters.getArrivalDateTo());
         }
         
@@ -88,29 +1041,81 @@ public class DuckDBService {
         if (!conditions.isEmpty()) {
             finalSql += " WHERE " + String.join(" AND ", conditions);
         }
-        finalSql += " ORDER BY b.Building, p.room_name";
-        
-        // Execute with parameters - THIS IS THE KEY! ✅
-        return jdbcTemplate.queryForList(finalSql, parameters.toArray());
+        finalSql += " ORDER BY building_name, room_name";
+        return finalSql;
     }
 
     /**
      * No filters version
      */
-    public List<Map<String, Object>> getProductsWithPricesAndMetrics() {
+    public List<ProductRow> getProductsWithPricesAndMetrics() {
         return getProductsWithFiltersOptimized(new ProductFilterRequest());
     }
 
     /**
-     * Helper method to build IN clauses safely
+     * read_parquet over the local snapshot of a dataset, or the given empty relation when the dataset is missing
+     */
+    private String snapshotRelation(String dataset, String emptyRelation) {
+        if (emptyRelation != null && !snapshotService.hasDataset(dataset)) {
+            return "(" + emptyRelation + ")";
+        }
+        return readParquet(dataset, formatValue(snapshotService.getDatasetGlob(dataset)), "");
+    }
+
+    /**
+     * Like snapshotRelation, but when files landed in different snapshot versions only the rows of the most
+     * recently landed file holding a key are kept, which gives a full rebuild the same upsert semantics as applyDeltas
+     */
+    private String latestLandedRelation(String dataset, String keyColumn, String emptyRelation) {
+        if (!snapshotService.hasDataset(dataset)) {
+            return "(" + emptyRelation + ")";
+        }
+        List<String> files = snapshotService.getDatasetFiles(dataset);
+        StringJoiner landed = new StringJoiner(", ");
+        Set<Long> versions = new HashSet<>();
+        for (String file : files) {
+            long version = snapshotService.getLandedVersion(file);
+            versions.add(version);
+            landed.add("(" + formatValue(file) + ", " + version + ")");
+        }
+        if (versions.size() == 1) {
+            return snapshotRelation(dataset, emptyRelation);
+        }
+        return """
+            (SELECT * EXCLUDE (filename, landed, latest) FROM (
+                SELECT d.*, f.landed, max(f.landed) OVER (PARTITION BY d.%s) AS latest
+                FROM %s d
+                JOIN (VALUES %s) f(file, landed) ON d.filename = f.file
+            ) WHERE landed = latest)""".formatted(keyColumn, readParquet(dataset, fileList(files), ", filename = true"), landed);
+    }
+
+    /**
+     * read_parquet call over a glob or file list of a dataset, reading partition keys as columns
+     * when the dataset has a Hive-partitioned layout
+     */
+    private String readParquet(String dataset, String source, String options) {
+        String hive = snapshotService.isHivePartitioned(dataset) ? ", hive_partitioning = true" : "";
+        return "read_parquet(" + source + hive + options + ")";
+    }
+
+    /**
+     * DuckDB list literal of file paths
+     */
+    private String fileList(List<String> files) {
+        return files.stream().map(this::formatValue).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Helper method to build IN clauses safely.
+     * Placeholder lists are cached per count, so equal filter shapes always produce the same SQL text
+     * and hit the pooled connection's prepared statement cache.
      */
     private void addInConditionParameterised(List<String> conditions, List<Object> parameters, 
                                             String column, List<?> values) {
         if (isNotEmpty(values)) {
             // Create placeholders: ?, ?, ?
-            String placeholders = values.stream()
-                .map(v -> "?")
-                .collect(Collectors.joining(","));
+            String placeholders = PLACEHOLDERS.computeIfAbsent(values.size(),
+                    count -> String.join(",", Collections.nCopies(count, "?")));
             
             conditions.add(column + " IN (" + placeholders + ")");
             parameters.addAll(values);  // Add actual values as parameters
@@ -127,6 +1132,10 @@ public class DuckDBService {
         return value.toString();
     }
 
+    private static String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
     /**
      * Check if list is not null and not empty
      */
@@ -0,0 +1,258 @@
+package com.Java.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Distinct values and row counts of the filterable product view columns for one data version.
+ * Each value owns a bitmap over the view's rows, so counts narrowed by a filter are word-wise ANDs and
+ * popcounts over those bitmaps instead of a query. Normally the bitmaps and the date index are the product
+ * store's own, shared rather than built again; without a store the index is built from rows numbered in
+ * arrival_date order, which turns a date range into a contiguous run of rows.
+ * Counts for a facet ignore that facet's own selection (drill-down style), so the alternatives to what is
+ * selected keep their counts.
+ */
+public class FacetIndex {
+
+    public static final String BUILDING = "building";
+    public static final String ROOM_TYPE = "room_type";
+    public static final String BEDS = "beds";
+    public static final String GRADE = "grade";
+    public static final String PRIVATE_POOL = "private_pool";
+
+    public static final List<String> FACETS = List.of(BUILDING, ROOM_TYPE, BEDS, GRADE, PRIVATE_POOL);
+
+    private final long dataVersion;
+    private final int rowCount;
+    private final int words;
+    // Facet -> value -> row bitmap, values in natural order
+    private final Map<String, SortedMap<Object, long[]>> bitmaps;
+    // New bitmap of the rows with from <= arrival_date <= to, either bound possibly null but not both
+    private final BiFunction<String, String, long[]> arrivalRange;
+
+    private FacetIndex(long dataVersion, int rowCount, Map<String, SortedMap<Object, long[]>> bitmaps,
+                       BiFunction<String, String, long[]> arrivalRange) {
+        this.dataVersion = dataVersion;
+        this.rowCount = rowCount;
+        this.words = RowBitmaps.words(rowCount);
+        this.bitmaps = bitmaps;
+        this.arrivalRange = arrivalRange;
+    }
+
+    public static Builder builder(long dataVersion) {
+        return new Builder(dataVersion);
+    }
+
+    /**
+     * Facet index over a product store's rows, reading the store's value bitmaps and date index in place
+     */
+    public static FacetIndex of(ProductStore store) {
+        Map<String, SortedMap<Object, long[]>> bitmaps = new HashMap<>();
+        for (String facet : FACETS) {
+            bitmaps.put(facet, store.valueBitmaps(facet));
+        }
+        return new FacetIndex(store.getDataVersion(), store.getRowCount(), bitmaps, store::arrivalRange);
+    }
+
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Counts per facet value for the rows matching the filter on every other facet
+     *
+     * @throws IllegalArgumentException if an arrival date is not yyyy-MM-dd
+     */
+    public FacetCounts count(DuckDBService.ProductFilterRequest filters) {
+        Map<String, long[]> selections = new HashMap<>();
+        putSelection(selections, BUILDING, filters.getBuildings());
+        putSelection(selections, ROOM_TYPE, filters.getRoomTypes());
+        putSelection(selections, BEDS, filters.getBeds());
+        putSelection(selections, GRADE, filters.getGrades());
+        putSelection(selections, PRIVATE_POOL, filters.getPrivatePool());
+        long[] dateRange = dateRange(filters.getArrivalDateFrom(), filters.getArrivalDateTo());
+
+        Map<String, List<FacetValue>> facets = new LinkedHashMap<>();
+        for (String facet : FACETS) {
+            long[] others = dateRange.clone();
+            for (Map.Entry<String, long[]> selection : selections.entrySet()) {
+                if (!selection.getKey().equals(facet)) {
+                    RowBitmaps.and(others, selection.getValue());
+                }
+            }
+            List<FacetValue> values = new ArrayList<>();
+            for (Map.Entry<Object, long[]> value : bitmaps.get(facet).entrySet()) {
+                values.add(new FacetValue(value.getKey(), RowBitmaps.andCardinality(others, value.getValue())));
+            }
+            facets.put(facet, values);
+        }
+
+        long[] all = dateRange;
+        selections.values().forEach(selection -> RowBitmaps.and(all, selection));
+        return new FacetCounts(dataVersion, RowBitmaps.cardinality(all), facets);
+    }
+
+    /**
+     * Union of the bitmaps of the selected values; no selection leaves the facet unconstrained
+     */
+    private void putSelection(Map<String, long[]> selections, String facet, List<?> selected) {
+        if (selected == null || selected.isEmpty()) {
+            return;
+        }
+        long[] union = new long[words];
+        SortedMap<Object, long[]> values = bitmaps.get(facet);
+        for (Object value : selected) {
+            long[] rows = values.get(normalize(facet, value));
+            if (rows != null) {
+                RowBitmaps.or(union, rows);
+            }
+        }
+        selections.put(facet, union);
+    }
+
+    /**
+     * Rows with from <= arrival_date <= to, every row when neither is given
+     */
+    private long[] dateRange(String from, String to) {
+        if (from == null && to == null) {
+            return RowBitmaps.all(rowCount);
+        }
+        return arrivalRange.apply(from, to);
+    }
+
+    private static int epochDay(String date) {
+        try {
+            return (int) LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid arrival date '" + date + "', expected yyyy-MM-dd", e);
+        }
+    }
+
+    /**
+     * A date range over rows numbered in arrival_date order is found by binary search. Like the SQL
+     * comparison, any date bound excludes rows without a date, which sort first.
+     */
+    private static long[] sortedArrivalRange(int[] arrivalDays, String from, String to) {
+        int start = lowerBound(arrivalDays, from == null ? Integer.MIN_VALUE + 1 : epochDay(from));
+        int end = to == null ? arrivalDays.length : lowerBound(arrivalDays, epochDay(to) + 1);
+        long[] range = new long[RowBitmaps.words(arrivalDays.length)];
+        RowBitmaps.setRange(range, start, end);
+        return range;
+    }
+
+    // First row whose arrival day is >= day
+    private static int lowerBound(int[] arrivalDays, int day) {
+        int low = 0;
+        int high = arrivalDays.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (arrivalDays[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Beds and grades are matched as ints whatever integer type the view or the request uses
+     */
+    private static Object normalize(String facet, Object value) {
+        if ((BEDS.equals(facet) || GRADE.equals(facet)) && value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return value;
+    }
+
+    /**
+     * Collects rows in arrival_date order (nulls first), as read from the product view, for an index
+     * without a product store to share
+     */
+    public static class Builder {
+        private final long dataVersion;
+        private final Map<String, Map<Object, BitSet>> values = new HashMap<>();
+        private int[] arrivalDays = new int[1024];
+        private int rowCount;
+
+        private Builder(long dataVersion) {
+            this.dataVersion = dataVersion;
+            FACETS.forEach(facet -> values.put(facet, new HashMap<>()));
+        }
+
+        public Builder add(String building, String roomType, Integer beds, Integer grade, String privatePool,
+                           LocalDate arrivalDate) {
+            int row = rowCount++;
+            if (row == arrivalDays.length) {
+                arrivalDays = Arrays.copyOf(arrivalDays, row * 2);
+            }
+            int day = arrivalDate != null ? (int) arrivalDate.toEpochDay() : Integer.MIN_VALUE;
+            if (row > 0 && day < arrivalDays[row - 1]) {
+                throw new IllegalArgumentException("Rows must be added in arrival_date order");
+            }
+            arrivalDays[row] = day;
+            mark(BUILDING, building, row);
+            mark(ROOM_TYPE, roomType, row);
+            mark(BEDS, beds, row);
+            mark(GRADE, grade, row);
+            mark(PRIVATE_POOL, privatePool, row);
+            return this;
+        }
+
+        private void mark(String facet, Object value, int row) {
+            if (value != null) {
+                values.get(facet).computeIfAbsent(value, v -> new BitSet()).set(row);
+            }
+        }
+
+        public FacetIndex build() {
+            int words = RowBitmaps.words(rowCount);
+            Map<String, SortedMap<Object, long[]>> bitmaps = new HashMap<>();
+            for (String facet : FACETS) {
+                SortedMap<Object, long[]> sorted = new TreeMap<>();
+                values.get(facet).forEach((value, bits) -> sorted.put(value, Arrays.copyOf(bits.toLongArray(), words)));
+                bitmaps.put(facet, sorted);
+            }
+            int[] days = Arrays.copyOf(arrivalDays, rowCount);
+            return new FacetIndex(dataVersion, rowCount, bitmaps, (from, to) -> sortedArrivalRange(days, from, to));
+        }
+    }
+
+    // Matching rows overall and per facet value
+    public static class FacetCounts {
+        private final long dataVersion;
+        private final long total;
+        private final Map<String, List<FacetValue>> facets;
+
+        public FacetCounts(long dataVersion, long total, Map<String, List<FacetValue>> facets) {
+            this.dataVersion = dataVersion;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        // Getters
+        public long getDataVersion() { return dataVersion; }
+        public long getTotal() { return total; }
+        public Map<String, List<FacetValue>> getFacets() { return facets; }
+    }
+
+    public static class FacetValue {
+        private final Object value;
+        private final long count;
+
+        public FacetValue(Object value, long count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        // Getters
+        public Object getValue() { return value; }
+        public long getCount() { return count; }
+    }
+}
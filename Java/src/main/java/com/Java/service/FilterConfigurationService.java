@@ -16,16 +16,68 @@ public class FilterConfigurationService {
             "reporting_user", Arrays.asList("building", "room_type", "currency")
     );
 
+    // Role whose plan serves requests that name no role: the fewest filters and no recommendations
+    public static final String LEAST_PRIVILEGED_ROLE = "reporting_user";
+
+    // Filters a role's plan allows beyond its listed ones. Pricing managers keep the private pool filter the
+    // product endpoints accepted before plans were enforced; it is not advertised in the filter list.
+    private static final Map<String, List<String>> PLAN_ONLY_FILTERS = Map.of(
+            "pricing_manager", List.of(FacetIndex.PRIVATE_POOL));
+
+    // Columns each role's queries return; only pricing managers see recommendations (booking_rate + pricing)
+    private static final List<String> LISTING_COLUMNS = List.of("building_name", "product_id", "room_name", "beds",
+            "room_type", "private_pool", "current_price", "currency");
+
+    private final Map<String, List<String>> roleColumns = Map.of(
+            "pricing_manager", RoleQueryPlan.FULL.getColumns(),
+            "regional_manager", LISTING_COLUMNS,
+            "reporting_user", LISTING_COLUMNS
+    );
+
+    // Built once, so every request for a role reuses the same plan and therefore the same SQL text
+    private final Map<String, RoleQueryPlan> queryPlans = new HashMap<>();
+
+    public FilterConfigurationService() {
+        roleFilters.forEach((role, filters) -> {
+            Set<String> allowed = new HashSet<>(filters);
+            allowed.addAll(PLAN_ONLY_FILTERS.getOrDefault(role, List.of()));
+            queryPlans.put(role, new RoleQueryPlan(role, allowed, roleColumns.get(role)));
+        });
+    }
+
     /**
-     * Get available filters for a role
+     * Get available filters for a role. Like getQueryPlan, a request without a role gets the least privileged
+     * role's filters, so only filters its plan accepts are advertised.
+     *
+     * @throws UnknownRoleException if the role is named but does not exist
      */
     public List<String> getFiltersForRole(String userRole) {
         // Handle null/empty roles explicitly
         if (userRole == null || userRole.trim().isEmpty()) {
-            userRole = "pricing_manager";
+            userRole = LEAST_PRIVILEGED_ROLE;
         }
 
-        return roleFilters.getOrDefault(userRole, roleFilters.get("pricing_manager"));
+        List<String> filters = roleFilters.get(userRole);
+        if (filters == null) {
+            throw new UnknownRoleException(userRole);
+        }
+        return filters;
+    }
+
+    /**
+     * Query plan for a role. A request without a role gets the least privileged plan, never a wider one.
+     *
+     * @throws UnknownRoleException if the role is named but does not exist
+     */
+    public RoleQueryPlan getQueryPlan(String userRole) {
+        if (userRole == null || userRole.trim().isEmpty()) {
+            return queryPlans.get(LEAST_PRIVILEGED_ROLE);
+        }
+        RoleQueryPlan plan = queryPlans.get(userRole);
+        if (plan == null) {
+            throw new UnknownRoleException(userRole);
+        }
+        return plan;
     }
 
     /**
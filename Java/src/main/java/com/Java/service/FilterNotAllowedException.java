@@ -0,0 +1,11 @@
+package com.Java.service;
+
+/**
+ * Thrown when a request filters on a column its role is not allowed to filter on
+ */
+public class FilterNotAllowedException extends RuntimeException {
+
+    public FilterNotAllowedException(String message) {
+        super(message);
+    }
+}
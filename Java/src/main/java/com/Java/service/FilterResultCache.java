@@ -0,0 +1,148 @@
+package com.Java.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU cache of query results keyed on the canonical filter.
+ * Entries expire after a TTL and are only served for the data version they were computed from.
+ */
+public class FilterResultCache<V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<ProductFilterKey, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public FilterResultCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    FilterResultCache(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        // Access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ProductFilterKey, Entry<V>> eldest) {
+                if (size() > FilterResultCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached value for the key, or null if missing, expired or computed from another data version
+     */
+    public synchronized V get(ProductFilterKey key, long dataVersion) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.dataVersion != dataVersion) {
+            entries.remove(key);
+            invalidations.increment();
+            misses.increment();
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.createdAt > ttlNanos) {
+            entries.remove(key);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(ProductFilterKey key, long dataVersion, V value) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, dataVersion, nanoClock.getAsLong()));
+    }
+
+    /**
+     * Drop every entry that was not computed from the given data version
+     */
+    public synchronized void invalidateOlderThan(long dataVersion) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().dataVersion != dataVersion) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum(),
+                size(), maxEntries);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long dataVersion;
+        private final long createdAt;
+
+        private Entry(V value, long dataVersion, long createdAt) {
+            this.value = value;
+            this.dataVersion = dataVersion;
+            this.createdAt = createdAt;
+        }
+    }
+
+    // Counters exposed for tuning the cache size
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+        private final int size;
+        private final int maxEntries;
+
+        public Stats(long hits, long misses, long evictions, long expirations, long invalidations,
+                     int size, int maxEntries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.maxEntries = maxEntries;
+        }
+
+        // Getters
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getExpirations() { return expirations; }
+        public long getInvalidations() { return invalidations; }
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.Java.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * file:// stand-in for the S3 bucket, used for offline runs and tests
+ */
+public class LocalDirectorySnapshotSource implements SnapshotSource {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalDirectorySnapshotSource.class);
+
+    // Events closer together than this are reported as one change, so a file being written triggers one sync
+    private static final long QUIET_PERIOD_MS = 200;
+
+    private final Path root;
+    private WatchService watchService;
+
+    public LocalDirectorySnapshotSource(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public List<RemoteFile> listFiles(String prefix) throws IOException {
+        Path dir = root.resolve(prefix);
+        List<RemoteFile> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                // Size + mtime plays the role of the S3 ETag
+                String version = attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+                String key = root.relativize(path).toString().replace('\\', '/');
+                files.add(new RemoteFile(key, version, attributes.size()));
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public void download(RemoteFile file, Path target) throws IOException {
+        Files.copy(root.resolve(file.getKey()), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Watches the directory tree, including directories created later, on a daemon thread
+     */
+    @Override
+    public synchronized boolean watch(Runnable onChange) throws IOException {
+        if (watchService != null || !Files.isDirectory(root)) {
+            return false;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(watchService, root);
+
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watchLoop(service, onChange), "snapshot-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private void watchLoop(WatchService service, Runnable onChange) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                // Keep draining until the tree has been quiet for a moment
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Path changed = ((Path) key.watchable()).resolve((Path) event.context());
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                            registerTree(service, changed);
+                        }
+                    }
+                    key.reset();
+                    key = service.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+                onChange.run();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed with the source
+        } catch (IOException e) {
+            log.warn("Stopped watching {}: {}", root, e.getMessage());
+        }
+    }
+
+    private static void registerTree(WatchService service, Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                path.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+}
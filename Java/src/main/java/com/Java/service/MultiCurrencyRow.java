@@ -0,0 +1,101 @@
+package com.Java.service;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One row of the multi-currency view: a product and its price in each currency, null where it has none
+ */
+public class MultiCurrencyRow {
+
+    private final String productId;
+    private final String roomName;
+    private final String buildingName;
+    private final Map<String, BigDecimal> prices;
+
+    public MultiCurrencyRow(String productId, String roomName, String buildingName, Map<String, BigDecimal> prices) {
+        this.productId = productId;
+        this.roomName = roomName;
+        this.buildingName = buildingName;
+        this.prices = prices;
+    }
+
+    /**
+     * Price in a currency, null when the product has none in it
+     */
+    public BigDecimal getPrice(String currency) {
+        return prices.get(currency);
+    }
+
+    // Getters
+    public String getProductId() { return productId; }
+    public String getRoomName() { return roomName; }
+    public String getBuildingName() { return buildingName; }
+    public Map<String, BigDecimal> getPrices() { return prices; }
+
+    @Override
+    public String toString() {
+        return "MultiCurrencyRow{productId=" + productId + ", roomName=" + roomName + ", buildingName=" + buildingName
+                + ", prices=" + prices + "}";
+    }
+
+    /**
+     * Maps the rows of one page by column index, the currency columns (price_XXX) found from the result set
+     * metadata on the first row. Only the prices present go into a row's map. Not thread-safe; one per query.
+     */
+    static class Mapper implements RowMapper<MultiCurrencyRow> {
+        private int productId;
+        private int roomName;
+        private int buildingName;
+        private List<String> currencies;
+        private int[] priceColumns;
+
+        @Override
+        public MultiCurrencyRow mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+            if (currencies == null) {
+                resolveColumns(resultSet.getMetaData());
+            }
+            Map<String, BigDecimal> prices = new LinkedHashMap<>(currencies.size() * 2);
+            for (int i = 0; i < priceColumns.length; i++) {
+                BigDecimal price = resultSet.getBigDecimal(priceColumns[i]);
+                if (price != null) {
+                    prices.put(currencies.get(i), price);
+                }
+            }
+            return new MultiCurrencyRow(resultSet.getString(productId), resultSet.getString(roomName),
+                    resultSet.getString(buildingName), prices);
+        }
+
+        private void resolveColumns(ResultSetMetaData metaData) throws SQLException {
+            List<String> found = new ArrayList<>();
+            List<Integer> columns = new ArrayList<>();
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                String label = metaData.getColumnLabel(column);
+                switch (label) {
+                    case "product_id" -> productId = column;
+                    case "room_name" -> roomName = column;
+                    case "building_name" -> buildingName = column;
+                    default -> {
+                        if (label.startsWith(DuckDBService.CURRENCY_COLUMN_PREFIX)) {
+                            found.add(label.substring(DuckDBService.CURRENCY_COLUMN_PREFIX.length()));
+                            columns.add(column);
+                        }
+                    }
+                }
+            }
+            if (productId == 0 || roomName == 0 || buildingName == 0) {
+                throw new SQLException("Multi-currency view lacks product_id, room_name or building_name");
+            }
+            priceColumns = columns.stream().mapToInt(Integer::intValue).toArray();
+            currencies = found;
+        }
+    }
+}
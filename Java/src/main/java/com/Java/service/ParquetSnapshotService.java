@@ -0,0 +1,321 @@
+package com.Java.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a local copy of the ETL Parquet output so queries never read S3 directly.
+ * Files are synced at startup and on a schedule; a file is only downloaded when its ETag/version changed.
+ * Each file remembers the snapshot version it landed in: when several files hold rows for the same key,
+ * the most recently landed one wins, which is what lets new price files be applied as deltas.
+ */
+@Service
+public class ParquetSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(ParquetSnapshotService.class);
+
+    public static final String PRODUCTS = "products";
+    public static final String BUILDINGS = "buildings";
+    public static final String PRICES = "prices";
+    public static final String CLUSTER_METRICS = "cluster_metrics";
+
+    /**
+     * Dataset name -> prefix in the bucket (and in the local snapshot directory)
+     */
+    public static final Map<String, String> DATASET_PREFIXES;
+
+    static {
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        prefixes.put(PRODUCTS, "clustering/clustered_products");
+        prefixes.put(BUILDINGS, "buildings");
+        prefixes.put(PRICES, "prices");
+        prefixes.put(CLUSTER_METRICS, "clustering/cluster_metrics");
+        DATASET_PREFIXES = Collections.unmodifiableMap(prefixes);
+    }
+
+    private static final String MANIFEST_FILE = "snapshot-manifest.json";
+
+    @Value("${snapshot.source-uri:s3://${aws.s3.bucket-name}}")
+    private String sourceUri;
+
+    @Value("${snapshot.local-dir:${java.io.tmpdir}/hotel-pricing-snapshot}")
+    private String localDir;
+
+    @Value("${aws.s3.region:eu-north-1}")
+    private String region;
+
+    // Sync as soon as a file:// source changes instead of waiting for the schedule
+    @Value("${snapshot.watch:true}")
+    private boolean watch;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Path localRoot;
+    private SnapshotSource source;
+    // Replaced as a whole once a sync has fetched every dataset, never changed in place
+    private volatile Manifest manifest;
+
+    @PostConstruct
+    public void init() {
+        try {
+            localRoot = Paths.get(localDir).toAbsolutePath();
+            Files.createDirectories(localRoot);
+            manifest = loadManifest();
+            source = createSource(sourceUri);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to initialize Parquet snapshot", e);
+        }
+        refresh();
+        if (watch) {
+            try {
+                if (source.watch(this::refresh)) {
+                    log.info("Watching {} for new snapshot files", sourceUri);
+                }
+            } catch (IOException e) {
+                log.warn("Cannot watch {}, relying on the schedule: {}", sourceUri, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    /**
+     * Scheduled sync. Failures keep the last good snapshot in place.
+     */
+    @Scheduled(initialDelayString = "${snapshot.refresh-interval-ms:300000}",
+            fixedDelayString = "${snapshot.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            Set<String> changed = sync();
+            if (!changed.isEmpty()) {
+                log.info("Snapshot updated to version {}, changed datasets: {}", manifest.getVersion(), changed);
+            }
+        } catch (Exception e) {
+            log.warn("Snapshot sync from {} failed, serving version {}: {}", sourceUri, getVersion(), e.getMessage());
+        }
+    }
+
+    /**
+     * Sync all datasets from the source and return the names of the ones that changed.
+     * Changes are staged in a copy of the manifest that replaces it only once every dataset has synced, so a
+     * failed download leaves the files fetched before it unrecorded and the next sync reports them again.
+     */
+    public synchronized Set<String> sync() throws IOException {
+        Manifest staged = manifest.copy();
+        long nextVersion = staged.getVersion() + 1;
+        Set<String> changedDatasets = new LinkedHashSet<>();
+        Set<String> rewrittenDatasets = new LinkedHashSet<>();
+        Map<String, List<String>> addedFiles = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> dataset : DATASET_PREFIXES.entrySet()) {
+            String prefix = dataset.getValue() + "/";
+            Set<String> remoteKeys = new HashSet<>();
+
+            for (SnapshotSource.RemoteFile file : source.listFiles(prefix)) {
+                if (!file.getKey().endsWith(".parquet")) {
+                    continue; // _SUCCESS markers, Glue temp files, ...
+                }
+                remoteKeys.add(file.getKey());
+
+                Path target = localRoot.resolve(file.getKey());
+                if (file.getVersion().equals(staged.getFiles().get(file.getKey())) && Files.exists(target)) {
+                    continue; // unchanged, never fetched again
+                }
+
+                Files.createDirectories(target.getParent());
+                Path temp = target.resolveSibling(target.getFileName() + ".part");
+                source.download(file, temp);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (staged.getFiles().put(file.getKey(), file.getVersion()) == null) {
+                    addedFiles.computeIfAbsent(dataset.getKey(), name -> new ArrayList<>()).add(localPath(file.getKey()));
+                } else {
+                    rewrittenDatasets.add(dataset.getKey());
+                }
+                staged.getLandedVersions().put(file.getKey(), nextVersion);
+                changedDatasets.add(dataset.getKey());
+            }
+
+            // Files removed from the source are removed locally as well
+            Iterator<String> localKeys = staged.getFiles().keySet().iterator();
+            while (localKeys.hasNext()) {
+                String key = localKeys.next();
+                if (key.startsWith(prefix) && !remoteKeys.contains(key)) {
+                    Files.deleteIfExists(localRoot.resolve(key));
+                    localKeys.remove();
+                    staged.getLandedVersions().remove(key);
+                    changedDatasets.add(dataset.getKey());
+                    rewrittenDatasets.add(dataset.getKey());
+                }
+            }
+        }
+
+        if (!changedDatasets.isEmpty()) {
+            staged.setVersion(nextVersion);
+            saveManifest(staged);
+            manifest = staged;
+            eventPublisher.publishEvent(new SnapshotUpdatedEvent(nextVersion, changedDatasets, rewrittenDatasets, addedFiles));
+        }
+        return changedDatasets;
+    }
+
+    /**
+     * Current snapshot version, incremented on every sync that changed something
+     */
+    public long getVersion() {
+        return manifest != null ? manifest.getVersion() : 0;
+    }
+
+    /**
+     * The local files with their source versions and the snapshot versions they landed in. Equal keys mean
+     * the same snapshot content, whatever the version counter says (it restarts when the local directory is lost).
+     */
+    public synchronized String getContentKey() {
+        StringBuilder key = new StringBuilder();
+        new TreeMap<>(manifest.getFiles()).forEach((file, version) -> key.append(file).append('=').append(version)
+                .append('@').append(landedVersion(file)).append('\n'));
+        return key.toString();
+    }
+
+    /**
+     * Local glob for a dataset, ready to be used inside read_parquet('...').
+     * Recursive, so Hive-partitioned layouts (building=.../arrival_month=.../part.parquet) are picked up too.
+     */
+    public String getDatasetGlob(String dataset) {
+        String prefix = DATASET_PREFIXES.get(dataset);
+        if (prefix == null) {
+            throw new IllegalArgumentException("Unknown dataset: " + dataset);
+        }
+        return localRoot.resolve(prefix).resolve("**").resolve("*.parquet").toString().replace('\\', '/');
+    }
+
+    /**
+     * Local paths of a dataset's files, oldest landed first
+     */
+    public List<String> getDatasetFiles(String dataset) {
+        String prefix = DATASET_PREFIXES.get(dataset) + "/";
+        return manifest.getFiles().keySet().stream()
+                .filter(key -> key.startsWith(prefix))
+                .sorted(Comparator.comparingLong(this::landedVersion).thenComparing(Comparator.naturalOrder()))
+                .map(this::localPath)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Snapshot version a local file landed in, 0 for files synced before landing versions were recorded
+     */
+    public long getLandedVersion(String localPath) {
+        String key = localRoot.relativize(Paths.get(localPath)).toString().replace('\\', '/');
+        return landedVersion(key);
+    }
+
+    private long landedVersion(String key) {
+        return manifest.getLandedVersions().getOrDefault(key, 0L);
+    }
+
+    private String localPath(String key) {
+        return localRoot.resolve(key).toString().replace('\\', '/');
+    }
+
+    /**
+     * Whether every file of the dataset sits below key=value directories, so the keys can be read as columns
+     * and filters on them prune whole directories
+     */
+    public boolean isHivePartitioned(String dataset) {
+        String prefix = DATASET_PREFIXES.get(dataset) + "/";
+        List<String> keys = manifest.getFiles().keySet().stream()
+                .filter(key -> key.startsWith(prefix))
+                .collect(Collectors.toList());
+        return !keys.isEmpty() && keys.stream().allMatch(key -> key.substring(prefix.length()).matches("([^/]+=[^/]*/)+[^/]+"));
+    }
+
+    /**
+     * Whether at least one file of the dataset is present locally
+     */
+    public boolean hasDataset(String dataset) {
+        String prefix = DATASET_PREFIXES.get(dataset) + "/";
+        return manifest.getFiles().keySet().stream().anyMatch(key -> key.startsWith(prefix));
+    }
+
+    public Path getLocalRoot() {
+        return localRoot;
+    }
+
+    private SnapshotSource createSource(String uri) {
+        URI parsed = URI.create(uri);
+        if ("file".equals(parsed.getScheme())) {
+            return new LocalDirectorySnapshotSource(Paths.get(parsed));
+        }
+        if ("s3".equals(parsed.getScheme())) {
+            String prefix = parsed.getPath() == null ? "" : parsed.getPath().replaceFirst("^/", "");
+            return new S3SnapshotSource(parsed.getHost(), prefix, region);
+        }
+        throw new IllegalArgumentException("Unsupported snapshot source: " + uri);
+    }
+
+    private Manifest loadManifest() throws IOException {
+        Path file = localRoot.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return new Manifest();
+        }
+        return objectMapper.readValue(file.toFile(), Manifest.class);
+    }
+
+    private void saveManifest(Manifest manifest) throws IOException {
+        Path file = localRoot.resolve(MANIFEST_FILE);
+        Path temp = file.resolveSibling(MANIFEST_FILE + ".part");
+        objectMapper.writeValue(temp.toFile(), manifest);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Persisted list of synced files, so restarts do not re-download anything
+    public static class Manifest {
+        private long version;
+        private Map<String, String> files = new ConcurrentHashMap<>();
+        private Map<String, Long> landedVersions = new ConcurrentHashMap<>();
+
+        /**
+         * Independent copy to stage a sync in
+         */
+        Manifest copy() {
+            Manifest copy = new Manifest();
+            copy.setVersion(version);
+            copy.setFiles(files);
+            copy.setLandedVersions(landedVersions);
+            return copy;
+        }
+
+        // Getters and setters
+        public long getVersion() { return version; }
+        public void setVersion(long version) { this.version = version; }
+        public Map<String, String> getFiles() { return files; }
+        public void setFiles(Map<String, String> files) { this.files = new ConcurrentHashMap<>(files); }
+        public Map<String, Long> getLandedVersions() { return landedVersions; }
+        public void setLandedVersions(Map<String, Long> landedVersions) { this.landedVersions = new ConcurrentHashMap<>(landedVersions); }
+    }
+}
@@ -0,0 +1,45 @@
+package com.Java.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Computes recommended prices from current prices and demand.
+ * Works on primitive columns: prices in minor units (cents) and booking rates as doubles, NaN meaning unknown.
+ * The same rule can be rendered as a SQL expression so the query engine applies it inside the plan.
+ */
+public interface PricingEngine {
+
+    /**
+     * Decimal places of the minor unit, matching the DECIMAL(10,2) prices in the snapshot
+     */
+    int MINOR_UNIT_SCALE = 2;
+
+    /**
+     * Recommended price in minor units
+     */
+    long recommend(long priceMinor, double bookingRate);
+
+    /**
+     * Reprice the first length entries of the input columns into recommendedMinor, without allocating
+     */
+    default void recommend(long[] pricesMinor, double[] bookingRates, long[] recommendedMinor, int length) {
+        for (int i = 0; i < length; i++) {
+            recommendedMinor[i] = recommend(pricesMinor[i], bookingRates[i]);
+        }
+    }
+
+    /**
+     * SQL expression with the same result as {@link #recommend(long, double)}, as a DECIMAL with two places.
+     * A NULL price counts as zero and a NULL booking rate as unknown.
+     */
+    String toSqlExpression(String priceColumn, String bookingRateColumn);
+
+    static long toMinorUnits(BigDecimal price) {
+        return price.setScale(MINOR_UNIT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromMinorUnits(long priceMinor) {
+        return BigDecimal.valueOf(priceMinor, MINOR_UNIT_SCALE);
+    }
+}
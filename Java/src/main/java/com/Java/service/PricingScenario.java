@@ -0,0 +1,22 @@
+package com.Java.service;
+
+/**
+ * What-if pricing parameters, in the format of the pricing.* properties. Anything left null keeps the
+ * live configuration; filters narrow the portfolio, all products when null.
+ */
+public class PricingScenario {
+    private String demandTiers;
+    private String baseMultiplier;
+    private Double defaultBookingRate;
+    private DuckDBService.ProductFilterRequest filters;
+
+    // Getters and setters
+    public String getDemandTiers() { return demandTiers; }
+    public void setDemandTiers(String demandTiers) { this.demandTiers = demandTiers; }
+    public String getBaseMultiplier() { return baseMultiplier; }
+    public void setBaseMultiplier(String baseMultiplier) { this.baseMultiplier = baseMultiplier; }
+    public Double getDefaultBookingRate() { return defaultBookingRate; }
+    public void setDefaultBookingRate(Double defaultBookingRate) { this.defaultBookingRate = defaultBookingRate; }
+    public DuckDBService.ProductFilterRequest getFilters() { return filters; }
+    public void setFilters(DuckDBService.ProductFilterRequest filters) { this.filters = filters; }
+}
@@ -0,0 +1,409 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import com.Java.dto.ProductChangesResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes product changes to open dashboards over Server-Sent Events as new data versions are ingested.
+ * After each version every subscriber gets, for its filters and role, one "building" event per building with
+ * the changed products, a "removed" event with the product ids to drop, and a "version" event (id = version)
+ * closing the batch. When the changes cannot be worked out a "reset" event asks the client to refetch.
+ *
+ * Connections hold no thread: a small fixed pool of sender threads writes to them. Each subscriber has at most
+ * one send in progress and remembers only the last version it was sent, so a slow client is never queued
+ * more than one batch: versions landing while it is still being written to are coalesced into a single batch
+ * since its last version. Subscribers with the same filters share the batch, computed and serialized once.
+ * A write blocked longer than the send timeout (a client that stopped reading) drops the subscriber, and the
+ * pool gets a thread in place of the stuck one until that write returns, so stalled clients cannot hold up the
+ * others.
+ */
+@Service
+public class ProductChangeStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeStream.class);
+
+    @Value("${products.stream.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${products.stream.max-clients:10000}")
+    private int maxClients;
+
+    @Value("${products.stream.heartbeat-seconds:30}")
+    private long heartbeatSeconds;
+
+    @Value("${products.stream.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    @Value("${products.query.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Autowired
+    private DuckDBService duckDBService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductMetrics metrics;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Batches by the data version current when they were asked for, then by since version and filter key.
+    // Older versions are dropped as newer ones are asked for; a send still on an older version only ever
+    // reads and writes that version's batches.
+    private final ConcurrentSkipListMap<Long, Map<String, CompletableFuture<Batch>>> batches = new ConcurrentSkipListMap<>();
+    private ThreadPoolExecutor senders;
+    private ScheduledExecutorService heartbeats;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "product-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (heartbeatSeconds > 0) {
+            heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+        if (sendTimeoutMs > 0) {
+            long period = Math.max(10, sendTimeoutMs / 4);
+            heartbeats.scheduleWithFixedDelay(this::dropStalledSends, period, period, TimeUnit.MILLISECONDS);
+        }
+        Gauge.builder("products.stream.clients", subscribers, Set::size)
+                .description("Open product change streams")
+                .register(metrics.getMeterRegistry());
+        log.info("Product change streams: up to {} clients on {} sender threads", maxClients, senderThreads);
+    }
+
+    @PreDestroy
+    public void close() {
+        heartbeats.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Start pushing the changes after sinceVersion to an emitter. Changes already made since then are sent
+     * straight away.
+     *
+     * @throws QueryRejectedException if products.stream.max-clients streams are already open
+     */
+    public void subscribe(SseEmitter emitter, DuckDBService.ProductFilterRequest filters, RoleQueryPlan plan,
+                          long sinceVersion) {
+        if (subscribers.size() >= maxClients) {
+            throw new QueryRejectedException(subscribers.size() + " product change streams open", retryAfterSeconds);
+        }
+        Subscriber subscriber = new Subscriber(emitter, filters, plan, sinceVersion);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Runs after DuckDBService has moved to the new version
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onSnapshotUpdated(SnapshotUpdatedEvent event) {
+        publish();
+    }
+
+    /**
+     * Schedule a send to every subscriber that is behind the current data version
+     */
+    public void publish() {
+        long version = duckDBService.getDataVersion();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isBehind(version)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and finds dead ones. A send also delivers any version the
+     * subscriber missed, so a lost update event costs at most one heartbeat interval.
+     */
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Drop subscribers whose write has been blocked past the send timeout. The sender thread is interrupted,
+     * and until its write returns the pool has one more thread, so the other subscribers keep being served.
+     */
+    private void dropStalledSends() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (Subscriber subscriber : subscribers) {
+            synchronized (subscriber) {
+                if (subscriber.sender == null || subscriber.stalled || now - subscriber.sendStarted < timeoutNanos) {
+                    continue;
+                }
+                subscriber.stalled = true;
+                resizeSenders(1);
+                subscriber.sender.interrupt();
+            }
+            log.debug("Dropping product change stream blocked on a write for over {} ms", sendTimeoutMs);
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(new IOException("Send timed out after " + sendTimeoutMs + " ms"));
+        }
+    }
+
+    private void resizeSenders(int delta) {
+        synchronized (senders) {
+            if (delta > 0) {
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            } else {
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        synchronized (subscriber) {
+            subscriber.sender = Thread.currentThread();
+            subscriber.sendStarted = System.nanoTime();
+        }
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            synchronized (subscriber) {
+                subscriber.sender = null;
+                if (subscriber.stalled) {
+                    subscriber.stalled = false;
+                    resizeSenders(-1);
+                    Thread.interrupted(); // clear our own interrupt before the thread moves on
+                }
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        synchronized (subscriber) {
+            if (subscriber.scheduled) {
+                return; // the running send picks up the latest version when it is done
+            }
+            subscriber.scheduled = true;
+        }
+        senders.execute(() -> drain(subscriber));
+    }
+
+    /**
+     * Send batches until the subscriber has the current version, one batch per pass whatever the number of
+     * versions it is behind
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            if (subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                send(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+            while (true) {
+                long since;
+                synchronized (subscriber) {
+                    if (!subscribers.contains(subscriber) || !subscriber.isBehind(duckDBService.getDataVersion())) {
+                        subscriber.scheduled = false;
+                        return;
+                    }
+                    since = subscriber.sentVersion;
+                }
+                Batch batch = batchFor(subscriber, since, duckDBService.getDataVersion());
+                for (Event event : batch.events) {
+                    send(subscriber, event.toBuilder());
+                }
+                synchronized (subscriber) {
+                    subscriber.sentVersion = batch.version;
+                }
+            }
+        } catch (IOException | IllegalStateException | UncheckedIOException e) {
+            // Client went away, or the emitter already completed
+            log.debug("Dropping product change stream: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } catch (IllegalArgumentException e) {
+            log.debug("Closing product change stream with invalid filters: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } catch (RuntimeException e) {
+            log.error("Error sending product changes", e);
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * The shared batch for the subscriber's filters since a version. The first sender to ask builds it outside
+     * the map, so building one batch never blocks senders after another; later ones wait for it to be built.
+     * A batch that fails to build is not kept, so the next send tries again.
+     */
+    private Batch batchFor(Subscriber subscriber, long since, long version) {
+        batches.headMap(version).clear();
+        Map<String, CompletableFuture<Batch>> versionBatches =
+                batches.computeIfAbsent(version, key -> new ConcurrentHashMap<>());
+        String key = since + ":" + subscriber.filterKey;
+        CompletableFuture<Batch> batch = new CompletableFuture<>();
+        CompletableFuture<Batch> existing = versionBatches.putIfAbsent(key, batch);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            Batch built = buildBatch(subscriber, since, version);
+            batch.complete(built);
+            return built;
+        } catch (RuntimeException e) {
+            versionBatches.remove(key, batch);
+            batch.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * The changes and the version they are tagged with come from the same product store, which may already be
+     * newer than the version the batch was asked for
+     */
+    private Batch buildBatch(Subscriber subscriber, long since, long requestedVersion) {
+        ProductChangesResponse changes = duckDBService.getProductChangesSince(since, subscriber.filters,
+                subscriber.plan);
+        long version = changes != null ? changes.getVersion() : requestedVersion;
+        String versionJson = "{\"version\":" + version + ",\"sinceVersion\":" + since + "}";
+        if (changes == null || changes.isFull()) {
+            return new Batch(version, List.of(new Event("reset", version, versionJson)));
+        }
+        List<Event> events = new ArrayList<>(changes.getGroups().size() + 2);
+        for (BuildingGroupResponse group : changes.getGroups()) {
+            events.add(new Event("building", null, toJson(group)));
+        }
+        if (!changes.getRemovedProductIds().isEmpty()) {
+            events.add(new Event("removed", null, toJson(changes.getRemovedProductIds())));
+        }
+        events.add(new Event("version", version, versionJson));
+        return new Batch(version, events);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize product changes", e);
+        }
+    }
+
+    /**
+     * One open stream. scheduled, sentVersion and the state of the write in progress are guarded by the
+     * subscriber's monitor.
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final DuckDBService.ProductFilterRequest filters;
+        private final RoleQueryPlan plan;
+        private final ProductFilterKey filterKey;
+        private long sentVersion;
+        private boolean scheduled;
+        // Thread blocked in a write to this stream and when the write began, null when none is in progress
+        private Thread sender;
+        private long sendStarted;
+        // The write in progress timed out and the pool got a thread in its place
+        private boolean stalled;
+        private volatile boolean heartbeatDue;
+
+        Subscriber(SseEmitter emitter, DuckDBService.ProductFilterRequest filters, RoleQueryPlan plan,
+                   long sentVersion) {
+            this.emitter = emitter;
+            this.filters = filters;
+            this.plan = plan;
+            this.filterKey = ProductFilterKey.of(filters, plan.getName());
+            this.sentVersion = sentVersion;
+        }
+
+        synchronized boolean isBehind(long version) {
+            return sentVersion < version;
+        }
+    }
+
+    /**
+     * The events sent for the changes up to a data version
+     */
+    private static final class Batch {
+        private final long version;
+        private final List<Event> events;
+
+        Batch(long version, List<Event> events) {
+            this.version = version;
+            this.events = events;
+        }
+    }
+
+    /**
+     * A serialized event shared by every subscriber of a batch; SseEventBuilder is single-use, so one is
+     * built per send
+     */
+    private static final class Event {
+        private final String name;
+        private final Long id;
+        private final String json;
+
+        Event(String name, Long id, String json) {
+            this.name = name;
+            this.id = id;
+            this.json = json;
+        }
+
+        SseEmitter.SseEventBuilder toBuilder() {
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().name(name).data(json);
+            return id != null ? builder.id(String.valueOf(id)) : builder;
+        }
+    }
+}
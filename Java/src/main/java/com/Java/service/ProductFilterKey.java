@@ -0,0 +1,137 @@
+package com.Java.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Canonical form of a ProductFilterRequest: lists are de-duplicated and sorted, null and empty mean the same thing.
+ * Two requests that select the same rows with the same query plan produce equal keys.
+ */
+public final class ProductFilterKey {
+
+    private final List<String> buildings;
+    private final List<String> roomTypes;
+    private final List<Integer> beds;
+    private final List<Integer> grades;
+    private final List<String> privatePool;
+    private final String arrivalDateFrom;
+    private final String arrivalDateTo;
+    // Name of the RoleQueryPlan, as plans return different columns for the same rows
+    private final String plan;
+    private final int hashCode;
+
+    private ProductFilterKey(DuckDBService.ProductFilterRequest request, String plan) {
+        this.buildings = canonical(request.getBuildings());
+        this.roomTypes = canonical(request.getRoomTypes());
+        this.beds = canonical(request.getBeds());
+        this.grades = canonical(request.getGrades());
+        this.privatePool = canonical(request.getPrivatePool());
+        this.arrivalDateFrom = canonical(request.getArrivalDateFrom());
+        this.arrivalDateTo = canonical(request.getArrivalDateTo());
+        this.plan = plan;
+        this.hashCode = Objects.hash(buildings, roomTypes, beds, grades, privatePool, arrivalDateFrom, arrivalDateTo, plan);
+    }
+
+    public static ProductFilterKey of(DuckDBService.ProductFilterRequest request) {
+        return of(request, RoleQueryPlan.FULL.getName());
+    }
+
+    public static ProductFilterKey of(DuckDBService.ProductFilterRequest request, String plan) {
+        return new ProductFilterKey(request != null ? request : new DuckDBService.ProductFilterRequest(), plan);
+    }
+
+    /**
+     * Filter request equivalent to this key, with normalized lists (empty lists become null)
+     */
+    public DuckDBService.ProductFilterRequest toRequest() {
+        DuckDBService.ProductFilterRequest request = new DuckDBService.ProductFilterRequest();
+        request.setBuildings(buildings.isEmpty() ? null : buildings);
+        request.setRoomTypes(roomTypes.isEmpty() ? null : roomTypes);
+        request.setBeds(beds.isEmpty() ? null : beds);
+        request.setGrades(grades.isEmpty() ? null : grades);
+        request.setPrivatePool(privatePool.isEmpty() ? null : privatePool);
+        request.setArrivalDateFrom(arrivalDateFrom);
+        request.setArrivalDateTo(arrivalDateTo);
+        return request;
+    }
+
+    /**
+     * Text that identifies this key and stays the same across JVMs and releases, unlike hashCode(), for digests
+     * such as response ETags. Every value is length-prefixed, so no choice of separator in a value can make two
+     * keys read the same; null and empty lists both read as an empty list, as they do for equals().
+     */
+    public String canonicalText() {
+        StringBuilder text = new StringBuilder();
+        appendList(text, buildings);
+        appendList(text, roomTypes);
+        appendList(text, beds);
+        appendList(text, grades);
+        appendList(text, privatePool);
+        append(text, arrivalDateFrom);
+        append(text, arrivalDateTo);
+        append(text, plan);
+        return text.toString();
+    }
+
+    private static void appendList(StringBuilder text, List<?> values) {
+        text.append('[').append(values.size()).append(']');
+        for (Object value : values) {
+            append(text, String.valueOf(value));
+        }
+    }
+
+    private static void append(StringBuilder text, String value) {
+        if (value == null) {
+            text.append("-;");
+        } else {
+            text.append(value.length()).append(':').append(value).append(';');
+        }
+    }
+
+    private static <T extends Comparable<T>> List<T> canonical(List<T> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        TreeSet<T> sorted = new TreeSet<>();
+        for (T value : values) {
+            if (value != null) {
+                sorted.add(value);
+            }
+        }
+        return List.copyOf(sorted);
+    }
+
+    private static String canonical(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProductFilterKey)) return false;
+        ProductFilterKey other = (ProductFilterKey) o;
+        return hashCode == other.hashCode
+                && buildings.equals(other.buildings)
+                && roomTypes.equals(other.roomTypes)
+                && beds.equals(other.beds)
+                && grades.equals(other.grades)
+                && privatePool.equals(other.privatePool)
+                && Objects.equals(arrivalDateFrom, other.arrivalDateFrom)
+                && Objects.equals(arrivalDateTo, other.arrivalDateTo)
+                && plan.equals(other.plan);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductFilterKey{buildings=" + buildings + ", roomTypes=" + roomTypes + ", beds=" + beds
+                + ", grades=" + grades + ", privatePool=" + privatePool + ", arrivalDateFrom=" + arrivalDateFrom
+                + ", arrivalDateTo=" + arrivalDateTo + ", plan=" + plan + "}";
+    }
+}
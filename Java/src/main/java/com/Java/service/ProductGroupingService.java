@@ -0,0 +1,147 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+@Service
+public class ProductGroupingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductGroupingService.class);
+
+    // Rows per fork-join leaf at least, so task overhead stays small against the work
+    private static final int MIN_LEAF_SIZE = 2048;
+
+    @Value("${products.grouping.parallel-threshold:20000}")
+    private int parallelThreshold;
+
+    @Value("${products.grouping.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        if (parallelThreshold > 0) {
+            // Own pool rather than the common one, so grouping cannot starve other parallel work in the JVM
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            this.pool = new ForkJoinPool(threads);
+            log.info("Results of {}+ rows grouped on {} fork-join threads", parallelThreshold, threads);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Fork-join pool to group rowCount rows on, or null when they are few enough for the sequential path
+     * (or parallel grouping is off, products.grouping.parallel-threshold: 0)
+     */
+    public ForkJoinPool poolFor(int rowCount) {
+        return pool != null && rowCount >= parallelThreshold ? pool : null;
+    }
+
+    /**
+     * Size of the leaf tasks for rowCount rows: about four per thread for load balancing
+     */
+    public static int leafSize(ForkJoinPool pool, int rowCount) {
+        return Math.max(MIN_LEAF_SIZE, rowCount / (pool.getParallelism() * 4));
+    }
+
+    /**
+     * Group product rows by building, buildings sorted by name.
+     * Large results are split into ranges grouped on the fork-join pool, each into its own map, and the maps
+     * merged pairwise in range order, so rows keep their order within a building and no map is shared.
+     */
+    public List<BuildingGroupResponse> groupProductsByBuilding(List<ProductRow> data) {
+        log.debug("Grouping {} records", data.size());
+        ForkJoinPool forkJoinPool = poolFor(data.size());
+        if (forkJoinPool != null) {
+            TreeMap<String, List<BuildingGroupResponse.ProductSummary>> groups = forkJoinPool.invoke(
+                    new GroupTask(data, 0, data.size(), leafSize(forkJoinPool, data.size())));
+            List<BuildingGroupResponse> response = new ArrayList<>(groups.size());
+            groups.forEach((buildingName, products) -> response.add(new BuildingGroupResponse(buildingName, products)));
+            return response;
+        }
+
+        Map<String, List<ProductRow>> groupedByBuilding = data.stream()
+                .collect(Collectors.groupingBy(ProductRow::getBuildingName));
+
+        return groupedByBuilding.entrySet().stream()
+                .map(entry -> {
+                    String buildingName = entry.getKey();
+                    List<BuildingGroupResponse.ProductSummary> products = entry.getValue().stream()
+                            .map(this::mapToProductSummary)
+                            .collect(Collectors.toList());
+
+                    return new BuildingGroupResponse(buildingName, products);
+                })
+                .sorted(Comparator.comparing(BuildingGroupResponse::getBuildingName))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Recommended prices come precomputed from the query (see PricingEngine) and rows are already typed,
+     * so this only copies fields. Rows from a query plan without recommendations leave the recommended price null.
+     */
+    public BuildingGroupResponse.ProductSummary mapToProductSummary(ProductRow row) {
+        return row.toProductSummary();
+    }
+
+    /**
+     * Groups rows [from, to) by building into summaries
+     */
+    private class GroupTask extends RecursiveTask<TreeMap<String, List<BuildingGroupResponse.ProductSummary>>> {
+        private final List<ProductRow> rows;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        GroupTask(List<ProductRow> rows, int from, int to, int leafSize) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected TreeMap<String, List<BuildingGroupResponse.ProductSummary>> compute() {
+            if (to - from <= leafSize) {
+                TreeMap<String, List<BuildingGroupResponse.ProductSummary>> groups = new TreeMap<>();
+                for (ProductRow row : rows.subList(from, to)) {
+                    groups.computeIfAbsent(row.getBuildingName(), building -> new ArrayList<>())
+                            .add(mapToProductSummary(row));
+                }
+                return groups;
+            }
+            int middle = (from + to) >>> 1;
+            GroupTask left = new GroupTask(rows, from, middle, leafSize);
+            left.fork();
+            TreeMap<String, List<BuildingGroupResponse.ProductSummary>> right =
+                    new GroupTask(rows, middle, to, leafSize).compute();
+            TreeMap<String, List<BuildingGroupResponse.ProductSummary>> merged = left.join();
+            right.forEach((building, products) -> merged.merge(building, products, (first, second) -> {
+                first.addAll(second);
+                return first;
+            }));
+            return merged;
+        }
+    }
+}
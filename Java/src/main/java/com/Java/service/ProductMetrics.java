@@ -0,0 +1,116 @@
+package com.Java.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timers and distributions for the products API, tagged by the endpoint the work was done for.
+ * Per-request log lines go through sampled() so the hot path logs a fraction of requests at INFO.
+ */
+@Service
+public class ProductMetrics {
+
+    public static final String GROUPED_BY_BUILDING = "grouped-by-building";
+    public static final String GROUPED_BY_BUILDING_CHANGES = "grouped-by-building/changes";
+    public static final String GROUPED_BY_BUILDING_STREAM = "grouped-by-building/stream";
+    public static final String MULTI_CURRENCY = "multi-currency";
+
+    private static final String ENDPOINT_TAG = "endpoint";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${products.metrics.log-sample-rate:0.01}")
+    private double logSampleRate;
+
+    /**
+     * Time until DuckDB hands back the first result chunk, and time spent fetching and mapping the rows
+     */
+    public void recordQuery(String endpoint, long executeNanos, long materializeNanos, long rows) {
+        Timer.builder("products.query.execute")
+                .description("DuckDB query execution up to the first result chunk")
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(meterRegistry)
+                .record(executeNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("products.query.materialize")
+                .description("Fetching result chunks and mapping them to rows")
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(meterRegistry)
+                .record(materializeNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("products.query.rows")
+                .description("Rows returned per query")
+                .baseUnit("rows")
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(meterRegistry)
+                .record(rows);
+    }
+
+    /**
+     * Share of the product view a filter matched, from 0 to 1
+     */
+    public void recordSelectivity(String endpoint, long rows, long totalRows) {
+        if (totalRows <= 0) {
+            return;
+        }
+        DistributionSummary.builder("products.query.selectivity")
+                .description("Fraction of product view rows matched by the filter")
+                .tag(ENDPOINT_TAG, endpoint)
+                .serviceLevelObjectives(0.001, 0.01, 0.05, 0.1, 0.25, 0.5, 1.0)
+                .register(meterRegistry)
+                .record((double) rows / totalRows);
+    }
+
+    public <T> T timeGrouping(String endpoint, Supplier<T> grouping) {
+        return Timer.builder("products.grouping")
+                .description("Grouping query rows into building responses")
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(meterRegistry)
+                .record(grouping);
+    }
+
+    /**
+     * Evaluation of a what-if pricing scenario, outcome "completed", "cancelled" or "failed"
+     */
+    public void recordPricingScenario(String outcome, long nanos, long rows) {
+        Timer.builder("products.pricing.scenario")
+                .description("Repricing the portfolio under a what-if scenario")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("products.pricing.scenario.rows")
+                .description("Rows repriced per scenario")
+                .baseUnit("rows")
+                .register(meterRegistry)
+                .record(rows);
+    }
+
+    /**
+     * Product view update after a snapshot change, mode "rebuild" or "delta"
+     */
+    public void recordRefresh(String mode, long nanos) {
+        Timer.builder("products.refresh")
+                .description("Product view rebuild or delta merge")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * True for the fraction of calls given by products.metrics.log-sample-rate
+     */
+    public boolean sampled() {
+        return logSampleRate >= 1.0 || (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate);
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+}
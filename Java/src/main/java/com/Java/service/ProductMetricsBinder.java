@@ -0,0 +1,70 @@
+package com.Java.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges over state the services already keep: data versions, cache occupancy and query admission
+ */
+@Component
+public class ProductMetricsBinder implements MeterBinder {
+
+    @Autowired
+    private DuckDBService duckDBService;
+
+    @Autowired
+    private ParquetSnapshotService snapshotService;
+
+    @Autowired
+    private ProductQueryExecutor queryExecutor;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.snapshot.version", snapshotService, ParquetSnapshotService::getVersion)
+                .description("Latest synced snapshot version")
+                .register(registry);
+        Gauge.builder("products.data.version", duckDBService, DuckDBService::getDataVersion)
+                .description("Snapshot version the product view was built from")
+                .register(registry);
+        Gauge.builder("products.view.rows", duckDBService, DuckDBService::getProductRowCount)
+                .description("Rows in the product view")
+                .baseUnit("rows")
+                .register(registry);
+        Gauge.builder("products.store.bytes", duckDBService, DuckDBService::getProductStoreBytes)
+                .description("Approximate heap held by the columnar product store")
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("products.cache.size", duckDBService, service -> service.getCacheStats().getSize())
+                .description("Entries in the filter result cache")
+                .register(registry);
+        Gauge.builder("products.cache.max", duckDBService, service -> service.getCacheStats().getMaxEntries())
+                .register(registry);
+        FunctionCounter.builder("products.cache.requests", duckDBService, service -> service.getCacheStats().getHits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("products.cache.requests", duckDBService, service -> service.getCacheStats().getMisses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("products.cache.evictions", duckDBService, service -> service.getCacheStats().getEvictions())
+                .register(registry);
+        FunctionCounter.builder("products.query.slow", duckDBService,
+                        service -> service.getSlowQueryLog().getRecordedCount())
+                .description("Queries over the slow-query threshold")
+                .register(registry);
+        FunctionCounter.builder("products.query.coalesced", duckDBService, DuckDBService::getCoalescedQueryCount)
+                .description("Requests served by an identical in-flight query")
+                .register(registry);
+
+        Gauge.builder("products.query.running", queryExecutor, ProductQueryExecutor::getRunningCount)
+                .description("Queries holding a running slot")
+                .register(registry);
+        FunctionCounter.builder("products.query.rejected", queryExecutor, ProductQueryExecutor::getRejectedCount)
+                .description("Requests shed with 429")
+                .register(registry);
+    }
+}
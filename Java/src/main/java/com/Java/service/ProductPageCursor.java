@@ -0,0 +1,63 @@
+package com.Java.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Keyset position in the multi-currency listing: the sort key and product id of the last row of a page.
+ * Encoded as an opaque URL-safe token so clients only pass it back, and tied to the sort it was issued for.
+ */
+public final class ProductPageCursor {
+
+    private static final String NO_PRICE = "~";
+
+    private final String sortCurrency;
+    private final boolean descending;
+    private final BigDecimal price;
+    private final String productId;
+
+    public ProductPageCursor(String sortCurrency, boolean descending, BigDecimal price, String productId) {
+        this.sortCurrency = sortCurrency;
+        this.descending = descending;
+        this.price = price;
+        this.productId = Objects.requireNonNull(productId, "productId");
+    }
+
+    public String encode() {
+        String raw = String.join("|", sortCurrency != null ? sortCurrency : "",
+                descending ? "desc" : "asc", price != null ? price.toPlainString() : NO_PRICE, productId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static ProductPageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The product id goes last, so it may itself contain the separator
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4 || !("asc".equals(parts[1]) || "desc".equals(parts[1]))) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new ProductPageCursor(parts[0].isEmpty() ? null : parts[0], "desc".equals(parts[1]),
+                    NO_PRICE.equals(parts[2]) ? null : new BigDecimal(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Whether the cursor was issued for the given sort; a cursor cannot be reused after changing the sort
+     */
+    public boolean matches(String sortCurrency, boolean descending) {
+        return Objects.equals(this.sortCurrency, sortCurrency) && this.descending == descending;
+    }
+
+    public String getSortCurrency() { return sortCurrency; }
+    public boolean isDescending() { return descending; }
+    public BigDecimal getPrice() { return price; }
+    public String getProductId() { return productId; }
+}
@@ -0,0 +1,196 @@
+package com.Java.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs product queries off the servlet threads, with a bounded number running against DuckDB at once.
+ * A request is admitted only if fewer than maxConcurrent + maxQueued are in flight, and an admitted request
+ * waits at most queueTimeoutMs for a running slot; otherwise it is rejected straight away so clients back off
+ * instead of piling up behind a saturated engine.
+ * Queries run on virtual threads when the JVM has them (Java 21+), on a bounded platform pool otherwise.
+ */
+@Service
+public class ProductQueryExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductQueryExecutor.class);
+
+    @Value("${products.query.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${products.query.max-queued:64}")
+    private int maxQueued;
+
+    @Value("${products.query.queue-timeout-ms:200}")
+    private long queueTimeoutMs;
+
+    @Value("${products.query.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${products.query.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    private int concurrent;
+    private Semaphore admitted;
+    private Semaphore running;
+    private ExecutorService executor;
+    private boolean usingVirtualThreads;
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.concurrent = maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        this.admitted = new Semaphore(concurrent + Math.max(0, maxQueued));
+        this.running = new Semaphore(concurrent, true);
+        this.executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        this.usingVirtualThreads = executor != null;
+        if (executor == null) {
+            // Waiting requests hold a thread too, so the pool is sized for every admitted request.
+            // Admission already bounds the work queue; it only holds a task for the moment a thread that
+            // finished its query takes to come back to the pool.
+            AtomicInteger threadNumber = new AtomicInteger();
+            int threads = concurrent + Math.max(0, maxQueued);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "product-query-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+        log.info("Product queries limited to {} running, {} queued, on {}", concurrent, maxQueued,
+                usingVirtualThreads ? "virtual threads" : "platform threads");
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the query asynchronously. The future fails with QueryRejectedException when the engine is saturated.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return dispatch(() -> {
+            try (Permit permit = acquireRunning()) {
+                return query.get();
+            }
+        });
+    }
+
+    /**
+     * Run the query asynchronously once admitted, without a running slot: the query takes one with
+     * acquireRunning() around the part that actually runs on the engine, so work it ends up not doing
+     * (a cached result, waiting on an identical query in flight) does not hold a slot.
+     * The future fails with QueryRejectedException when the engine is saturated.
+     */
+    public <T> CompletableFuture<T> dispatch(Supplier<T> query) {
+        if (!admitted.tryAcquire()) {
+            return CompletableFuture.failedFuture(reject("Too many product queries in flight"));
+        }
+        try {
+            return CompletableFuture.supplyAsync(query, executor).whenComplete((result, error) -> admitted.release());
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            return CompletableFuture.failedFuture(reject("Product query executor is full"));
+        }
+    }
+
+    /**
+     * Take a running slot on the calling thread, for work that cannot be handed to the executor
+     * (e.g. a response body streamed by the servlet container). Close the permit when done.
+     *
+     * @throws QueryRejectedException when the engine is saturated
+     */
+    public Permit acquire() {
+        if (!admitted.tryAcquire()) {
+            throw reject("Too many product queries in flight");
+        }
+        try {
+            Permit runningPermit = acquireRunning();
+            return () -> {
+                runningPermit.close();
+                admitted.release();
+            };
+        } catch (RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Take a running slot for a query already admitted through dispatch(), waiting at most queueTimeoutMs.
+     * Close the permit when done.
+     *
+     * @throws QueryRejectedException when no slot frees up in time
+     */
+    public Permit acquireRunning() {
+        try {
+            if (!running.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw reject("No query slot freed up within " + queueTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("Interrupted while waiting for a query slot");
+        }
+        return running::release;
+    }
+
+    private QueryRejectedException reject(String message) {
+        rejected.increment();
+        return new QueryRejectedException(message, retryAfterSeconds);
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return usingVirtualThreads;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Number of queries currently holding a running slot
+     */
+    public int getRunningCount() {
+        return concurrent - running.availablePermits();
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() looked up at runtime, so the code still compiles for Java 17
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A held running slot
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,220 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * One row of the filter query over the product view, read straight from the result set into typed fields.
+ * Columns the role's query plan does not select are left null.
+ */
+public class ProductRow {
+
+    private String buildingName;
+    private String productId;
+    private String roomName;
+    private Integer beds;
+    private String roomType;
+    private String privatePool;
+    private Integer grade;
+    private LocalDate arrivalDate;
+    private BigDecimal currentPrice;
+    private String currency;
+    private BigDecimal bookingRate;
+    private String clusterKey;
+    private BigDecimal recommendedPrice;
+    // Whether the plan selects recommended_price, so a row of it without one still reports zero
+    private boolean withRecommendation;
+
+    public ProductRow() {
+    }
+
+    public ProductRow(String buildingName, String productId, String roomName, Integer beds, String roomType,
+                      String privatePool, BigDecimal currentPrice, String currency) {
+        this.buildingName = buildingName;
+        this.productId = productId;
+        this.roomName = roomName;
+        this.beds = beds;
+        this.roomType = roomType;
+        this.privatePool = privatePool;
+        this.currentPrice = currentPrice;
+        this.currency = currency;
+    }
+
+    /**
+     * Summary of the row as sent to clients: a missing bed count or price reads as zero, the recommended
+     * price is null unless the plan selects it
+     */
+    public BuildingGroupResponse.ProductSummary toProductSummary() {
+        return new BuildingGroupResponse.ProductSummary(
+                productId,
+                roomName,
+                beds != null ? beds : 0,
+                roomType,
+                privatePool,
+                currentPrice != null ? currentPrice : BigDecimal.ZERO,
+                withRecommendation ? (recommendedPrice != null ? recommendedPrice : BigDecimal.ZERO) : null,
+                currency);
+    }
+
+    /**
+     * Set the recommended price, marking the row as coming from a plan with recommendations
+     */
+    public ProductRow withRecommendedPrice(BigDecimal recommendedPrice) {
+        this.recommendedPrice = recommendedPrice;
+        this.withRecommendation = true;
+        return this;
+    }
+
+    // Getters
+    public String getBuildingName() { return buildingName; }
+    public String getProductId() { return productId; }
+    public String getRoomName() { return roomName; }
+    public Integer getBeds() { return beds; }
+    public String getRoomType() { return roomType; }
+    public String getPrivatePool() { return privatePool; }
+    public Integer getGrade() { return grade; }
+    public LocalDate getArrivalDate() { return arrivalDate; }
+    public BigDecimal getCurrentPrice() { return currentPrice; }
+    public String getCurrency() { return currency; }
+    public BigDecimal getBookingRate() { return bookingRate; }
+    public String getClusterKey() { return clusterKey; }
+    public BigDecimal getRecommendedPrice() { return recommendedPrice; }
+    public boolean hasRecommendation() { return withRecommendation; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProductRow)) return false;
+        ProductRow that = (ProductRow) o;
+        return withRecommendation == that.withRecommendation
+                && Objects.equals(buildingName, that.buildingName)
+                && Objects.equals(productId, that.productId)
+                && Objects.equals(roomName, that.roomName)
+                && Objects.equals(beds, that.beds)
+                && Objects.equals(roomType, that.roomType)
+                && Objects.equals(privatePool, that.privatePool)
+                && Objects.equals(grade, that.grade)
+                && Objects.equals(arrivalDate, that.arrivalDate)
+                && Objects.equals(currentPrice, that.currentPrice)
+                && Objects.equals(currency, that.currency)
+                && Objects.equals(bookingRate, that.bookingRate)
+                && Objects.equals(clusterKey, that.clusterKey)
+                && Objects.equals(recommendedPrice, that.recommendedPrice);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(buildingName, productId, roomName, beds, roomType, privatePool, grade, arrivalDate,
+                currentPrice, currency, bookingRate, clusterKey, recommendedPrice, withRecommendation);
+    }
+
+    @Override
+    public String toString() {
+        return "ProductRow{buildingName=" + buildingName + ", productId=" + productId + ", roomName=" + roomName
+                + ", beds=" + beds + ", roomType=" + roomType + ", privatePool=" + privatePool + ", grade=" + grade
+                + ", arrivalDate=" + arrivalDate + ", currentPrice=" + currentPrice + ", currency=" + currency
+                + ", bookingRate=" + bookingRate + ", clusterKey=" + clusterKey
+                + ", recommendedPrice=" + recommendedPrice + "}";
+    }
+
+    /**
+     * Maps the rows of one query. Column positions are looked up by label once, on the first row, and every
+     * row after that is read by index with the typed getters: no map per row and no value boxed as Object.
+     * Not thread-safe; use a new one per query.
+     */
+    static class Mapper implements RowMapper<ProductRow> {
+        private int buildingName;
+        private int productId;
+        private int roomName;
+        private int beds;
+        private int roomType;
+        private int privatePool;
+        private int grade;
+        private int arrivalDate;
+        private int currentPrice;
+        private int currency;
+        private int bookingRate;
+        private int clusterKey;
+        private int recommendedPrice = -1;
+
+        @Override
+        public ProductRow mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+            if (recommendedPrice < 0) {
+                resolveColumns(resultSet.getMetaData());
+            }
+            ProductRow row = new ProductRow();
+            row.buildingName = string(resultSet, buildingName);
+            row.productId = string(resultSet, productId);
+            row.roomName = string(resultSet, roomName);
+            row.beds = integer(resultSet, beds);
+            row.roomType = string(resultSet, roomType);
+            row.privatePool = string(resultSet, privatePool);
+            row.grade = integer(resultSet, grade);
+            row.arrivalDate = date(resultSet, arrivalDate);
+            row.currentPrice = decimal(resultSet, currentPrice);
+            row.currency = string(resultSet, currency);
+            row.bookingRate = decimal(resultSet, bookingRate);
+            row.clusterKey = string(resultSet, clusterKey);
+            row.recommendedPrice = decimal(resultSet, recommendedPrice);
+            row.withRecommendation = recommendedPrice > 0;
+            return row;
+        }
+
+        /**
+         * 1-based index of each product view column, 0 for the ones the query does not select
+         */
+        private void resolveColumns(ResultSetMetaData metaData) throws SQLException {
+            recommendedPrice = 0;
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                switch (metaData.getColumnLabel(column).toLowerCase()) {
+                    case "building_name" -> buildingName = column;
+                    case "product_id" -> productId = column;
+                    case "room_name" -> roomName = column;
+                    case "beds" -> beds = column;
+                    case "room_type" -> roomType = column;
+                    case "private_pool" -> privatePool = column;
+                    case "grade" -> grade = column;
+                    case "arrival_date" -> arrivalDate = column;
+                    case "current_price" -> currentPrice = column;
+                    case "currency" -> currency = column;
+                    case "booking_rate" -> bookingRate = column;
+                    case "cluster_key" -> clusterKey = column;
+                    case RoleQueryPlan.RECOMMENDED_PRICE -> recommendedPrice = column;
+                    default -> { }
+                }
+            }
+        }
+
+        private static String string(ResultSet resultSet, int column) throws SQLException {
+            return column > 0 ? resultSet.getString(column) : null;
+        }
+
+        private static Integer integer(ResultSet resultSet, int column) throws SQLException {
+            if (column == 0) {
+                return null;
+            }
+            int value = resultSet.getInt(column);
+            return resultSet.wasNull() ? null : value;
+        }
+
+        private static BigDecimal decimal(ResultSet resultSet, int column) throws SQLException {
+            return column > 0 ? resultSet.getBigDecimal(column) : null;
+        }
+
+        private static LocalDate date(ResultSet resultSet, int column) throws SQLException {
+            if (column == 0) {
+                return null;
+            }
+            Date value = resultSet.getDate(column);
+            return value != null ? value.toLocalDate() : null;
+        }
+    }
+}
@@ -0,0 +1,677 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The product view of one data version held as one primitive array per column.
+ * Strings are dictionary-encoded: low-cardinality columns (building, room type, private pool, currency) as
+ * short codes, product ids and room names as int codes, so each row costs about 50 bytes instead of a map.
+ * Rows are kept in building_name, room_name order, the order the filter query returns, so grouping by
+ * building walks contiguous runs of rows.
+ * Filters are answered from a row bitmap per value of each filterable column (OR within a filter, AND across
+ * filters) and a date index listing rows by arrival date, where a date range is a binary-searched slice.
+ * Prices are in minor units; recommended prices are computed once per store through the pricing engine.
+ * Each product also gets a fingerprint of its rows, which later versions compare against to send only
+ * the products that changed.
+ */
+public class ProductStore {
+
+    private static final short NULL_CODE = -1;
+    private static final short NULL_SMALL_INT = Short.MIN_VALUE;
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+    private static final long NULL_PRICE = Long.MIN_VALUE;
+
+    private final long dataVersion;
+    private final int rowCount;
+
+    private final String[] buildingValues;
+    private final String[] productIdValues;
+    private final String[] roomNameValues;
+    private final String[] roomTypeValues;
+    private final String[] privatePoolValues;
+    private final String[] currencyValues;
+
+    private final short[] buildings;
+    private final int[] productIds;
+    private final int[] roomNames;
+    private final short[] beds;
+    private final short[] roomTypes;
+    private final short[] privatePools;
+    private final short[] grades;
+    private final int[] arrivalDays;
+    private final long[] pricesMinor;
+    private final short[] currencies;
+    private final double[] bookingRates;
+    private final long[] recommendedMinor;
+
+    // Row bitmap per dictionary code or value of the filterable columns
+    private final Map<String, Integer> buildingCodes;
+    private final Map<String, Integer> roomTypeCodes;
+    private final Map<String, Integer> privatePoolCodes;
+    private final long[][] buildingRows;
+    private final long[][] roomTypeRows;
+    private final long[][] privatePoolRows;
+    private final Map<Integer, long[]> bedRows = new HashMap<>();
+    private final Map<Integer, long[]> gradeRows = new HashMap<>();
+    // Rows in arrival_date order, rows without a date first
+    private final int[] rowsByArrival;
+
+    // Fingerprint per product id code, and the codes in product id order
+    private final long[] productHashes;
+    private final int[] productCodesById;
+    private final Fingerprints fingerprints;
+
+    private ProductStore(Builder builder, PricingEngine pricingEngine) {
+        this.dataVersion = builder.dataVersion;
+        this.rowCount = builder.rowCount;
+        this.buildingValues = builder.buildingDictionary.values();
+        this.productIdValues = builder.productIdDictionary.values();
+        this.roomNameValues = builder.roomNameDictionary.values();
+        this.roomTypeValues = builder.roomTypeDictionary.values();
+        this.privatePoolValues = builder.privatePoolDictionary.values();
+        this.currencyValues = builder.currencyDictionary.values();
+        this.buildings = Arrays.copyOf(builder.buildings, rowCount);
+        this.productIds = Arrays.copyOf(builder.productIds, rowCount);
+        this.roomNames = Arrays.copyOf(builder.roomNames, rowCount);
+        this.beds = Arrays.copyOf(builder.beds, rowCount);
+        this.roomTypes = Arrays.copyOf(builder.roomTypes, rowCount);
+        this.privatePools = Arrays.copyOf(builder.privatePools, rowCount);
+        this.grades = Arrays.copyOf(builder.grades, rowCount);
+        this.arrivalDays = Arrays.copyOf(builder.arrivalDays, rowCount);
+        this.pricesMinor = Arrays.copyOf(builder.pricesMinor, rowCount);
+        this.currencies = Arrays.copyOf(builder.currencies, rowCount);
+        this.bookingRates = Arrays.copyOf(builder.bookingRates, rowCount);
+
+        // Like the SQL expression, a missing price is repriced as zero
+        long[] pricesOrZero = new long[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            pricesOrZero[row] = pricesMinor[row] == NULL_PRICE ? 0 : pricesMinor[row];
+        }
+        this.recommendedMinor = new long[rowCount];
+        pricingEngine.recommend(pricesOrZero, bookingRates, recommendedMinor, rowCount);
+
+        this.buildingCodes = builder.buildingDictionary.codes();
+        this.roomTypeCodes = builder.roomTypeDictionary.codes();
+        this.privatePoolCodes = builder.privatePoolDictionary.codes();
+        int words = RowBitmaps.words(rowCount);
+        this.buildingRows = new long[buildingValues.length][words];
+        this.roomTypeRows = new long[roomTypeValues.length][words];
+        this.privatePoolRows = new long[privatePoolValues.length][words];
+        // Sort keys: arrival day in the high half, row in the low half
+        long[] arrivalKeys = new long[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            mark(buildingRows, buildings[row], row);
+            mark(roomTypeRows, roomTypes[row], row);
+            mark(privatePoolRows, privatePools[row], row);
+            if (beds[row] != NULL_SMALL_INT) {
+                mark(bedRows.computeIfAbsent((int) beds[row], value -> new long[words]), row);
+            }
+            if (grades[row] != NULL_SMALL_INT) {
+                mark(gradeRows.computeIfAbsent((int) grades[row], value -> new long[words]), row);
+            }
+            arrivalKeys[row] = ((long) arrivalDays[row] << 32) | row;
+        }
+        Arrays.sort(arrivalKeys);
+        this.rowsByArrival = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rowsByArrival[i] = (int) arrivalKeys[i];
+        }
+
+        // Row hashes are summed, so a product's fingerprint does not depend on the order of its rows
+        this.productHashes = new long[productIdValues.length];
+        for (int row = 0; row < rowCount; row++) {
+            if (productIds[row] != NULL_CODE) {
+                productHashes[productIds[row]] += rowHash(row);
+            }
+        }
+        this.productCodesById = Arrays.stream(sortedCodes()).mapToInt(Integer::intValue).toArray();
+        String[] sortedIds = new String[productCodesById.length];
+        long[] sortedHashes = new long[productCodesById.length];
+        for (int i = 0; i < productCodesById.length; i++) {
+            sortedIds[i] = productIdValues[productCodesById[i]];
+            sortedHashes[i] = productHashes[productCodesById[i]];
+        }
+        this.fingerprints = new Fingerprints(dataVersion, sortedIds, sortedHashes);
+    }
+
+    private Integer[] sortedCodes() {
+        Integer[] codes = new Integer[productIdValues.length];
+        Arrays.setAll(codes, code -> code);
+        Arrays.sort(codes, Comparator.comparing(code -> productIdValues[code]));
+        return codes;
+    }
+
+    /**
+     * Hash of every column of a row but the product id, finalized with the MurmurHash3 64-bit mix
+     */
+    private long rowHash(int row) {
+        long hash = Objects.hashCode(lookup(buildingValues, buildings[row]));
+        hash = 31 * hash + Objects.hashCode(lookup(roomNameValues, roomNames[row]));
+        hash = 31 * hash + beds[row];
+        hash = 31 * hash + Objects.hashCode(lookup(roomTypeValues, roomTypes[row]));
+        hash = 31 * hash + Objects.hashCode(lookup(privatePoolValues, privatePools[row]));
+        hash = 31 * hash + grades[row];
+        hash = 31 * hash + arrivalDays[row];
+        hash = 31 * hash + pricesMinor[row];
+        hash = 31 * hash + Objects.hashCode(lookup(currencyValues, currencies[row]));
+        hash = 31 * hash + recommendedMinor[row];
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static void mark(long[][] bitmaps, short code, int row) {
+        if (code != NULL_CODE) {
+            mark(bitmaps[code], row);
+        }
+    }
+
+    private static void mark(long[] bits, int row) {
+        bits[row >>> 6] |= 1L << row;
+    }
+
+    public static Builder builder(long dataVersion) {
+        return new Builder(dataVersion);
+    }
+
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Fingerprints getFingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * What changed in the given rows (ascending, as from filter) since the version of the older fingerprints.
+     * The rows are narrowed to products that are new or whose rows differ, and every product of the older
+     * version that is gone, or changed and is no longer among the rows, is listed as removed. A client holding
+     * the older result drops the removed products and replaces all rows of each product in the changed rows.
+     * Rows without a product id are never reported.
+     */
+    public Changes changesSince(Fingerprints older, int[] rows) {
+        boolean[] changed = new boolean[productIdValues.length];
+        for (int code = 0; code < changed.length; code++) {
+            int index = older.indexOf(productIdValues[code]);
+            changed[code] = index < 0 || older.hashes[index] != productHashes[code];
+        }
+
+        boolean[] included = new boolean[productIdValues.length];
+        int count = 0;
+        int[] changedRows = new int[rows.length];
+        for (int row : rows) {
+            int code = productIds[row];
+            if (code != NULL_CODE && changed[code]) {
+                changedRows[count++] = row;
+                included[code] = true;
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String productId : older.productIds) {
+            int index = fingerprints.indexOf(productId);
+            if (index < 0) {
+                removed.add(productId);
+                continue;
+            }
+            int code = productCodesById[index];
+            if (changed[code] && !included[code]) {
+                removed.add(productId);
+            }
+        }
+        return new Changes(Arrays.copyOf(changedRows, count), removed);
+    }
+
+    /**
+     * Rows matching the filters, ascending (so still in building order)
+     *
+     * @throws IllegalArgumentException if an arrival date is not yyyy-MM-dd
+     */
+    public int[] filter(DuckDBService.ProductFilterRequest filters) {
+        long[] matches = null;
+        if (isSet(filters.getBuildings())) {
+            matches = restrict(matches, union(buildingRows, buildingCodes, filters.getBuildings()));
+        }
+        if (isSet(filters.getRoomTypes())) {
+            matches = restrict(matches, union(roomTypeRows, roomTypeCodes, filters.getRoomTypes()));
+        }
+        if (isSet(filters.getPrivatePool())) {
+            matches = restrict(matches, union(privatePoolRows, privatePoolCodes, filters.getPrivatePool()));
+        }
+        if (isSet(filters.getBeds())) {
+            matches = restrict(matches, union(bedRows, filters.getBeds()));
+        }
+        if (isSet(filters.getGrades())) {
+            matches = restrict(matches, union(gradeRows, filters.getGrades()));
+        }
+        String from = filters.getArrivalDateFrom();
+        String to = filters.getArrivalDateTo();
+        if (from != null || to != null) {
+            matches = restrict(matches, arrivalRange(from, to));
+        }
+
+        if (matches == null) {
+            int[] all = new int[rowCount];
+            Arrays.setAll(all, row -> row);
+            return all;
+        }
+        return RowBitmaps.toRows(matches);
+    }
+
+    private static long[] restrict(long[] matches, long[] filter) {
+        if (matches == null) {
+            return filter;
+        }
+        RowBitmaps.and(matches, filter);
+        return matches;
+    }
+
+    private long[] union(long[][] bitmaps, Map<String, Integer> codes, List<String> selected) {
+        long[] union = new long[RowBitmaps.words(rowCount)];
+        for (String value : selected) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                RowBitmaps.or(union, bitmaps[code]);
+            }
+        }
+        return union;
+    }
+
+    private long[] union(Map<Integer, long[]> bitmaps, List<Integer> selected) {
+        long[] union = new long[RowBitmaps.words(rowCount)];
+        for (Integer value : selected) {
+            long[] rows = bitmaps.get(value);
+            if (rows != null) {
+                RowBitmaps.or(union, rows);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Value to row bitmap of a FacetIndex facet, values in natural order. The bitmaps are the store's own,
+     * not copies, and must not be modified.
+     */
+    SortedMap<Object, long[]> valueBitmaps(String facet) {
+        SortedMap<Object, long[]> values = new TreeMap<>();
+        switch (facet) {
+            case FacetIndex.BUILDING -> buildingCodes.forEach((value, code) -> values.put(value, buildingRows[code]));
+            case FacetIndex.ROOM_TYPE -> roomTypeCodes.forEach((value, code) -> values.put(value, roomTypeRows[code]));
+            case FacetIndex.PRIVATE_POOL ->
+                    privatePoolCodes.forEach((value, code) -> values.put(value, privatePoolRows[code]));
+            case FacetIndex.BEDS -> values.putAll(bedRows);
+            case FacetIndex.GRADE -> values.putAll(gradeRows);
+            default -> throw new IllegalArgumentException("Unknown facet: " + facet);
+        }
+        return values;
+    }
+
+    /**
+     * Rows with from <= arrival_date <= to: a slice of the date index found by binary search.
+     * Like the SQL comparison, any date bound excludes rows without a date.
+     *
+     * @throws IllegalArgumentException if a date is not yyyy-MM-dd
+     */
+    long[] arrivalRange(String from, String to) {
+        int start = lowerBound(from == null ? NULL_DAY + 1 : epochDay(from));
+        int end = to == null ? rowCount : lowerBound(epochDay(to) + 1);
+        long[] range = new long[RowBitmaps.words(rowCount)];
+        for (int i = start; i < end; i++) {
+            mark(range, rowsByArrival[i]);
+        }
+        return range;
+    }
+
+    // First position in the date index whose arrival day is >= day
+    private int lowerBound(int day) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (arrivalDays[rowsByArrival[mid]] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Group ascending rows by building, with the recommended price only when the plan includes it.
+     * Groups come out in building name order like ProductGroupingService, rows without a building last.
+     */
+    public List<BuildingGroupResponse> groupByBuilding(int[] rows, RoleQueryPlan plan) {
+        return groupByBuilding(rows, plan, null);
+    }
+
+    /**
+     * groupByBuilding with the summaries built on a fork-join pool when one is given. Each task fills its own
+     * slice of one array, which is then cut into groups at the building boundaries, so nothing is merged.
+     */
+    public List<BuildingGroupResponse> groupByBuilding(int[] rows, RoleQueryPlan plan, ForkJoinPool pool) {
+        boolean withRecommendation = plan.includesRecommendedPrice();
+        BuildingGroupResponse.ProductSummary[] summaries = new BuildingGroupResponse.ProductSummary[rows.length];
+        if (pool != null) {
+            pool.invoke(new SummaryTask(rows, summaries, 0, rows.length,
+                    ProductGroupingService.leafSize(pool, rows.length), withRecommendation));
+        } else {
+            for (int i = 0; i < rows.length; i++) {
+                summaries[i] = toProductSummary(rows[i], withRecommendation);
+            }
+        }
+
+        List<BuildingGroupResponse> groups = new ArrayList<>();
+        List<BuildingGroupResponse.ProductSummary> all = Arrays.asList(summaries);
+        int start = 0;
+        while (start < rows.length) {
+            short building = buildings[rows[start]];
+            int end = start + 1;
+            while (end < rows.length && buildings[rows[end]] == building) {
+                end++;
+            }
+            groups.add(new BuildingGroupResponse(lookup(buildingValues, building),
+                    new ArrayList<>(all.subList(start, end))));
+            start = end;
+        }
+        return groups;
+    }
+
+    /**
+     * Builds the summaries of rows [from, to) into the same positions of the output array
+     */
+    private class SummaryTask extends RecursiveAction {
+        private final int[] rows;
+        private final BuildingGroupResponse.ProductSummary[] summaries;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final boolean withRecommendation;
+
+        SummaryTask(int[] rows, BuildingGroupResponse.ProductSummary[] summaries, int from, int to, int leafSize,
+                    boolean withRecommendation) {
+            this.rows = rows;
+            this.summaries = summaries;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.withRecommendation = withRecommendation;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    summaries[i] = toProductSummary(rows[i], withRecommendation);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SummaryTask(rows, summaries, from, middle, leafSize, withRecommendation),
+                    new SummaryTask(rows, summaries, middle, to, leafSize, withRecommendation));
+        }
+    }
+
+    private BuildingGroupResponse.ProductSummary toProductSummary(int row, boolean withRecommendation) {
+        return new BuildingGroupResponse.ProductSummary(
+                lookup(productIdValues, productIds[row]),
+                lookup(roomNameValues, roomNames[row]),
+                beds[row] == NULL_SMALL_INT ? 0 : (int) beds[row],
+                lookup(roomTypeValues, roomTypes[row]),
+                lookup(privatePoolValues, privatePools[row]),
+                PricingEngine.fromMinorUnits(pricesMinor[row] == NULL_PRICE ? 0 : pricesMinor[row]),
+                withRecommendation ? PricingEngine.fromMinorUnits(recommendedMinor[row]) : null,
+                lookup(currencyValues, currencies[row]));
+    }
+
+    public String getProductId(int row) {
+        return lookup(productIdValues, productIds[row]);
+    }
+
+    public String getBuildingName(int row) {
+        return lookup(buildingValues, buildings[row]);
+    }
+
+    public String getCurrency(int row) {
+        return lookup(currencyValues, currencies[row]);
+    }
+
+    /**
+     * Current price of a row in minor units, or Long.MIN_VALUE without a price
+     */
+    public long getPriceMinor(int row) {
+        return pricesMinor[row];
+    }
+
+    public long getRecommendedPriceMinor(int row) {
+        return recommendedMinor[row];
+    }
+
+    /**
+     * Booking rate of a row's cluster, NaN when unknown
+     */
+    public double getBookingRate(int row) {
+        return bookingRates[row];
+    }
+
+    /**
+     * Approximate heap held by the columns, dictionaries and filter indexes
+     */
+    public long getMemoryBytes() {
+        long columns = (long) rowCount * (6 * Short.BYTES + 4 * Integer.BYTES + 3 * Long.BYTES);
+        int bitmaps = buildingRows.length + roomTypeRows.length + privatePoolRows.length + bedRows.size()
+                + gradeRows.size();
+        long indexes = (long) bitmaps * RowBitmaps.words(rowCount) * Long.BYTES;
+        long dictionaries = 0;
+        for (String[] values : List.of(buildingValues, productIdValues, roomNameValues, roomTypeValues,
+                privatePoolValues, currencyValues)) {
+            for (String value : values) {
+                // String header and backing array, Latin-1 compact strings
+                dictionaries += 56 + value.length();
+            }
+        }
+        long fingerprintBytes = (long) productIdValues.length * (2 * Long.BYTES + Integer.BYTES + 8);
+        return columns + dictionaries + indexes + fingerprintBytes;
+    }
+
+    private static boolean isSet(List<?> selected) {
+        return selected != null && !selected.isEmpty();
+    }
+
+    private static String lookup(String[] values, int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    private static int epochDay(String date) {
+        try {
+            return (int) LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid arrival date '" + date + "', expected yyyy-MM-dd", e);
+        }
+    }
+
+    /**
+     * Per-product fingerprints of one version, in product id order.
+     * Kept after the store itself is replaced, for working out what changed since that version.
+     */
+    public static final class Fingerprints {
+        private final long dataVersion;
+        private final String[] productIds;
+        private final long[] hashes;
+
+        private Fingerprints(long dataVersion, String[] productIds, long[] hashes) {
+            this.dataVersion = dataVersion;
+            this.productIds = productIds;
+            this.hashes = hashes;
+        }
+
+        public long getDataVersion() {
+            return dataVersion;
+        }
+
+        public int getProductCount() {
+            return productIds.length;
+        }
+
+        private int indexOf(String productId) {
+            return Arrays.binarySearch(productIds, productId);
+        }
+    }
+
+    /**
+     * Rows of the products that changed, and the ids of products to drop
+     */
+    public static final class Changes {
+        private final int[] rows;
+        private final List<String> removedProductIds;
+
+        private Changes(int[] rows, List<String> removedProductIds) {
+            this.rows = rows;
+            this.removedProductIds = removedProductIds;
+        }
+
+        public int[] getRows() {
+            return rows;
+        }
+
+        public List<String> getRemovedProductIds() {
+            return removedProductIds;
+        }
+    }
+
+    /**
+     * Collects rows in building_name, room_name order (rows without a building last), as read from the product view
+     */
+    public static class Builder {
+        private final long dataVersion;
+        private final Dictionary buildingDictionary = new Dictionary(Short.MAX_VALUE);
+        private final Dictionary productIdDictionary = new Dictionary(Integer.MAX_VALUE);
+        private final Dictionary roomNameDictionary = new Dictionary(Integer.MAX_VALUE);
+        private final Dictionary roomTypeDictionary = new Dictionary(Short.MAX_VALUE);
+        private final Dictionary privatePoolDictionary = new Dictionary(Short.MAX_VALUE);
+        private final Dictionary currencyDictionary = new Dictionary(Short.MAX_VALUE);
+        private short[] buildings = new short[1024];
+        private int[] productIds = new int[1024];
+        private int[] roomNames = new int[1024];
+        private short[] beds = new short[1024];
+        private short[] roomTypes = new short[1024];
+        private short[] privatePools = new short[1024];
+        private short[] grades = new short[1024];
+        private int[] arrivalDays = new int[1024];
+        private long[] pricesMinor = new long[1024];
+        private short[] currencies = new short[1024];
+        private double[] bookingRates = new double[1024];
+        private int rowCount;
+        private boolean nullBuildingSeen;
+
+        private Builder(long dataVersion) {
+            this.dataVersion = dataVersion;
+        }
+
+        public Builder add(String building, String productId, String roomName, Integer bedCount, String roomType,
+                           String privatePool, Integer grade, LocalDate arrivalDate, BigDecimal price,
+                           String currency, BigDecimal bookingRate) {
+            int row = rowCount++;
+            if (row == buildings.length) {
+                grow(row * 2);
+            }
+            short buildingCode = (short) buildingDictionary.code(building);
+            // Codes are handed out in first-seen order, so a smaller code than the previous row's, or a
+            // building after the rows without one, means the rows are not grouped by building
+            if (buildingCode != NULL_CODE && row > 0 && (nullBuildingSeen || buildingCode < buildings[row - 1])) {
+                throw new IllegalArgumentException("Rows must be added in building_name order");
+            }
+            nullBuildingSeen |= buildingCode == NULL_CODE;
+            buildings[row] = buildingCode;
+            productIds[row] = productIdDictionary.code(productId);
+            roomNames[row] = roomNameDictionary.code(roomName);
+            beds[row] = smallInt(bedCount);
+            roomTypes[row] = (short) roomTypeDictionary.code(roomType);
+            privatePools[row] = (short) privatePoolDictionary.code(privatePool);
+            grades[row] = smallInt(grade);
+            arrivalDays[row] = arrivalDate != null ? (int) arrivalDate.toEpochDay() : NULL_DAY;
+            pricesMinor[row] = price != null ? PricingEngine.toMinorUnits(price) : NULL_PRICE;
+            currencies[row] = (short) currencyDictionary.code(currency);
+            bookingRates[row] = bookingRate != null ? bookingRate.doubleValue() : Double.NaN;
+            return this;
+        }
+
+        private void grow(int capacity) {
+            buildings = Arrays.copyOf(buildings, capacity);
+            productIds = Arrays.copyOf(productIds, capacity);
+            roomNames = Arrays.copyOf(roomNames, capacity);
+            beds = Arrays.copyOf(beds, capacity);
+            roomTypes = Arrays.copyOf(roomTypes, capacity);
+            privatePools = Arrays.copyOf(privatePools, capacity);
+            grades = Arrays.copyOf(grades, capacity);
+            arrivalDays = Arrays.copyOf(arrivalDays, capacity);
+            pricesMinor = Arrays.copyOf(pricesMinor, capacity);
+            currencies = Arrays.copyOf(currencies, capacity);
+            bookingRates = Arrays.copyOf(bookingRates, capacity);
+        }
+
+        private static short smallInt(Integer value) {
+            if (value == null) {
+                return NULL_SMALL_INT;
+            }
+            if (value <= NULL_SMALL_INT || value > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Value out of range for a small int column: " + value);
+            }
+            return value.shortValue();
+        }
+
+        public ProductStore build(PricingEngine pricingEngine) {
+            return new ProductStore(this, pricingEngine);
+        }
+    }
+
+    /**
+     * Codes in first-seen order; null is NULL_CODE
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final int maxSize;
+
+        Dictionary(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        int code(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (values.size() == maxSize) {
+                    throw new IllegalStateException("More than " + maxSize + " distinct values in a dictionary column");
+                }
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+
+        Map<String, Integer> codes() {
+            return Map.copyOf(codes);
+        }
+    }
+}
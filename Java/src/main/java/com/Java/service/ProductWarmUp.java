@@ -0,0 +1,128 @@
+package com.Java.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs the common product queries once after startup, before the instance takes traffic: the unfiltered and
+ * single-building queries of every role, facets and the first multi-currency pages. That fills the result
+ * cache, compiles the role plans' SQL and gets the JIT going on the store and grouping code, so the first
+ * users after a deploy do not pay for it.
+ * Reports OUT_OF_SERVICE until then; included in the readiness group (management.endpoint.health.group.readiness),
+ * it keeps a rolling restart from routing requests to a cold instance.
+ */
+@Component
+public class ProductWarmUp implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductWarmUp.class);
+    private static final int MULTI_CURRENCY_PAGE_SIZE = 20;
+
+    @Value("${products.warm-up.enabled:true}")
+    private boolean enabled;
+
+    @Value("${products.warm-up.buildings:10}")
+    private int buildings;
+
+    @Autowired
+    private DuckDBService duckDBService;
+
+    @Autowired
+    private FilterConfigurationService filterConfigurationService;
+
+    private volatile boolean done;
+    private volatile int queries;
+    private volatile int failures;
+    private volatile long elapsedMs;
+
+    /**
+     * Warm up off the startup thread, so liveness is reported while it runs
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            done = true;
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "product-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = done ? Health.up() : Health.outOfService();
+        return health.withDetail("dataVersion", duckDBService.getDataVersion())
+                .withDetail("queries", queries)
+                .withDetail("failures", failures)
+                .withDetail("elapsedMs", elapsedMs)
+                .build();
+    }
+
+    /**
+     * Run every warm-up query; a failing one is logged and skipped, the instance becomes ready regardless
+     */
+    public void warmUp() {
+        long start = System.nanoTime();
+        try {
+            List<String> topBuildings = topBuildings();
+            for (String role : filterConfigurationService.getAvailableRoles()) {
+                RoleQueryPlan plan = filterConfigurationService.getQueryPlan(role);
+                run(() -> duckDBService.getProductsWithFiltersOptimized(new DuckDBService.ProductFilterRequest(), plan));
+                run(() -> duckDBService.getProductsGroupedByBuilding(new DuckDBService.ProductFilterRequest(), plan));
+                for (String building : topBuildings) {
+                    DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+                    filters.setBuildings(List.of(building));
+                    run(() -> duckDBService.getProductsWithFiltersOptimized(filters, plan));
+                    run(() -> duckDBService.getProductsGroupedByBuilding(filters, plan));
+                }
+            }
+            run(() -> duckDBService.getMultiCurrencyPage(null, false, null, 0, MULTI_CURRENCY_PAGE_SIZE));
+            for (String currency : duckDBService.getCurrencies()) {
+                run(() -> duckDBService.getMultiCurrencyPage(currency, false, null, 0, MULTI_CURRENCY_PAGE_SIZE));
+            }
+        } finally {
+            elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            done = true;
+            log.info("Warm-up of snapshot version {} done: {} queries, {} failed, in {} ms",
+                    duckDBService.getDataVersion(), queries, failures, elapsedMs);
+        }
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * The buildings with the most products, from an unfiltered facet count
+     */
+    private List<String> topBuildings() {
+        List<String> top = new ArrayList<>();
+        run(() -> duckDBService.getFacetCounts(new DuckDBService.ProductFilterRequest()).getFacets()
+                .getOrDefault(FacetIndex.BUILDING, List.of()).stream()
+                .sorted(Comparator.comparingLong(FacetIndex.FacetValue::getCount).reversed())
+                .limit(buildings)
+                .forEach(value -> top.add((String) value.getValue())));
+        return top;
+    }
+
+    private void run(Runnable query) {
+        queries++;
+        try {
+            query.run();
+        } catch (RuntimeException e) {
+            failures++;
+            log.warn("Warm-up query failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.Java.service;
+
+/**
+ * Thrown when the query engine is saturated and a request is shed instead of queued
+ */
+public class QueryRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public QueryRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Suggested client back-off, sent as the Retry-After header
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,199 @@
+package com.Java.service;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One run of a what-if pricing scenario over a product store: the selected rows cut into chunks, each chunk
+ * repriced on its own task. Rows are handed out in store order as chunks finish; progress and the outcome can
+ * be read from any thread while that happens.
+ * The job stays RUNNING, and can be cancelled, until forEachRow has written the last row, not merely until
+ * the last chunk is evaluated.
+ */
+public class RepricingJob {
+
+    public enum Status { RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    /**
+     * Receives each repriced row, prices in minor units; currentPrice is 0 for a product without a price
+     */
+    public interface RowWriter {
+        void write(String productId, String buildingName, String currency, long currentPrice,
+                   long recommendedPrice, long scenarioPrice) throws IOException;
+
+        /**
+         * Called after every chunk, e.g. to flush the rows written so far to the client
+         */
+        default void endChunk() throws IOException {
+        }
+    }
+
+    private final String id;
+    private final long dataVersion;
+    private final int totalRows;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong evaluatedRows = new AtomicLong();
+    private final AtomicLong writtenRows = new AtomicLong();
+    private final Consumer<RepricingJob> onFinished;
+    // Set by whichever comes first: forEachRow starting to write, or the job being abandoned unread
+    private boolean rowsClaimed;
+    private volatile Status status = Status.RUNNING;
+    private volatile long elapsedNanos = -1;
+    // Released once the rows have been written, so a finished job kept for its progress holds no data
+    private volatile ProductStore store;
+    private volatile int[] rows;
+    private volatile CompletableFuture<long[]>[] chunks;
+
+    RepricingJob(String id, ProductStore store, int[] rows, Consumer<RepricingJob> onFinished) {
+        this.id = id;
+        this.onFinished = onFinished;
+        this.dataVersion = store.getDataVersion();
+        this.totalRows = rows.length;
+        this.store = store;
+        this.rows = rows;
+    }
+
+    void setChunks(CompletableFuture<long[]>[] chunks) {
+        this.chunks = chunks;
+    }
+
+    void chunkEvaluated(int rowCount) {
+        evaluatedRows.addAndGet(rowCount);
+    }
+
+    /**
+     * Record the outcome and notify the owner, once; false if the job had already finished (e.g. cancelled)
+     */
+    boolean finish(Status outcome) {
+        synchronized (this) {
+            if (status != Status.RUNNING) {
+                return false;
+            }
+            status = outcome;
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+        onFinished.accept(this);
+        return true;
+    }
+
+    boolean isCancelled() {
+        return status == Status.CANCELLED;
+    }
+
+    /**
+     * Stop evaluating: chunks not started yet are skipped and a running forEachRow ends with a
+     * CancellationException. False if the job had already finished.
+     */
+    public boolean cancel() {
+        return stop(Status.CANCELLED);
+    }
+
+    /**
+     * Cancel the job if forEachRow has not started, e.g. because the response that was to stream its rows
+     * never ran. False if it is streaming or already finished.
+     */
+    boolean abandonIfUnread() {
+        synchronized (this) {
+            if (rowsClaimed) {
+                return false;
+            }
+            rowsClaimed = true;
+        }
+        return stop(Status.CANCELLED);
+    }
+
+    boolean stop(Status outcome) {
+        if (!finish(outcome)) {
+            return false;
+        }
+        CompletableFuture<long[]>[] pending = chunks;
+        if (pending != null) {
+            for (CompletableFuture<long[]> chunk : pending) {
+                if (chunk != null) {
+                    chunk.cancel(false);
+                }
+            }
+        }
+        release();
+        return true;
+    }
+
+    /**
+     * Write every row in store order, waiting for each chunk in turn. Can be called once; the job completes
+     * when it returns. A writer failing with an IOException (the client went away) cancels the job, any other
+     * failure fails it.
+     *
+     * @throws CancellationException if the job is cancelled meanwhile
+     * @throws CompletionException if evaluating a chunk failed
+     */
+    public void forEachRow(RowWriter writer) throws IOException {
+        synchronized (this) {
+            if (rowsClaimed) {
+                throw new CancellationException("Scenario " + id + " was abandoned or its rows already read");
+            }
+            rowsClaimed = true;
+        }
+        ProductStore store = this.store;
+        int[] rows = this.rows;
+        CompletableFuture<long[]>[] chunks = this.chunks;
+        if (store == null || chunks == null) {
+            throw new CancellationException("Scenario " + id + " was cancelled");
+        }
+        try {
+            int row = 0;
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long[] scenarioPrices = chunks[chunk].join();
+                chunks[chunk] = null;
+                for (long scenarioPrice : scenarioPrices) {
+                    if (isCancelled()) {
+                        throw new CancellationException("Scenario " + id + " was cancelled");
+                    }
+                    int storeRow = rows[row++];
+                    long price = store.getPriceMinor(storeRow);
+                    writer.write(store.getProductId(storeRow), store.getBuildingName(storeRow),
+                            store.getCurrency(storeRow), price == Long.MIN_VALUE ? 0 : price,
+                            store.getRecommendedPriceMinor(storeRow), scenarioPrice);
+                }
+                writtenRows.addAndGet(scenarioPrices.length);
+                writer.endChunk();
+            }
+        } catch (IOException e) {
+            stop(Status.CANCELLED);
+            throw e;
+        } catch (RuntimeException e) {
+            // No-op when the failure is the job's own cancellation
+            stop(Status.FAILED);
+            throw e;
+        } finally {
+            release();
+        }
+        finish(Status.COMPLETED);
+    }
+
+    private void release() {
+        store = null;
+        rows = null;
+        chunks = null;
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public Status getStatus() { return status; }
+    public long getDataVersion() { return dataVersion; }
+    public int getTotalRows() { return totalRows; }
+    public long getEvaluatedRows() { return evaluatedRows.get(); }
+    public long getWrittenRows() { return writtenRows.get(); }
+
+    public long getElapsedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos());
+    }
+
+    long elapsedNanos() {
+        return elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+    }
+}
@@ -0,0 +1,195 @@
+package com.Java.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reprices the whole portfolio, or a filtered part of it, under a what-if pricing scenario.
+ * Rows come from the columnar product store of the current data version and are evaluated in chunks of
+ * products.pricing.chunk-size rows on a fixed pool, each chunk with the primitive batch form of the demand
+ * tier rules, so a scenario over every product takes seconds and never touches DuckDB.
+ */
+@Service
+public class RepricingService {
+
+    private static final Logger log = LoggerFactory.getLogger(RepricingService.class);
+    private static final int FINISHED_JOBS_KEPT = 32;
+
+    @Value("${products.pricing.chunk-size:65536}")
+    private int chunkSize;
+
+    @Value("${products.pricing.parallelism:0}")
+    private int parallelism;
+
+    @Value("${products.pricing.max-running:2}")
+    private int maxRunning;
+
+    // A job whose rows are not being read by then is cancelled, so a response that never ran frees its slot
+    @Value("${products.pricing.start-timeout-ms:30000}")
+    private long startTimeoutMs;
+
+    @Value("${products.query.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Autowired
+    private DuckDBService duckDBService;
+
+    @Autowired
+    private DemandTierPricingEngine pricingEngine;
+
+    @Autowired
+    private ProductMetrics metrics;
+
+    private final Map<String, RepricingJob> jobs = new ConcurrentHashMap<>();
+    // Finished jobs oldest first, trimmed to FINISHED_JOBS_KEPT; guarded by this service's monitor
+    private final Deque<String> finishedJobs = new ArrayDeque<>();
+    private int running;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "repricing-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Pricing scenarios: {}-row chunks on {} threads, {} at a time", chunkSize, threads, maxRunning);
+    }
+
+    @PreDestroy
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Start repricing the products matching filters under a scenario. Chunks are evaluated in the background;
+     * the rows are read back with {@link RepricingJob#forEachRow}, which must start within
+     * products.pricing.start-timeout-ms or the job is cancelled.
+     *
+     * @throws IllegalArgumentException if the scenario's tiers or multipliers, or a filter value, are malformed
+     * @throws IllegalStateException if there is no product store to reprice
+     * @throws QueryRejectedException if products.pricing.max-running scenarios are already running
+     */
+    public RepricingJob start(PricingScenario scenario, DuckDBService.ProductFilterRequest filters) {
+        PricingEngine engine = pricingEngine.forScenario(scenario);
+        ProductStore store = duckDBService.getProductStore();
+        if (store == null) {
+            throw new IllegalStateException("No product store to reprice");
+        }
+        int[] rows = store.filter(filters);
+
+        synchronized (this) {
+            if (running >= maxRunning) {
+                throw new QueryRejectedException(running + " pricing scenarios running", retryAfterSeconds);
+            }
+            running++;
+        }
+        RepricingJob job = new RepricingJob(UUID.randomUUID().toString(), store, rows, this::finished);
+        jobs.put(job.getId(), job);
+
+        int chunkCount = Math.max(1, (rows.length + chunkSize - 1) / chunkSize);
+        @SuppressWarnings("unchecked")
+        CompletableFuture<long[]>[] chunks = new CompletableFuture[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int from = chunk * chunkSize;
+            int to = Math.min(rows.length, from + chunkSize);
+            chunks[chunk] = CompletableFuture.supplyAsync(() -> evaluate(job, engine, store, rows, from, to), workers);
+        }
+        job.setChunks(chunks);
+        // Completed by forEachRow once the rows are written; here only a failed evaluation ends the job
+        CompletableFuture.allOf(chunks).whenComplete((ignored, error) -> evaluationFailed(job, error));
+        if (startTimeoutMs > 0) {
+            CompletableFuture.runAsync(() -> abandonIfUnread(job),
+                    CompletableFuture.delayedExecutor(startTimeoutMs, TimeUnit.MILLISECONDS, workers));
+        }
+        log.debug("Pricing scenario {}: {} rows of version {} in {} chunks", job.getId(), rows.length,
+                store.getDataVersion(), chunkCount);
+        return job;
+    }
+
+    /**
+     * A running or recently finished job, null if unknown
+     */
+    public RepricingJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Cancel a running job; false if it is unknown or already finished
+     */
+    public boolean cancel(String id) {
+        RepricingJob job = jobs.get(id);
+        return job != null && job.cancel();
+    }
+
+    private static long[] evaluate(RepricingJob job, PricingEngine engine, ProductStore store, int[] rows,
+                                   int from, int to) {
+        if (job.isCancelled()) {
+            throw new CancellationException();
+        }
+        int length = to - from;
+        long[] prices = new long[length];
+        double[] bookingRates = new double[length];
+        for (int i = 0; i < length; i++) {
+            long price = store.getPriceMinor(rows[from + i]);
+            prices[i] = price == Long.MIN_VALUE ? 0 : price;
+            bookingRates[i] = store.getBookingRate(rows[from + i]);
+        }
+        long[] scenarioPrices = new long[length];
+        engine.recommend(prices, bookingRates, scenarioPrices, length);
+        job.chunkEvaluated(length);
+        return scenarioPrices;
+    }
+
+    private void abandonIfUnread(RepricingJob job) {
+        if (job.abandonIfUnread()) {
+            log.warn("Pricing scenario {} cancelled: its rows were not read within {} ms", job.getId(),
+                    startTimeoutMs);
+        }
+    }
+
+    private void evaluationFailed(RepricingJob job, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause != null && !(cause instanceof CancellationException)) {
+            log.error("Pricing scenario {} failed", job.getId(), cause);
+            job.stop(RepricingJob.Status.FAILED);
+        }
+    }
+
+    /**
+     * Called once per job when it completes, is cancelled or fails: records it and frees its running slot
+     */
+    private void finished(RepricingJob job) {
+        synchronized (this) {
+            running--;
+            finishedJobs.addLast(job.getId());
+            while (finishedJobs.size() > FINISHED_JOBS_KEPT) {
+                jobs.remove(finishedJobs.removeFirst());
+            }
+        }
+        String outcome = job.getStatus().name().toLowerCase();
+        metrics.recordPricingScenario(outcome, job.elapsedNanos(), job.getEvaluatedRows());
+        log.info("Pricing scenario {} {}: {} of {} rows evaluated, {} written, in {} ms", job.getId(), outcome,
+                job.getEvaluatedRows(), job.getTotalRows(), job.getWrittenRows(), job.getElapsedMs());
+    }
+}
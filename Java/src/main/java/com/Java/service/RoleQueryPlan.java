@@ -0,0 +1,71 @@
+package com.Java.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What a role may filter on and which product view columns its queries return.
+ * Roles that do not see recommendations skip booking_rate and the pricing expression, so DuckDB scans
+ * fewer columns and computes less per row. The arrival date range is a base constraint open to every role.
+ */
+public final class RoleQueryPlan {
+
+    public static final String RECOMMENDED_PRICE = "recommended_price";
+
+    /**
+     * Every column and filter, for internal callers that are not acting for a role
+     */
+    public static final RoleQueryPlan FULL = new RoleQueryPlan("full",
+            Set.of(FacetIndex.BUILDING, FacetIndex.ROOM_TYPE, FacetIndex.BEDS, FacetIndex.GRADE, FacetIndex.PRIVATE_POOL),
+            List.of("building_name", "product_id", "room_name", "beds", "room_type", "private_pool", "grade",
+                    "arrival_date", "current_price", "currency", "booking_rate", RECOMMENDED_PRICE));
+
+    private final String name;
+    private final Set<String> allowedFilters;
+    private final List<String> columns;
+
+    public RoleQueryPlan(String name, Set<String> allowedFilters, List<String> columns) {
+        this.name = name;
+        this.allowedFilters = Set.copyOf(allowedFilters);
+        this.columns = List.copyOf(columns);
+    }
+
+    /**
+     * Filters set in the request that this role may not use, empty when the request is allowed
+     */
+    public List<String> disallowedFilters(DuckDBService.ProductFilterRequest filters) {
+        List<String> disallowed = new ArrayList<>();
+        checkFilter(disallowed, FacetIndex.BUILDING, filters.getBuildings());
+        checkFilter(disallowed, FacetIndex.ROOM_TYPE, filters.getRoomTypes());
+        checkFilter(disallowed, FacetIndex.BEDS, filters.getBeds());
+        checkFilter(disallowed, FacetIndex.GRADE, filters.getGrades());
+        checkFilter(disallowed, FacetIndex.PRIVATE_POOL, filters.getPrivatePool());
+        return disallowed;
+    }
+
+    /**
+     * @throws FilterNotAllowedException if the request uses a filter this role may not use
+     */
+    public void checkAllowed(DuckDBService.ProductFilterRequest filters) {
+        List<String> disallowed = disallowedFilters(filters);
+        if (!disallowed.isEmpty()) {
+            throw new FilterNotAllowedException("Role " + name + " may not filter on " + disallowed);
+        }
+    }
+
+    private void checkFilter(List<String> disallowed, String filter, List<?> values) {
+        if (values != null && !values.isEmpty() && !allowedFilters.contains(filter)) {
+            disallowed.add(filter);
+        }
+    }
+
+    public boolean includesRecommendedPrice() {
+        return columns.contains(RECOMMENDED_PRICE);
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public Set<String> getAllowedFilters() { return allowedFilters; }
+    public List<String> getColumns() { return columns; }
+}
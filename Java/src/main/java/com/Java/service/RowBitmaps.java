@@ -0,0 +1,94 @@
+package com.Java.service;
+
+/**
+ * Word-wise operations on row bitmaps: uncompressed long[] with bit i of word i / 64 standing for row i.
+ * Every bitmap of one index has the same number of words.
+ * Plain words rather than RoaringBitmap: an index is built once per data version over dense row ids 0 to
+ * rowCount - 1 and never updated, and the indexed columns have few distinct values, so most bitmaps are dense
+ * enough that Roaring would keep them as uncompressed containers anyway. A rare value costs rowCount / 8 bytes
+ * here, which the handful of bitmaps per column keeps small, and AND/OR/popcount stay plain loops over long[].
+ */
+final class RowBitmaps {
+
+    private RowBitmaps() {
+    }
+
+    static int words(int rowCount) {
+        return (rowCount + 63) >>> 6;
+    }
+
+    /**
+     * Bitmap with rows 0 to rowCount - 1 set
+     */
+    static long[] all(int rowCount) {
+        long[] bits = new long[words(rowCount)];
+        setRange(bits, 0, rowCount);
+        return bits;
+    }
+
+    /**
+     * Set rows from (inclusive) to to (exclusive)
+     */
+    static void setRange(long[] bits, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            bits[first] |= firstMask & lastMask;
+            return;
+        }
+        bits[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+            bits[i] = -1L;
+        }
+        bits[last] |= lastMask;
+    }
+
+    static void and(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= other[i];
+        }
+    }
+
+    static void or(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= other[i];
+        }
+    }
+
+    static long cardinality(long[] bits) {
+        long count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    static long andCardinality(long[] a, long[] b) {
+        long count = 0;
+        for (int i = 0; i < a.length; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Set rows in ascending order
+     */
+    static int[] toRows(long[] bits) {
+        int[] rows = new int[(int) cardinality(bits)];
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                rows[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,72 @@
+package com.Java.service;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * S3 bucket source. Uses the object ETag as file version so unchanged objects are never downloaded again.
+ * Credentials come from the default AWS provider chain (AWS_ACCESS_KEY_ID / AWS_SECRET_ACCESS_KEY etc.)
+ */
+public class S3SnapshotSource implements SnapshotSource {
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String basePrefix;
+
+    public S3SnapshotSource(String bucket, String basePrefix, String region) {
+        this.s3Client = S3Client.builder().region(Region.of(region)).build();
+        this.bucket = bucket;
+        this.basePrefix = basePrefix.isEmpty() || basePrefix.endsWith("/") ? basePrefix : basePrefix + "/";
+    }
+
+    @Override
+    public List<RemoteFile> listFiles(String prefix) throws IOException {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .prefix(basePrefix + prefix)
+                .build();
+
+        List<RemoteFile> files = new ArrayList<>();
+        try {
+            for (S3Object object : s3Client.listObjectsV2Paginator(request).contents()) {
+                String key = object.key().substring(basePrefix.length());
+                files.add(new RemoteFile(key, object.eTag(), object.size()));
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to list s3://" + bucket + "/" + basePrefix + prefix, e);
+        }
+        return files;
+    }
+
+    @Override
+    public void download(RemoteFile file, Path target) throws IOException {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(basePrefix + file.getKey())
+                .ifMatch(file.getVersion())
+                .build();
+
+        Files.deleteIfExists(target);
+        try {
+            s3Client.getObject(request, ResponseTransformer.toFile(target));
+        } catch (SdkException e) {
+            throw new IOException("Failed to download s3://" + bucket + "/" + basePrefix + file.getKey(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        s3Client.close();
+    }
+}
@@ -0,0 +1,155 @@
+package com.Java.service;
+
+import org.duckdb.DuckDBConnection;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * DataSource over a single DuckDB database.
+ * Every jdbc:duckdb: connection opened through DriverManager is its own in-memory database,
+ * so connections handed out here are duplicates of one root connection and all see the same tables.
+ * Meant to sit behind a connection pool: each new connection runs the init statements once and keeps
+ * its own LRU of prepared statements, so repeated SQL is parsed and planned only once per connection.
+ */
+public class SharedDuckDBDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DuckDBConnection rootConnection;
+    private final List<String> connectionInitSql;
+    private final int statementCacheSize;
+
+    public SharedDuckDBDataSource(String url) throws SQLException {
+        this(url, new Properties(), List.of(), 0);
+    }
+
+    /**
+     * @param properties database-wide options passed when the database is opened, e.g. jdbc_stream_results
+     */
+    public SharedDuckDBDataSource(String url, Properties properties, List<String> connectionInitSql,
+                                  int statementCacheSize) throws SQLException {
+        this.rootConnection = (DuckDBConnection) DriverManager.getConnection(url, properties);
+        this.connectionInitSql = List.copyOf(connectionInitSql);
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = rootConnection.duplicate();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : connectionInitSql) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        if (statementCacheSize <= 0) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new StatementCachingConnection(connection, statementCacheSize));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        rootConnection.close();
+    }
+
+    /**
+     * Reuses PreparedStatements by SQL text. Closing a cached statement only clears its parameters;
+     * statements are really closed on eviction or when the connection itself is closed.
+     */
+    private static final class StatementCachingConnection implements InvocationHandler {
+
+        private final Connection target;
+        private final Map<String, PreparedStatement> statements;
+
+        private StatementCachingConnection(Connection target, int cacheSize) {
+            this.target = target;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > cacheSize) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("prepareStatement".equals(name) && args.length == 1) {
+                return cachedStatement((String) args[0]);
+            }
+            if ("close".equals(name)) {
+                statements.values().forEach(StatementCachingConnection::closeQuietly);
+                statements.clear();
+            }
+            if ("unwrap".equals(name) || "isWrapperFor".equals(name)) {
+                if (((Class<?>) args[0]).isInstance(target)) {
+                    return "unwrap".equals(name) ? target : true;
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private PreparedStatement cachedStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = target.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            PreparedStatement cached = statement;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if ("close".equals(method.getName())) {
+                            cached.clearParameters();
+                            return null;
+                        }
+                        if ("isClosed".equals(method.getName())) {
+                            return false;
+                        }
+                        if ("getConnection".equals(method.getName())) {
+                            return target;
+                        }
+                        try {
+                            return method.invoke(cached, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        private static void closeQuietly(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // already unusable, nothing else to release
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.Java.service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses identical concurrent loads into one: the first caller for a key and data version runs the loader,
+ * callers arriving while it runs wait for and share its result (or its exception).
+ * Waiters give up after the timeout with QueryRejectedException rather than queueing behind a stuck load.
+ */
+public class SingleFlight<K, V> {
+
+    private final long timeoutNanos;
+    private final ConcurrentHashMap<FlightKey<K>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(Duration timeout) {
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public V execute(K key, long dataVersion, Supplier<V> loader) {
+        FlightKey<K> flightKey = new FlightKey<>(key, dataVersion);
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            shared.increment();
+            return await(flightKey, existing);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private V await(FlightKey<K> flightKey, CompletableFuture<V> flight) {
+        try {
+            return flight.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new QueryRejectedException("Timed out waiting for an identical in-flight query for " + flightKey.key,
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(timeoutNanos)));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("In-flight query was cancelled", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight query", e);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /** Loads actually run */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /** Callers served from another caller's load */
+    public long getShared() {
+        return shared.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    // Same filter against another snapshot is a different query
+    private static final class FlightKey<K> {
+        private final K key;
+        private final long dataVersion;
+
+        private FlightKey(K key, long dataVersion) {
+            this.key = key;
+            this.dataVersion = dataVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FlightKey)) return false;
+            FlightKey<?> other = (FlightKey<?>) o;
+            return dataVersion == other.dataVersion && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, dataVersion);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.Java.service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring buffer of the most recent queries that ran over the slow-query threshold.
+ * Once full, each new entry pushes out the oldest.
+ */
+public class SlowQueryLog {
+
+    private final int capacity;
+    private final ArrayDeque<SlowQuery> entries;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SlowQueryLog(int capacity) {
+        this.capacity = capacity;
+        this.entries = new ArrayDeque<>(Math.max(0, capacity));
+    }
+
+    public void add(SlowQuery query) {
+        query.id = sequence.incrementAndGet();
+        if (capacity <= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (entries.size() == capacity) {
+                entries.pollFirst();
+            }
+            entries.addLast(query);
+        }
+    }
+
+    /**
+     * Newest entries first, optionally only those for one endpoint
+     */
+    public synchronized List<SlowQuery> recent(int limit, String endpoint) {
+        List<SlowQuery> result = new ArrayList<>();
+        Iterator<SlowQuery> newestFirst = entries.descendingIterator();
+        while (newestFirst.hasNext() && result.size() < limit) {
+            SlowQuery query = newestFirst.next();
+            if (endpoint == null || endpoint.equals(query.getEndpoint())) {
+                result.add(query);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Slow queries seen since startup, including those already pushed out of the buffer
+     */
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+
+    // One query over the threshold; the profile is filled in later when this query was sampled for EXPLAIN ANALYZE
+    public static class SlowQuery {
+        private long id;
+        private final Instant timestamp;
+        private final String endpoint;
+        private final String sql;
+        private final List<String> parameters;
+        private final long wallTimeMs;
+        private final long executeTimeMs;
+        private final long rows;
+        private final long dataVersion;
+        private volatile String profile;
+
+        public SlowQuery(Instant timestamp, String endpoint, String sql, List<String> parameters,
+                         long wallTimeMs, long executeTimeMs, long rows, long dataVersion) {
+            this.timestamp = timestamp;
+            this.endpoint = endpoint;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.wallTimeMs = wallTimeMs;
+            this.executeTimeMs = executeTimeMs;
+            this.rows = rows;
+            this.dataVersion = dataVersion;
+        }
+
+        // Getters and setters
+        public long getId() { return id; }
+        public Instant getTimestamp() { return timestamp; }
+        public String getEndpoint() { return endpoint; }
+        public String getSql() { return sql; }
+        public List<String> getParameters() { return parameters; }
+        public long getWallTimeMs() { return wallTimeMs; }
+        public long getExecuteTimeMs() { return executeTimeMs; }
+        public long getRows() { return rows; }
+        public long getDataVersion() { return dataVersion; }
+        public String getProfile() { return profile; }
+        public void setProfile(String profile) { this.profile = profile; }
+    }
+}
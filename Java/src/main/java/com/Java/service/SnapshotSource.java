@@ -0,0 +1,52 @@
+package com.Java.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Remote location the Parquet snapshot is synced from (S3 bucket or a local directory stand-in)
+ */
+public interface SnapshotSource extends Closeable {
+
+    /**
+     * List all files below a prefix, with a version tag that changes whenever the file content changes
+     */
+    List<RemoteFile> listFiles(String prefix) throws IOException;
+
+    /**
+     * Copy a remote file to the given local path
+     */
+    void download(RemoteFile file, Path target) throws IOException;
+
+    /**
+     * Call onChange whenever files may have changed on the source, until closed.
+     * Returns false when the source cannot notify and has to be polled.
+     */
+    default boolean watch(Runnable onChange) throws IOException {
+        return false;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    // File entry as seen on the source
+    class RemoteFile {
+        private final String key;
+        private final String version;
+        private final long size;
+
+        public RemoteFile(String key, String version, long size) {
+            this.key = key;
+            this.version = version;
+            this.size = size;
+        }
+
+        // Getters
+        public String getKey() { return key; }
+        public String getVersion() { return version; }
+        public long getSize() { return size; }
+    }
+}
@@ -0,0 +1,38 @@
+package com.Java.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Published after a snapshot sync changed at least one local Parquet file
+ */
+public class SnapshotUpdatedEvent {
+    private final long version;
+    private final Set<String> changedDatasets;
+    private final Set<String> rewrittenDatasets;
+    private final Map<String, List<String>> addedFiles;
+
+    public SnapshotUpdatedEvent(long version, Set<String> changedDatasets, Set<String> rewrittenDatasets,
+                                Map<String, List<String>> addedFiles) {
+        this.version = version;
+        this.changedDatasets = changedDatasets;
+        this.rewrittenDatasets = rewrittenDatasets;
+        this.addedFiles = addedFiles;
+    }
+
+    /**
+     * True when every change is a newly landed file, so the new files can be applied as deltas
+     */
+    public boolean isAppendOnly() {
+        return rewrittenDatasets.isEmpty();
+    }
+
+    // Getters
+    public long getVersion() { return version; }
+    public Set<String> getChangedDatasets() { return changedDatasets; }
+    /** Datasets where an existing file was replaced or removed */
+    public Set<String> getRewrittenDatasets() { return rewrittenDatasets; }
+    /** Local paths of newly landed files by dataset */
+    public Map<String, List<String>> getAddedFiles() { return addedFiles; }
+}
@@ -0,0 +1,11 @@
+package com.Java.service;
+
+/**
+ * Thrown when a request names a role that has no query plan
+ */
+public class UnknownRoleException extends RuntimeException {
+
+    public UnknownRoleException(String role) {
+        super("Unknown role: " + role);
+    }
+}
@@ -0,0 +1,93 @@
+package com.Java.controller;
+
+import com.Java.dto.BuildingGroupResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Columnar Product Message Converter Tests")
+class ColumnarProductMessageConverterTest {
+
+    private final ColumnarProductMessageConverter converter = new ColumnarProductMessageConverter();
+
+    @Test
+    @DisplayName("Should only write building groups in the columnar media type")
+    void shouldOnlyWriteBuildingGroups() {
+        // Given
+        var groups = new ParameterizedTypeReference<List<BuildingGroupResponse>>() { }.getType();
+        var other = new ParameterizedTypeReference<List<Map<String, Object>>>() { }.getType();
+
+        // Then
+        assertTrue(converter.canWrite(groups, List.class, ColumnarProductMessageConverter.COLUMNAR));
+        assertFalse(converter.canWrite(groups, List.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(other, List.class, ColumnarProductMessageConverter.COLUMNAR));
+        assertFalse(converter.canRead(groups, null, ColumnarProductMessageConverter.COLUMNAR));
+    }
+
+    @Test
+    @DisplayName("Should dictionary-encode strings and write whole columns")
+    void shouldWriteDictionaryEncodedColumns() throws IOException {
+        // Given
+        List<BuildingGroupResponse> groups = List.of(
+                new BuildingGroupResponse("North Tower", List.of(
+                        product("PROD_1", "2", "USD"),
+                        product("PROD_1", null, "EUR"))),
+                new BuildingGroupResponse("Annex A", List.of(
+                        product("PROD_2", "3.5", "USD"))));
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        // When
+        converter.write(groups, ColumnarProductMessageConverter.COLUMNAR, output);
+
+        // Then
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(output.getBodyAsBytes()));
+        assertEquals("HPC1", new String(in.readNBytes(4), StandardCharsets.US_ASCII));
+        List<String> strings = new ArrayList<>();
+        int stringCount = in.readInt();
+        for (int i = 0; i < stringCount; i++) {
+            strings.add(new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of("North Tower", "PROD_1", "Sea View", "Double", "Yes", "USD", "EUR", "Annex A", "PROD_2"),
+                strings, "Repeated strings should be sent once");
+
+        assertEquals(2, in.readInt());
+        assertEquals(List.of(0, 2, 7, 1), List.of(in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+        assertEquals(3, in.readInt());
+        assertArrayEquals(new int[] {1, 1, 8}, readInts(in, 3), "productId column");
+        in.skipNBytes(4 * 3 * 4);
+        assertArrayEquals(new int[] {5, 6, 5}, readInts(in, 3), "currency column");
+        assertEquals(100.0, in.readDouble());
+        in.skipNBytes(2 * 8);
+        assertEquals(2.0, in.readDouble());
+        assertTrue(Double.isNaN(in.readDouble()), "A null price should be NaN");
+        assertEquals(3.5, in.readDouble());
+        assertEquals(0, in.available());
+    }
+
+    private static BuildingGroupResponse.ProductSummary product(String productId, String recommendedPrice,
+                                                                String currency) {
+        return new BuildingGroupResponse.ProductSummary(productId, "Sea View", 2, "Double", "Yes",
+                new BigDecimal("100.00"), recommendedPrice != null ? new BigDecimal(recommendedPrice) : null, currency);
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+}
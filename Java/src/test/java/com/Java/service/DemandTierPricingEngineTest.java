@@ -0,0 +1,159 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Demand Tier Pricing Engine Tests")
+class DemandTierPricingEngineTest {
+
+    private DemandTierPricingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = DuckDBServiceTest.pricingEngine();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "10000, 0.95, 12000",
+            "10000, 0.8, 12000",
+            "10000, 0.799, 11000",
+            "10000, 0.6, 11000",
+            "10000, 0.4, 10500",
+            "10000, 0.1, 9500",
+            "13333, 0.4, 14000",
+            "0, 0.9, 0"
+    })
+    @DisplayName("Should apply the multiplier of the highest tier reached")
+    void shouldApplyHighestTierReached(long priceMinor, double bookingRate, long expected) {
+        assertEquals(expected, engine.recommend(priceMinor, bookingRate));
+    }
+
+    @Test
+    @DisplayName("Should use the default booking rate when it is unknown")
+    void shouldUseDefaultBookingRateWhenUnknown() {
+        assertEquals(engine.recommend(10000, 0.5), engine.recommend(10000, Double.NaN));
+    }
+
+    @Test
+    @DisplayName("Should reprice a batch the same as row by row")
+    void shouldRepriceBatchLikeSingleRows() {
+        // Given
+        long[] prices = {5000, 12345, 99999, 100};
+        double[] rates = {0.9, Double.NaN, 0.61, 0.0};
+        long[] recommended = new long[prices.length + 1];
+
+        // When
+        engine.recommend(prices, rates, recommended, prices.length);
+
+        // Then
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(engine.recommend(prices[i], rates[i]), recommended[i]);
+        }
+        assertEquals(0, recommended[prices.length], "Entries past length should be left alone");
+    }
+
+    @Test
+    @DisplayName("Should honour configured tiers in any order")
+    void shouldHonourConfiguredTiers() {
+        // Given
+        DemandTierPricingEngine custom = new DemandTierPricingEngine();
+        ReflectionTestUtils.setField(custom, "demandTiers", "0.5=1.0125, 0.9=1.5");
+        ReflectionTestUtils.setField(custom, "baseMultiplier", "0.8");
+        ReflectionTestUtils.setField(custom, "defaultBookingRate", 0.0);
+
+        // When
+        custom.init();
+
+        // Then
+        assertEquals(15000, custom.recommend(10000, 0.95));
+        assertEquals(10125, custom.recommend(10000, 0.7));
+        assertEquals(8000, custom.recommend(10000, Double.NaN));
+    }
+
+    @Test
+    @DisplayName("Should price a scenario with its own tiers and keep the rest of the configuration")
+    void shouldPriceScenarioWithItsOwnTiers() {
+        // Given
+        PricingScenario scenario = new PricingScenario();
+        scenario.setDemandTiers("0.7=1.30");
+
+        // When
+        DemandTierPricingEngine whatIf = engine.forScenario(scenario);
+
+        // Then
+        assertEquals(13000, whatIf.recommend(10000, 0.75));
+        assertEquals(9500, whatIf.recommend(10000, 0.65), "Base multiplier should stay configured");
+        assertEquals(12000, engine.recommend(10000, 0.85), "Live engine should be unchanged");
+        scenario.setBaseMultiplier("abc");
+        assertThrows(IllegalArgumentException.class, () -> engine.forScenario(scenario));
+    }
+
+    @Test
+    @DisplayName("Should reject multipliers finer than a basis point")
+    void shouldRejectMultipliersFinerThanBasisPoint() {
+        DemandTierPricingEngine custom = new DemandTierPricingEngine();
+        ReflectionTestUtils.setField(custom, "demandTiers", "0.5=1.00001");
+        ReflectionTestUtils.setField(custom, "baseMultiplier", "1");
+        assertThrows(IllegalArgumentException.class, custom::init);
+    }
+
+    @Test
+    @DisplayName("Should reject negative and out-of-range scenario multipliers")
+    void shouldRejectOutOfRangeScenarioMultipliers() {
+        // Given
+        PricingScenario huge = new PricingScenario();
+        huge.setBaseMultiplier("1000000000");
+        PricingScenario negative = new PricingScenario();
+        negative.setDemandTiers("0.5=-1.10");
+        PricingScenario highest = new PricingScenario();
+        highest.setBaseMultiplier("10");
+
+        // Then
+        assertThrows(IllegalArgumentException.class, () -> engine.forScenario(huge));
+        assertThrows(IllegalArgumentException.class, () -> engine.forScenario(negative));
+        assertEquals(100000, engine.forScenario(highest).recommend(10000, 0.1));
+        assertThrows(ArithmeticException.class, () -> engine.forScenario(highest).recommend(Long.MAX_VALUE / 2, 0.1),
+                "A price too large to reprice should fail rather than overflow");
+    }
+
+    @Test
+    @DisplayName("Should render a SQL expression that matches the Java result")
+    void shouldRenderMatchingSqlExpression() throws Exception {
+        // Given
+        String sql = "SELECT price, rate, " + engine.toSqlExpression("price", "rate") + " FROM (VALUES "
+                + "(100.00::DECIMAL(10,2), 0.800::DECIMAL(5,3)), (133.33, 0.400), (19.99, 0.599), "
+                + "(50.00, NULL), (NULL, 0.900), (0.01, 0.000)) t(price, rate)";
+
+        // When
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+
+            // Then
+            int rows = 0;
+            while (resultSet.next()) {
+                BigDecimal price = resultSet.getBigDecimal(1);
+                BigDecimal rate = resultSet.getBigDecimal(2);
+                long expected = engine.recommend(price != null ? PricingEngine.toMinorUnits(price) : 0,
+                        rate != null ? rate.doubleValue() : Double.NaN);
+                assertEquals(PricingEngine.fromMinorUnits(expected), resultSet.getBigDecimal(3),
+                        "Mismatch for price " + price + " at rate " + rate);
+                rows++;
+            }
+            assertEquals(6, rows);
+        }
+    }
+}
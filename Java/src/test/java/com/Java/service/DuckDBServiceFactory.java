@@ -0,0 +1,77 @@
+package com.Java.service;
+
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a DuckDBService outside Spring, for tests and benchmarks. Collaborators go through its constructor;
+ * every @Value setting takes the default it declares unless overridden by property name, and one that declares
+ * no default must be given. The service is returned uninitialised, so call init() as the container would.
+ */
+public final class DuckDBServiceFactory {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^:}]+)(?::([^}]*))?}");
+
+    private final ParquetSnapshotService snapshotService;
+    private final PricingEngine pricingEngine;
+    private final ProductMetrics metrics;
+    private final Map<String, Object> settings = new HashMap<>();
+
+    private DuckDBServiceFactory(ParquetSnapshotService snapshotService, PricingEngine pricingEngine,
+                                 ProductMetrics metrics) {
+        this.snapshotService = snapshotService;
+        this.pricingEngine = pricingEngine;
+        this.metrics = metrics;
+    }
+
+    public static DuckDBServiceFactory of(ParquetSnapshotService snapshotService, PricingEngine pricingEngine,
+                                          ProductMetrics metrics) {
+        return new DuckDBServiceFactory(snapshotService, pricingEngine, metrics);
+    }
+
+    /**
+     * Override a setting by its property name, e.g. products.cache.max-entries
+     */
+    public DuckDBServiceFactory with(String property, Object value) {
+        settings.put(property, value);
+        return this;
+    }
+
+    public DuckDBService create() {
+        DuckDBService service = new DuckDBService(snapshotService, pricingEngine, metrics,
+                new ProductGroupingService());
+        SimpleTypeConverter converter = new SimpleTypeConverter();
+        Set<String> unknown = new HashSet<>(settings.keySet());
+        for (Field field : DuckDBService.class.getDeclaredFields()) {
+            Value value = field.getAnnotation(Value.class);
+            if (value == null) {
+                continue;
+            }
+            Matcher placeholder = PLACEHOLDER.matcher(value.value());
+            if (!placeholder.matches()) {
+                throw new IllegalStateException("Unsupported @Value on " + field.getName() + ": " + value.value());
+            }
+            String property = placeholder.group(1);
+            unknown.remove(property);
+            Object setting = settings.containsKey(property) ? settings.get(property) : placeholder.group(2);
+            if (setting == null) {
+                throw new IllegalStateException(property + " has no default and was not given");
+            }
+            ReflectionTestUtils.setField(service, field.getName(),
+                    converter.convertIfNecessary(String.valueOf(setting), field.getType()));
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Not DuckDBService settings: " + unknown);
+        }
+        return service;
+    }
+}
@@ -0,0 +1,835 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import com.Java.dto.ProductChangesResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DuckDB Service Tests")
+class DuckDBServiceTest {
+
+    private static final int PRODUCT_COUNT = 200;
+
+    @TempDir
+    Path tempDir;
+
+    private Path bucket;
+    private ParquetSnapshotService snapshotService;
+    private DuckDBService duckDBService;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bucket = tempDir.resolve("bucket");
+        SampleDataFixtures.writeBucket(bucket, PRODUCT_COUNT);
+
+        meterRegistry = new SimpleMeterRegistry();
+        snapshotService = new ParquetSnapshotService();
+        ReflectionTestUtils.setField(snapshotService, "sourceUri", bucket.toUri().toString());
+        ReflectionTestUtils.setField(snapshotService, "localDir", tempDir.resolve("snapshot").toString());
+        ReflectionTestUtils.setField(snapshotService, "region", "eu-north-1");
+        ReflectionTestUtils.setField(snapshotService, "eventPublisher", (ApplicationEventPublisher) event -> {
+            if (event instanceof SnapshotUpdatedEvent) {
+                duckDBService.onSnapshotUpdated((SnapshotUpdatedEvent) event);
+            }
+        });
+        snapshotService.init();
+
+        duckDBService = services(snapshotService, meterRegistry).create();
+        duckDBService.init();
+    }
+
+    private static DuckDBServiceFactory services(ParquetSnapshotService snapshotService, MeterRegistry meterRegistry) {
+        return DuckDBServiceFactory.of(snapshotService, pricingEngine(), metrics(meterRegistry))
+                .with("aws.s3.bucket-name", "test-bucket")
+                .with("products.cache.max-entries", 16)
+                .with("products.cache.ttl-seconds", 60)
+                .with("products.slow-query.threshold-ms", 60_000)
+                .with("products.slow-query.capacity", 16)
+                .with("products.delta.history", 4)
+                .with("duckdb.pool.max-size", 4)
+                .with("duckdb.statement-cache-size", 8)
+                .with("duckdb.connection-init-sql", "SET enable_progress_bar = false");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        duckDBService.close();
+    }
+
+    @Test
+    @DisplayName("Should return every product price row without filters")
+    void shouldReturnAllRowsWithoutFilters() {
+        // When
+        List<ProductRow> rows = duckDBService.getProductsWithPricesAndMetrics();
+
+        // Then
+        Long expected = countFromSnapshot("SELECT count(*) FROM read_parquet('%s')",
+                snapshotService.getDatasetGlob(ParquetSnapshotService.PRICES));
+        assertEquals(expected.intValue(), rows.size(), "Every price row should be joined to its product");
+        assertEquals(1, duckDBService.getDataVersion());
+        assertTrue(rows.stream().anyMatch(row -> row.getBookingRate() != null), "Cluster metrics should be joined");
+    }
+
+    @Test
+    @DisplayName("Should apply building and bed filters")
+    void shouldApplyBuildingAndBedFilters() {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of("North Tower", "Annex A"));
+        filters.setBeds(List.of(2));
+
+        // When
+        List<ProductRow> rows = duckDBService.getProductsWithFiltersOptimized(filters);
+
+        // Then
+        assertFalse(rows.isEmpty());
+        for (ProductRow row : rows) {
+            assertTrue(List.of("North Tower", "Annex A").contains(row.getBuildingName()));
+            assertEquals(2, row.getBeds());
+        }
+    }
+
+    @Test
+    @DisplayName("Should record query timings, row counts and selectivity per endpoint")
+    void shouldRecordQueryMetrics() {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of("North Tower"));
+
+        // When
+        int rows = duckDBService.getProductsWithFiltersOptimized(filters).size();
+        duckDBService.getProductsWithFiltersOptimized(filters);
+        duckDBService.getMultiCurrencyPage(null, false, null, 0, 5);
+
+        // Then - the cached second call does not reach DuckDB
+        Timer execute = meterRegistry.get("products.query.execute").tag("endpoint", ProductMetrics.GROUPED_BY_BUILDING).timer();
+        assertEquals(1, execute.count());
+        assertEquals(1, meterRegistry.get("products.query.materialize")
+                .tag("endpoint", ProductMetrics.GROUPED_BY_BUILDING).timer().count());
+        DistributionSummary rowCounts = meterRegistry.get("products.query.rows")
+                .tag("endpoint", ProductMetrics.GROUPED_BY_BUILDING).summary();
+        assertEquals(rows, rowCounts.totalAmount(), 0.0);
+        DistributionSummary selectivity = meterRegistry.get("products.query.selectivity")
+                .tag("endpoint", ProductMetrics.GROUPED_BY_BUILDING).summary();
+        assertEquals((double) rows / duckDBService.getProductRowCount(), selectivity.totalAmount(), 1e-9);
+        assertEquals(5, meterRegistry.get("products.query.rows").tag("endpoint", ProductMetrics.MULTI_CURRENCY)
+                .summary().totalAmount(), 0.0);
+        assertEquals(1, meterRegistry.get("products.refresh").tag("mode", "rebuild").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should log queries over the threshold with their parameters and a sampled profile")
+    void shouldLogSlowQueriesWithProfile() throws Exception {
+        // Given - every query counts as slow and is profiled
+        ReflectionTestUtils.setField(duckDBService, "slowQueryThresholdMs", 0L);
+        ReflectionTestUtils.setField(duckDBService, "explainSampleRate", 1.0);
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of("North Tower"));
+        filters.setBeds(List.of(2));
+        filters.setArrivalDateFrom("2025-01-01");
+
+        // When
+        int rows = duckDBService.getProductsWithFiltersOptimized(filters).size();
+
+        // Then
+        List<SlowQueryLog.SlowQuery> logged = duckDBService.getSlowQueryLog().recent(10, ProductMetrics.GROUPED_BY_BUILDING);
+        assertEquals(1, logged.size());
+        SlowQueryLog.SlowQuery query = logged.get(0);
+        assertTrue(query.getSql().contains("building_name IN (?)"));
+        assertEquals(List.of("North Tower", "2", "2025-01-01"), query.getParameters());
+        assertEquals(rows, query.getRows());
+        assertEquals(duckDBService.getDataVersion(), query.getDataVersion());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (query.getProfile() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNotNull(query.getProfile(), "Sampled slow query should get an EXPLAIN ANALYZE profile");
+        assertTrue(query.getProfile().contains("'North Tower'"), "Profile should show the inlined parameters");
+    }
+
+    @Test
+    @DisplayName("Should give facet counts that match the filtered query results")
+    void shouldMatchFacetCountsWithQueries() {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of("North Tower", "Annex A"));
+        filters.setArrivalDateFrom("2024-03-01");
+        filters.setArrivalDateTo("2024-06-30");
+
+        // When
+        FacetIndex.FacetCounts counts = duckDBService.getFacetCounts(filters);
+
+        // Then
+        assertEquals(duckDBService.getDataVersion(), counts.getDataVersion());
+        assertTrue(counts.getTotal() > 0);
+        assertEquals(duckDBService.getProductsWithFiltersOptimized(filters).size(), counts.getTotal());
+
+        // Building counts ignore the building selection, so they match the query with only the date range
+        DuckDBService.ProductFilterRequest datesOnly = new DuckDBService.ProductFilterRequest();
+        datesOnly.setArrivalDateFrom("2024-03-01");
+        datesOnly.setArrivalDateTo("2024-06-30");
+        Map<Object, Long> expected = duckDBService.getProductsWithFiltersOptimized(datesOnly).stream()
+                .collect(Collectors.groupingBy(row -> (Object) row.getBuildingName(), Collectors.counting()));
+        Map<Object, Long> actual = counts.getFacets().get(FacetIndex.BUILDING).stream()
+                .filter(value -> value.getCount() > 0)
+                .collect(Collectors.toMap(FacetIndex.FacetValue::getValue, FacetIndex.FacetValue::getCount));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Should apply arrival date range")
+    void shouldApplyArrivalDateRange() {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setArrivalDateFrom("2024-03-01");
+        filters.setArrivalDateTo("2024-03-31");
+
+        // When
+        List<ProductRow> rows = duckDBService.getProductsWithFiltersOptimized(filters);
+
+        // Then
+        assertFalse(rows.isEmpty());
+        for (ProductRow row : rows) {
+            String arrival = row.getArrivalDate().toString();
+            assertTrue(arrival.startsWith("2024-03"), "Unexpected arrival date " + arrival);
+        }
+    }
+
+    @Test
+    @DisplayName("Should return rows ordered by building")
+    void shouldReturnRowsOrderedByBuilding() {
+        // When
+        List<ProductRow> rows = duckDBService.getProductsWithPricesAndMetrics();
+
+        // Then
+        for (int i = 1; i < rows.size(); i++) {
+            String previous = rows.get(i - 1).getBuildingName();
+            String current = rows.get(i).getBuildingName();
+            assertTrue(previous.compareTo(current) <= 0, "Rows should be grouped by building");
+        }
+    }
+
+    @Test
+    @DisplayName("Should swap in a new product view when the snapshot changes")
+    void shouldSwapProductViewOnSnapshotChange() throws Exception {
+        // Given
+        SampleDataFixtures.writeDataset(bucket, "prices",
+                "SELECT product_id, 999.00::DECIMAL(10,2) AS Price, 'USD' AS Currency FROM read_parquet('"
+                        + snapshotService.getDatasetGlob(ParquetSnapshotService.BUILDINGS) + "')");
+
+        // When
+        snapshotService.sync();
+
+        // Then
+        List<ProductRow> rows = duckDBService.getProductsWithPricesAndMetrics();
+        assertEquals(2, duckDBService.getDataVersion());
+        assertEquals(PRODUCT_COUNT, rows.size(), "One USD price per product after the update");
+        for (ProductRow row : rows) {
+            assertEquals(0, new BigDecimal("999.00").compareTo(row.getCurrentPrice()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should return only the plan's columns and enforce its filters")
+    void shouldApplyRoleQueryPlan() {
+        // Given
+        RoleQueryPlan plan = new FilterConfigurationService().getQueryPlan("regional_manager");
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of("North Tower"));
+
+        // When
+        List<ProductRow> planRows = duckDBService.getProductsWithFiltersOptimized(filters, plan);
+        List<ProductRow> fullRows = duckDBService.getProductsWithFiltersOptimized(filters);
+
+        // Then
+        assertEquals(fullRows.size(), planRows.size(), "Plans should select the same rows");
+        assertFalse(plan.getColumns().contains("booking_rate"));
+        assertTrue(planRows.stream().allMatch(row -> row.getBookingRate() == null && row.getGrade() == null
+                && row.getArrivalDate() == null && !row.hasRecommendation()), "Columns outside the plan stay empty");
+        assertTrue(planRows.stream().allMatch(row -> row.getProductId() != null && row.getBuildingName() != null));
+        assertTrue(fullRows.stream().allMatch(ProductRow::hasRecommendation));
+        assertTrue(fullRows.stream().anyMatch(row -> row.getRecommendedPrice() != null));
+        assertEquals(2, duckDBService.getCacheStats().getMisses(), "Plans should be cached separately");
+
+        filters.setGrades(List.of(4));
+        assertThrows(FilterNotAllowedException.class,
+                () -> duckDBService.getProductsWithFiltersOptimized(filters, plan));
+        assertThrows(FilterNotAllowedException.class,
+                () -> duckDBService.streamProductsWithFilters(filters, plan, row -> { }));
+    }
+
+    @Test
+    @DisplayName("Should group the same rows from the product store as from the filter query")
+    void shouldServeGroupsFromProductStore() {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setRoomTypes(List.of("Suite", "Double"));
+        filters.setArrivalDateFrom("2024-03-01");
+        ProductGroupingService groupingService = new ProductGroupingService();
+
+        // When
+        List<BuildingGroupResponse> fromStore = duckDBService.getProductsGroupedByBuilding(filters, RoleQueryPlan.FULL);
+        List<BuildingGroupResponse> fromQuery = groupingService.groupProductsByBuilding(
+                duckDBService.getProductsWithFiltersOptimized(filters));
+
+        // Then
+        assertFalse(fromStore.isEmpty());
+        assertEquals(groupKeys(fromQuery), groupKeys(fromStore));
+        assertTrue(duckDBService.getProductStoreBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Should leave grouping to the filter query when there is no product store")
+    void shouldFallBackWithoutProductStore() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(duckDBService, "productStoreEnabled", false);
+        ReflectionTestUtils.setField(duckDBService, "dataVersion", -1L);
+
+        // When
+        duckDBService.refreshProductView();
+
+        // Then
+        assertNull(duckDBService.getProductsGroupedByBuilding(new DuckDBService.ProductFilterRequest(),
+                RoleQueryPlan.FULL));
+        assertEquals(0, duckDBService.getProductStoreBytes());
+    }
+
+    @Test
+    @DisplayName("Should serve equivalent filters from the result cache")
+    void shouldServeEquivalentFiltersFromCache() {
+        // Given
+        DuckDBService.ProductFilterRequest first = new DuckDBService.ProductFilterRequest();
+        first.setBuildings(List.of("North Tower", "Annex A"));
+        DuckDBService.ProductFilterRequest second = new DuckDBService.ProductFilterRequest();
+        second.setBuildings(List.of("Annex A", "North Tower"));
+        second.setGrades(List.of());
+
+        // When
+        List<ProductRow> firstRows = duckDBService.getProductsWithFiltersOptimized(first);
+        List<ProductRow> secondRows = duckDBService.getProductsWithFiltersOptimized(second);
+
+        // Then
+        assertSame(firstRows, secondRows, "Second request should be a cache hit");
+        assertEquals(1, duckDBService.getCacheStats().getHits());
+        assertEquals(1, duckDBService.getCacheStats().getMisses());
+    }
+
+    @Test
+    @DisplayName("Should invalidate cached results when the data version changes")
+    void shouldInvalidateCacheOnNewDataVersion() throws Exception {
+        // Given
+        List<ProductRow> before = duckDBService.getProductsWithPricesAndMetrics();
+        SampleDataFixtures.writeDataset(bucket, "prices",
+                "SELECT product_id, 1.00::DECIMAL(10,2) AS Price, 'USD' AS Currency FROM read_parquet('"
+                        + snapshotService.getDatasetGlob(ParquetSnapshotService.BUILDINGS) + "')");
+
+        // When
+        snapshotService.sync();
+        List<ProductRow> after = duckDBService.getProductsWithPricesAndMetrics();
+
+        // Then
+        assertNotSame(before, after);
+        assertEquals(PRODUCT_COUNT, after.size());
+        assertEquals(0, duckDBService.getCacheStats().getHits());
+    }
+
+    @Test
+    @DisplayName("Should stream the same rows as the materialized query")
+    void shouldStreamSameRowsAsMaterializedQuery() {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setRoomTypes(List.of("Suite", "Deluxe"));
+        List<ProductRow> streamed = new ArrayList<>();
+
+        // When
+        duckDBService.streamProductsWithFilters(filters, streamed::add);
+
+        // Then
+        List<ProductRow> materialized = duckDBService.getProductsWithFiltersOptimized(filters);
+        assertEquals(materialized, streamed);
+
+        List<ProductRow> replayed = new ArrayList<>();
+        duckDBService.streamProductsWithFilters(filters, replayed::add);
+        assertEquals(materialized, replayed, "Cached results should be replayed");
+    }
+
+    @Test
+    @DisplayName("Should hold one running slot for a burst of identical queries")
+    void shouldHoldOneRunningSlotForIdenticalBurst() throws Exception {
+        // Given - one running slot, and the first query parked while holding it
+        ProductQueryExecutor queryExecutor = new ProductQueryExecutor();
+        ReflectionTestUtils.setField(queryExecutor, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(queryExecutor, "maxQueued", 16);
+        ReflectionTestUtils.setField(queryExecutor, "queueTimeoutMs", 50L);
+        ReflectionTestUtils.setField(queryExecutor, "virtualThreads", true);
+        queryExecutor.init();
+        AtomicInteger slotsTaken = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ProductQueryExecutor.Permit> runningSlot = () -> {
+            ProductQueryExecutor.Permit permit = queryExecutor.acquireRunning();
+            slotsTaken.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return permit;
+        };
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of(SampleDataFixtures.BUILDINGS[1]));
+        long coalescedBefore = duckDBService.getCoalescedQueryCount();
+
+        // When
+        List<CompletableFuture<List<ProductRow>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(queryExecutor.dispatch(() ->
+                    duckDBService.getProductsWithFiltersOptimized(filters, RoleQueryPlan.FULL, runningSlot)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (duckDBService.getCoalescedQueryCount() - coalescedBefore < 7 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        // Then - waiting past the 50 ms slot timeout, the followers were not rejected
+        try {
+            List<ProductRow> first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (CompletableFuture<List<ProductRow>> result : results) {
+                assertEquals(first, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, slotsTaken.get(), "Only the query actually run should take a slot");
+            assertEquals(0, queryExecutor.getRejectedCount());
+            assertEquals(0, queryExecutor.getRunningCount());
+        } finally {
+            queryExecutor.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve concurrent queries from the pooled connections")
+    void shouldServeConcurrentQueriesFromPool() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 32; i++) {
+            DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+            filters.setBuildings(List.of(SampleDataFixtures.BUILDINGS[i % SampleDataFixtures.BUILDINGS.length]));
+            filters.setGrades(List.of(1, 2, 3, 4, 5, 7).subList(0, 1 + i % 6));
+            results.add(executor.submit(() -> duckDBService.getProductsWithFiltersOptimized(filters).size()));
+        }
+
+        // Then
+        try {
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(30, TimeUnit.SECONDS);
+            }
+            assertTrue(total > 0, "Every thread should see the shared product view");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should sort the multi-currency view on a currency with missing prices last")
+    void shouldSortMultiCurrencyViewWithMissingPricesLast() {
+        // Given
+        assertEquals(List.of("EGP", "EUR", "GBP", "USD"), duckDBService.getCurrencies());
+
+        // When
+        List<MultiCurrencyRow> rows = duckDBService.getMultiCurrencyPage("EUR", true, null, 0, PRODUCT_COUNT);
+
+        // Then
+        assertEquals(PRODUCT_COUNT, rows.size(), "One row per product");
+        boolean seenMissing = false;
+        for (int i = 0; i < rows.size(); i++) {
+            BigDecimal price = rows.get(i).getPrice("EUR");
+            if (price == null) {
+                seenMissing = true;
+            } else {
+                assertFalse(seenMissing, "Products without a EUR price should come last");
+                if (i > 0) {
+                    assertTrue(price.compareTo(rows.get(i - 1).getPrice("EUR")) <= 0);
+                }
+            }
+        }
+        assertTrue(seenMissing, "Fixture should have products without a EUR price");
+    }
+
+    @Test
+    @DisplayName("Should page through the multi-currency view with a cursor")
+    void shouldPageThroughMultiCurrencyViewWithCursor() {
+        // Given
+        List<String> expected = duckDBService.getMultiCurrencyPage("GBP", false, null, 0, PRODUCT_COUNT).stream()
+                .map(MultiCurrencyRow::getProductId).collect(Collectors.toList());
+
+        // When
+        List<String> paged = new ArrayList<>();
+        ProductPageCursor cursor = null;
+        List<MultiCurrencyRow> page;
+        do {
+            page = duckDBService.getMultiCurrencyPage("GBP", false, cursor, 0, 7);
+            for (MultiCurrencyRow row : page) {
+                paged.add(row.getProductId());
+            }
+            if (!page.isEmpty()) {
+                MultiCurrencyRow last = page.get(page.size() - 1);
+                cursor = ProductPageCursor.decode(new ProductPageCursor("GBP", false,
+                        last.getPrice("GBP"), last.getProductId()).encode());
+            }
+        } while (page.size() == 7);
+
+        // Then
+        assertEquals(expected, paged, "Keyset pages should cover the same order without gaps or repeats");
+        assertEquals(expected.subList(14, 21), duckDBService.getMultiCurrencyPage("GBP", false, null, 14, 7).stream()
+                .map(MultiCurrencyRow::getProductId).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Should reject sorting on an unknown currency")
+    void shouldRejectUnknownCurrency() {
+        assertThrows(IllegalArgumentException.class,
+                () -> duckDBService.getMultiCurrencyPage("price_USD\" --", false, null, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> ProductPageCursor.decode("not a cursor"));
+    }
+
+    @Test
+    @DisplayName("Should merge a newly landed prices file as a delta with the same result as a full rebuild")
+    void shouldMergePricesDeltaLikeFullRebuild() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(snapshotService, "eventPublisher", (ApplicationEventPublisher) event ->
+                assertTrue(duckDBService.applyDeltas((SnapshotUpdatedEvent) event), "Should be applied as a delta"));
+        List<ProductRow> before = duckDBService.getProductsWithPricesAndMetrics();
+        SampleDataFixtures.writeDataset(bucket, "prices/delta-00001",
+                "SELECT product_id, 777.00::DECIMAL(10,2) AS Price, 'USD' AS Currency FROM read_parquet('"
+                        + snapshotService.getDatasetGlob(ParquetSnapshotService.BUILDINGS) + "') WHERE Building = 'North Tower'");
+
+        // When
+        snapshotService.sync();
+
+        // Then
+        List<ProductRow> after = duckDBService.getProductsWithPricesAndMetrics();
+        assertEquals(2, duckDBService.getDataVersion());
+        for (ProductRow row : after) {
+            if ("North Tower".equals(row.getBuildingName())) {
+                assertEquals("USD", row.getCurrency(), "Delta rows replace every currency of the product");
+                assertEquals(0, new BigDecimal("777.00").compareTo(row.getCurrentPrice()));
+            }
+        }
+        long untouched = before.stream().filter(row -> !"North Tower".equals(row.getBuildingName())).count();
+        assertEquals(untouched, after.stream().filter(row -> !"North Tower".equals(row.getBuildingName())).count());
+        assertEquals(sorted(rebuiltFromScratch()), sorted(after));
+        assertTrue(duckDBService.getMultiCurrencyPage("USD", true, null, 0, 1).get(0).getPrice("USD")
+                .equals(new BigDecimal("777.00")), "Multi-currency view should see the delta");
+    }
+
+    @Test
+    @DisplayName("Should serve the product view kept in the database file after a restart without rebuilding it")
+    void shouldRestoreProductViewFromDatabaseFile() throws Exception {
+        // Given
+        Path databaseFile = tempDir.resolve("duckdb").resolve("products.duckdb");
+        MeterRegistry firstRun = new SimpleMeterRegistry();
+        DuckDBService first = services(snapshotService, firstRun)
+                .with("duckdb.database-file", databaseFile).create();
+        first.init();
+        List<ProductRow> built = first.getProductsWithPricesAndMetrics();
+        first.close();
+
+        // When
+        MeterRegistry secondRun = new SimpleMeterRegistry();
+        DuckDBService second = services(snapshotService, secondRun)
+                .with("duckdb.database-file", databaseFile).create();
+        second.init();
+
+        // Then
+        try {
+            assertEquals(1, firstRun.get("products.refresh").tag("mode", "rebuild").timer().count());
+            assertEquals(1, secondRun.get("products.refresh").tag("mode", "restore").timer().count());
+            assertNull(secondRun.find("products.refresh").tag("mode", "rebuild").timer());
+            assertEquals(snapshotService.getVersion(), second.getDataVersion());
+            assertEquals(built, second.getProductsWithPricesAndMetrics());
+            assertEquals(duckDBService.getCurrencies(), second.getCurrencies());
+            assertEquals(duckDBService.getProductRowCount(), second.getProductRowCount());
+            assertEquals(second.getProductRowCount(), second.getProductStore().getRowCount());
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild rather than restore a database file built from another snapshot")
+    void shouldRebuildDatabaseFileOfAnotherSnapshot() throws Exception {
+        // Given
+        Path databaseFile = tempDir.resolve("products.duckdb");
+        DuckDBService first = services(snapshotService, new SimpleMeterRegistry())
+                .with("duckdb.database-file", databaseFile).create();
+        first.init();
+        first.close();
+        SampleDataFixtures.writeDataset(bucket, "prices",
+                "SELECT product_id, 555.00::DECIMAL(10,2) AS Price, 'USD' AS Currency FROM read_parquet('"
+                        + snapshotService.getDatasetGlob(ParquetSnapshotService.BUILDINGS) + "')");
+        snapshotService.sync();
+
+        // When
+        MeterRegistry secondRun = new SimpleMeterRegistry();
+        DuckDBService second = services(snapshotService, secondRun)
+                .with("duckdb.database-file", databaseFile).create();
+        second.init();
+
+        // Then
+        try {
+            assertNull(secondRun.find("products.refresh").tag("mode", "restore").timer());
+            assertEquals(1, secondRun.get("products.refresh").tag("mode", "rebuild").timer().count());
+            assertTrue(second.getProductsWithPricesAndMetrics().stream()
+                    .allMatch(row -> new BigDecimal("555.00").equals(row.getCurrentPrice())));
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return only the products changed since a data version")
+    void shouldReturnProductsChangedSinceVersion() throws Exception {
+        // Given
+        SampleDataFixtures.writeDataset(bucket, "prices/delta-00001",
+                "SELECT product_id, 777.00::DECIMAL(10,2) AS Price, 'USD' AS Currency FROM read_parquet('"
+                        + snapshotService.getDatasetGlob(ParquetSnapshotService.BUILDINGS) + "') WHERE Building = 'North Tower'");
+        snapshotService.sync();
+        DuckDBService.ProductFilterRequest all = new DuckDBService.ProductFilterRequest();
+        DuckDBService.ProductFilterRequest elsewhere = new DuckDBService.ProductFilterRequest();
+        elsewhere.setBuildings(duckDBService.getFacetCounts(all).getFacets().get(FacetIndex.BUILDING).stream()
+                .map(value -> (String) value.getValue()).filter(building -> !"North Tower".equals(building)).toList());
+
+        // When
+        ProductChangesResponse changes = duckDBService.getProductChangesSince(1, all, RoleQueryPlan.FULL);
+        ProductChangesResponse unchanged = duckDBService.getProductChangesSince(1, elsewhere, RoleQueryPlan.FULL);
+        ProductChangesResponse current = duckDBService.getProductChangesSince(2, all, RoleQueryPlan.FULL);
+        ProductChangesResponse unknown = duckDBService.getProductChangesSince(0, all, RoleQueryPlan.FULL);
+
+        // Then
+        assertEquals(2, changes.getVersion());
+        assertFalse(changes.isFull());
+        assertEquals(List.of("North Tower"), changes.getGroups().stream()
+                .map(BuildingGroupResponse::getBuildingName).toList());
+        assertTrue(changes.getGroups().get(0).getProducts().stream()
+                .allMatch(product -> new BigDecimal("777.00").compareTo(product.getCurrentPrice()) == 0));
+        assertEquals(List.of(), changes.getRemovedProductIds());
+        assertEquals(List.of(), unchanged.getGroups(), "Only North Tower prices changed");
+        assertEquals(List.of(), current.getGroups());
+        assertTrue(unknown.isFull(), "Versions without fingerprints get the whole result");
+        assertEquals(groupKeys(duckDBService.getProductsGroupedByBuilding(all, RoleQueryPlan.FULL)),
+                groupKeys(unknown.getGroups()));
+    }
+
+    @Test
+    @DisplayName("Should upsert booking rates from a newly landed cluster_metrics file")
+    void shouldMergeClusterMetricsDelta() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(snapshotService, "eventPublisher", (ApplicationEventPublisher) event ->
+                assertTrue(duckDBService.applyDeltas((SnapshotUpdatedEvent) event), "Should be applied as a delta"));
+        SampleDataFixtures.writeDataset(bucket, "clustering/cluster_metrics/delta-00001",
+                "SELECT cluster_key, 0.990::DECIMAL(5,3) AS booking_rate FROM read_parquet('"
+                        + snapshotService.getDatasetGlob(ParquetSnapshotService.CLUSTER_METRICS)
+                        + "') WHERE cluster_key LIKE '%Suite%'");
+
+        // When
+        snapshotService.sync();
+
+        // Then
+        List<ProductRow> after = duckDBService.getProductsWithPricesAndMetrics();
+        assertTrue(after.stream().anyMatch(row -> "Suite".equals(row.getRoomType())));
+        for (ProductRow row : after) {
+            if ("Suite".equals(row.getRoomType())) {
+                assertEquals(0, new BigDecimal("0.990").compareTo(row.getBookingRate()));
+            }
+        }
+        assertEquals(sorted(rebuiltFromScratch()), sorted(after));
+    }
+
+    @Test
+    @DisplayName("Should fall back to a full rebuild when a delta brings a new currency")
+    void shouldRebuildWhenDeltaAddsCurrency() throws Exception {
+        // Given
+        SampleDataFixtures.writeDataset(bucket, "prices/delta-00001",
+                "SELECT product_id, 10.00::DECIMAL(10,2) AS Price, 'JPY' AS Currency FROM read_parquet('"
+                        + snapshotService.getDatasetGlob(ParquetSnapshotService.BUILDINGS) + "') LIMIT 5");
+
+        // When
+        snapshotService.sync();
+
+        // Then
+        assertEquals(2, duckDBService.getDataVersion());
+        assertTrue(duckDBService.getCurrencies().contains("JPY"));
+        assertEquals(5, duckDBService.getMultiCurrencyPage("JPY", false, null, 0, PRODUCT_COUNT).stream()
+                .filter(row -> row.getPrice("JPY") != null).count());
+    }
+
+    @Test
+    @DisplayName("Should read a Hive-partitioned products layout like the flat one")
+    void shouldReadHivePartitionedProducts() throws Exception {
+        // Given
+        Path partitionedBucket = tempDir.resolve("partitioned-bucket");
+        SampleDataFixtures.writeBucket(partitionedBucket, PRODUCT_COUNT);
+        SampleDataFixtures.partitionProducts(partitionedBucket);
+
+        // When
+        List<ProductRow> partitioned = rowsFromSnapshot(partitionedBucket, tempDir.resolve("partitioned-snapshot"));
+
+        // Then
+        assertTrue(Files.exists(partitionedBucket.resolve("clustering/clustered_products/building=North Tower")));
+        assertEquals(sorted(duckDBService.getProductsWithPricesAndMetrics()), sorted(partitioned));
+    }
+
+    @Test
+    @DisplayName("Should store the product view in arrival date order")
+    void shouldStoreProductViewInArrivalDateOrder() {
+        // When
+        List<Map<String, Object>> stored = duckDBService.executeQuery("SELECT arrival_date FROM product_view");
+
+        // Then
+        for (int i = 1; i < stored.size(); i++) {
+            assertTrue(stored.get(i - 1).get("arrival_date").toString()
+                    .compareTo(stored.get(i).get("arrival_date").toString()) <= 0,
+                    "Row groups should cover contiguous date ranges");
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve an empty result before any snapshot exists")
+    void shouldServeEmptyResultWithoutSnapshot() throws SQLException {
+        // Given
+        ParquetSnapshotService emptySnapshot = new ParquetSnapshotService();
+        ReflectionTestUtils.setField(emptySnapshot, "sourceUri", tempDir.resolve("missing").toUri().toString());
+        ReflectionTestUtils.setField(emptySnapshot, "localDir", tempDir.resolve("empty-snapshot").toString());
+        ReflectionTestUtils.setField(emptySnapshot, "region", "eu-north-1");
+        ReflectionTestUtils.setField(emptySnapshot, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        emptySnapshot.init();
+        DuckDBService emptyService = services(emptySnapshot, new SimpleMeterRegistry()).create();
+
+        // When
+        emptyService.init();
+
+        // Then
+        try {
+            assertTrue(emptyService.getProductsWithPricesAndMetrics().isEmpty());
+            assertTrue(emptyService.getProductsGroupedByBuilding(new DuckDBService.ProductFilterRequest(),
+                    RoleQueryPlan.FULL).isEmpty());
+        } finally {
+            emptyService.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should compute recommended prices in the query with the pricing engine's tiers")
+    void shouldComputeRecommendedPricesInQuery() {
+        // Given
+        DemandTierPricingEngine engine = pricingEngine();
+
+        // When
+        List<ProductRow> rows = duckDBService.getProductsWithPricesAndMetrics();
+
+        // Then
+        for (ProductRow row : rows) {
+            BigDecimal current = row.getCurrentPrice();
+            BigDecimal bookingRate = row.getBookingRate();
+            long expected = engine.recommend(current != null ? PricingEngine.toMinorUnits(current) : 0,
+                    bookingRate != null ? bookingRate.doubleValue() : Double.NaN);
+            assertEquals(PricingEngine.fromMinorUnits(expected), row.getRecommendedPrice());
+        }
+    }
+
+    /**
+     * Rows of a second service that builds its view from the same local snapshot in one go
+     */
+    private List<ProductRow> rebuiltFromScratch() throws SQLException {
+        return rowsFromSnapshot(bucket, tempDir.resolve("snapshot"));
+    }
+
+    private List<ProductRow> rowsFromSnapshot(Path source, Path localDir) throws SQLException {
+        ParquetSnapshotService sameSnapshot = new ParquetSnapshotService();
+        ReflectionTestUtils.setField(sameSnapshot, "sourceUri", source.toUri().toString());
+        ReflectionTestUtils.setField(sameSnapshot, "localDir", localDir.toString());
+        ReflectionTestUtils.setField(sameSnapshot, "region", "eu-north-1");
+        ReflectionTestUtils.setField(sameSnapshot, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        sameSnapshot.init();
+
+        DuckDBService rebuilt = services(sameSnapshot, new SimpleMeterRegistry()).create();
+        rebuilt.init();
+        try {
+            return rebuilt.getProductsWithPricesAndMetrics();
+        } finally {
+            rebuilt.close();
+        }
+    }
+
+    private static List<String> sorted(List<ProductRow> rows) {
+        return rows.stream().map(Object::toString).sorted().collect(Collectors.toList());
+    }
+
+    static DemandTierPricingEngine pricingEngine() {
+        DemandTierPricingEngine engine = new DemandTierPricingEngine();
+        ReflectionTestUtils.setField(engine, "demandTiers", "0.8=1.20,0.6=1.10,0.4=1.05");
+        ReflectionTestUtils.setField(engine, "baseMultiplier", "0.95");
+        ReflectionTestUtils.setField(engine, "defaultBookingRate", 0.5);
+        engine.init();
+        return engine;
+    }
+
+    static ProductMetrics metrics(MeterRegistry registry) {
+        ProductMetrics metrics = new ProductMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", registry);
+        ReflectionTestUtils.setField(metrics, "logSampleRate", 0.0);
+        return metrics;
+    }
+
+    // Building -> sorted product rows, as rows with the same room name may come back in either order
+    private static Map<String, List<String>> groupKeys(List<BuildingGroupResponse> groups) {
+        return groups.stream().collect(Collectors.toMap(BuildingGroupResponse::getBuildingName,
+                group -> group.getProducts().stream()
+                        .map(product -> String.join("|", product.getProductId(), product.getRoomName(),
+                                String.valueOf(product.getBeds()), product.getRoomType(), product.getPrivatePool(),
+                                String.valueOf(product.getCurrentPrice()), String.valueOf(product.getRecommendedPrice()),
+                                product.getCurrency()))
+                        .sorted()
+                        .collect(Collectors.toList()),
+                (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private Long countFromSnapshot(String sql, String glob) {
+        return ((Number) duckDBService.executeQuery(sql.formatted(glob)).get(0).values().iterator().next()).longValue();
+    }
+}
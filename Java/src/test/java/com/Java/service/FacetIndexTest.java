@@ -0,0 +1,140 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Facet Index Tests")
+class FacetIndexTest {
+
+    private static FacetIndex sampleIndex() {
+        return FacetIndex.builder(7)
+                .add("Annex A", "Suite", 2, 4, "Yes", null)
+                .add("North Tower", "Suite", 2, 5, "Yes", LocalDate.of(2025, 1, 1))
+                .add("North Tower", "Double", 1, 4, "No", LocalDate.of(2025, 1, 2))
+                .add("Annex A", "Double", 2, 3, "No", LocalDate.of(2025, 1, 2))
+                .add("North Tower", "Suite", 3, 5, "No", LocalDate.of(2025, 1, 5))
+                .build();
+    }
+
+    private static Map<Object, Long> counts(FacetIndex.FacetCounts counts, String facet) {
+        return counts.getFacets().get(facet).stream()
+                .collect(Collectors.toMap(FacetIndex.FacetValue::getValue, FacetIndex.FacetValue::getCount));
+    }
+
+    @Test
+    @DisplayName("Should count every value without filters, in value order")
+    void shouldCountAllValues() {
+        // When
+        FacetIndex.FacetCounts counts = sampleIndex().count(new DuckDBService.ProductFilterRequest());
+
+        // Then
+        assertEquals(7, counts.getDataVersion());
+        assertEquals(5, counts.getTotal());
+        assertEquals(List.of("Annex A", "North Tower"), counts.getFacets().get(FacetIndex.BUILDING).stream()
+                .map(FacetIndex.FacetValue::getValue).collect(Collectors.toList()));
+        assertEquals(Map.of(1, 1L, 2, 3L, 3, 1L), counts(counts, FacetIndex.BEDS));
+        assertEquals(Map.of("Yes", 2L, "No", 3L), counts(counts, FacetIndex.PRIVATE_POOL));
+    }
+
+    @Test
+    @DisplayName("Should narrow other facets by a selection but not the selected facet itself")
+    void shouldDrillDown() {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of("North Tower"));
+        filters.setBeds(List.of(2, 3));
+
+        // When
+        FacetIndex.FacetCounts counts = sampleIndex().count(filters);
+
+        // Then
+        assertEquals(2, counts.getTotal());
+        // buildings counted under beds in (2, 3) only
+        assertEquals(Map.of("Annex A", 2L, "North Tower", 2L), counts(counts, FacetIndex.BUILDING));
+        // beds counted under the building only
+        assertEquals(Map.of(1, 1L, 2, 1L, 3, 1L), counts(counts, FacetIndex.BEDS));
+        // everything else under both
+        assertEquals(Map.of("Suite", 2L, "Double", 0L), counts(counts, FacetIndex.ROOM_TYPE));
+    }
+
+    @Test
+    @DisplayName("Should apply an inclusive date range and leave rows without a date out")
+    void shouldApplyDateRange() {
+        // Given
+        DuckDBService.ProductFilterRequest upTo = new DuckDBService.ProductFilterRequest();
+        upTo.setArrivalDateTo("2025-01-02");
+        DuckDBService.ProductFilterRequest between = new DuckDBService.ProductFilterRequest();
+        between.setArrivalDateFrom("2025-01-02");
+        between.setArrivalDateTo("2025-01-04");
+
+        // When / Then
+        assertEquals(3, sampleIndex().count(upTo).getTotal());
+        FacetIndex.FacetCounts counts = sampleIndex().count(between);
+        assertEquals(2, counts.getTotal());
+        assertEquals(Map.of("Annex A", 1L, "North Tower", 1L), counts(counts, FacetIndex.BUILDING));
+    }
+
+    @Test
+    @DisplayName("Should count nothing for an unknown value and reject a malformed date")
+    void shouldHandleUnknownValuesAndBadDates() {
+        // Given
+        DuckDBService.ProductFilterRequest unknown = new DuckDBService.ProductFilterRequest();
+        unknown.setRoomTypes(List.of("Penthouse"));
+        DuckDBService.ProductFilterRequest badDate = new DuckDBService.ProductFilterRequest();
+        badDate.setArrivalDateFrom("01/02/2025");
+
+        // When / Then
+        assertEquals(0, sampleIndex().count(unknown).getTotal());
+        assertThrows(IllegalArgumentException.class, () -> sampleIndex().count(badDate));
+    }
+
+    @Test
+    @DisplayName("Should count the same over a product store's bitmaps as over its own")
+    void shouldCountFromProductStore() {
+        // Given - the sample rows in building order, as the store holds them
+        ProductStore store = ProductStore.builder(7)
+                .add("Annex A", "P1", "Room", 2, "Suite", "Yes", 4, null, null, "USD", null)
+                .add("Annex A", "P4", "Room", 2, "Double", "No", 3, LocalDate.of(2025, 1, 2), null, "USD", null)
+                .add("North Tower", "P2", "Room", 2, "Suite", "Yes", 5, LocalDate.of(2025, 1, 1), null, "USD", null)
+                .add("North Tower", "P3", "Room", 1, "Double", "No", 4, LocalDate.of(2025, 1, 2), null, "USD", null)
+                .add("North Tower", "P5", "Room", 3, "Suite", "No", 5, LocalDate.of(2025, 1, 5), null, "USD", null)
+                .build(DuckDBServiceTest.pricingEngine());
+        DuckDBService.ProductFilterRequest drillDown = new DuckDBService.ProductFilterRequest();
+        drillDown.setBuildings(List.of("North Tower"));
+        drillDown.setBeds(List.of(2, 3));
+        drillDown.setArrivalDateTo("2025-01-04");
+        DuckDBService.ProductFilterRequest between = new DuckDBService.ProductFilterRequest();
+        between.setArrivalDateFrom("2025-01-02");
+        between.setArrivalDateTo("2025-01-04");
+
+        // When
+        FacetIndex fromStore = FacetIndex.of(store);
+
+        // Then
+        for (DuckDBService.ProductFilterRequest filters
+                : List.of(new DuckDBService.ProductFilterRequest(), drillDown, between)) {
+            FacetIndex.FacetCounts expected = sampleIndex().count(filters);
+            FacetIndex.FacetCounts actual = fromStore.count(filters);
+            assertEquals(expected.getTotal(), actual.getTotal());
+            for (String facet : FacetIndex.FACETS) {
+                assertEquals(counts(expected, facet), counts(actual, facet), facet);
+            }
+        }
+        assertEquals(7, fromStore.getDataVersion());
+    }
+
+    @Test
+    @DisplayName("Should reject rows out of arrival date order")
+    void shouldRejectUnorderedRows() {
+        FacetIndex.Builder builder = FacetIndex.builder(1).add("A", "Suite", 1, 1, "No", LocalDate.of(2025, 2, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.add("A", "Suite", 1, 1, "No", LocalDate.of(2025, 1, 1)));
+    }
+}
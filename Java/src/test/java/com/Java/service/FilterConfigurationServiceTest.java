@@ -7,6 +7,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -76,21 +77,15 @@ class FilterConfigurationServiceTest {
     }
 
     @Test
-    @DisplayName("Should return pricing manager filters for unknown role")
-    void shouldReturnDefaultFiltersForUnknownRole() {
+    @DisplayName("Should reject an unknown role")
+    void shouldRejectUnknownRole() {
         // Given
         String unknownRole = "unknown_role";
 
-        // When
-        List<String> filters = filterConfigurationService.getFiltersForRole(unknownRole);
-
-        // Then
-        assertNotNull(filters);
-        assertEquals(4, filters.size(), "Unknown role should default to pricing manager filters");
-        assertTrue(filters.contains("building"));
-        assertTrue(filters.contains("room_type"));
-        assertTrue(filters.contains("beds"));
-        assertTrue(filters.contains("grade"));
+        // When / Then
+        UnknownRoleException error = assertThrows(UnknownRoleException.class,
+                () -> filterConfigurationService.getFiltersForRole(unknownRole));
+        assertEquals("Unknown role: unknown_role", error.getMessage());
     }
 
     @Test
@@ -104,7 +99,10 @@ class FilterConfigurationServiceTest {
 
         // Then
         assertNotNull(filters, "Should not return null for null role");
-        assertEquals(4, filters.size(), "Null role should default to pricing manager filters");
+        assertEquals(filterConfigurationService.getFiltersForRole(FilterConfigurationService.LEAST_PRIVILEGED_ROLE),
+                filters, "Null role should default to the least privileged role's filters");
+        assertTrue(filterConfigurationService.getQueryPlan(nullRole).getAllowedFilters().containsAll(filters),
+                "Every advertised filter should be accepted by the plan");
     }
 
     @Test
@@ -118,7 +116,9 @@ class FilterConfigurationServiceTest {
 
         // Then
         assertNotNull(filters);
-        assertEquals(4, filters.size(), "Empty role should default to pricing manager filters");
+        assertEquals(3, filters.size(), "Empty role should default to reporting user filters");
+        assertFalse(filters.contains("beds"));
+        assertFalse(filters.contains("grade"));
     }
 
     @ParameterizedTest
@@ -214,4 +214,54 @@ class FilterConfigurationServiceTest {
         assertTrue(pricingManagerFilters.size() >= reportingUserFilters.size(),
                 "Pricing manager should have same or more filters than reporting user");
     }
+
+    @Test
+    @DisplayName("Should compile a plan per role with the role's filters and columns")
+    void shouldCompileQueryPlanPerRole() {
+        // When
+        RoleQueryPlan pricingPlan = filterConfigurationService.getQueryPlan("pricing_manager");
+        RoleQueryPlan regionalPlan = filterConfigurationService.getQueryPlan("regional_manager");
+
+        // Then
+        assertTrue(pricingPlan.includesRecommendedPrice(), "Pricing managers should see recommendations");
+        assertFalse(regionalPlan.includesRecommendedPrice(), "Regional managers should not pay for pricing");
+        assertFalse(regionalPlan.getColumns().contains("booking_rate"));
+        assertEquals(Set.of("building", "room_type"), regionalPlan.getAllowedFilters());
+        assertSame(regionalPlan, filterConfigurationService.getQueryPlan("regional_manager"),
+                "Plans should be built once and reused");
+        assertTrue(pricingPlan.getAllowedFilters().contains("private_pool"),
+                "Pricing managers should keep the private pool filter");
+    }
+
+    @Test
+    @DisplayName("Should give requests without a role the least privileged plan and refuse unknown roles")
+    void shouldNotEscalateMissingOrUnknownRoles() {
+        // When
+        RoleQueryPlan noRole = filterConfigurationService.getQueryPlan(null);
+
+        // Then
+        assertSame(filterConfigurationService.getQueryPlan("reporting_user"), noRole);
+        assertSame(noRole, filterConfigurationService.getQueryPlan(" "));
+        assertFalse(noRole.includesRecommendedPrice(), "A request without a role should not see recommendations");
+        assertThrows(UnknownRoleException.class, () -> filterConfigurationService.getQueryPlan("unknown_role"));
+        assertThrows(UnknownRoleException.class, () -> filterConfigurationService.getQueryPlan("Pricing_Manager"));
+    }
+
+    @Test
+    @DisplayName("Should reject filters the role is not allowed to use")
+    void shouldRejectDisallowedFilters() {
+        // Given
+        RoleQueryPlan regionalPlan = filterConfigurationService.getQueryPlan("regional_manager");
+        DuckDBService.ProductFilterRequest request = new DuckDBService.ProductFilterRequest();
+        request.setBuildings(List.of("North Tower"));
+        request.setArrivalDateFrom("2024-03-01");
+        request.setGrades(List.of(4));
+
+        // When / Then
+        assertEquals(List.of("grade"), regionalPlan.disallowedFilters(request));
+        assertThrows(FilterNotAllowedException.class, () -> regionalPlan.checkAllowed(request));
+
+        request.setGrades(List.of());
+        assertDoesNotThrow(() -> regionalPlan.checkAllowed(request), "Empty filters and date ranges are always allowed");
+    }
 }
@@ -0,0 +1,165 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Filter Result Cache Tests")
+class FilterResultCacheTest {
+
+    private AtomicLong clock;
+    private FilterResultCache<String> cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        cache = new FilterResultCache<>(2, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    @DisplayName("Should treat null and empty lists as the same filter")
+    void shouldTreatNullAndEmptyListsAsSameFilter() {
+        // Given
+        DuckDBService.ProductFilterRequest withNulls = new DuckDBService.ProductFilterRequest();
+        DuckDBService.ProductFilterRequest withEmpty = new DuckDBService.ProductFilterRequest();
+        withEmpty.setBuildings(List.of());
+        withEmpty.setBeds(List.of());
+        withEmpty.setArrivalDateFrom("  ");
+
+        // Then
+        assertEquals(ProductFilterKey.of(withNulls), ProductFilterKey.of(withEmpty));
+        assertEquals(ProductFilterKey.of(withNulls), ProductFilterKey.of(null));
+    }
+
+    @Test
+    @DisplayName("Should ignore list order and duplicates in the key")
+    void shouldIgnoreListOrderAndDuplicates() {
+        // Given
+        DuckDBService.ProductFilterRequest first = new DuckDBService.ProductFilterRequest();
+        first.setBuildings(Arrays.asList("North Tower", "Annex A"));
+        first.setGrades(Arrays.asList(5, 3));
+        DuckDBService.ProductFilterRequest second = new DuckDBService.ProductFilterRequest();
+        second.setBuildings(Arrays.asList("Annex A", "North Tower", "Annex A"));
+        second.setGrades(Arrays.asList(3, 5));
+
+        // Then
+        assertEquals(ProductFilterKey.of(first), ProductFilterKey.of(second));
+        assertEquals(ProductFilterKey.of(first).hashCode(), ProductFilterKey.of(second).hashCode());
+        assertEquals(List.of("Annex A", "North Tower"), ProductFilterKey.of(second).toRequest().getBuildings());
+    }
+
+    @Test
+    @DisplayName("Should distinguish different filters")
+    void shouldDistinguishDifferentFilters() {
+        // Given
+        DuckDBService.ProductFilterRequest first = new DuckDBService.ProductFilterRequest();
+        first.setBuildings(List.of("North Tower"));
+        DuckDBService.ProductFilterRequest second = new DuckDBService.ProductFilterRequest();
+        second.setRoomTypes(List.of("North Tower"));
+
+        // Then
+        assertNotEquals(ProductFilterKey.of(first), ProductFilterKey.of(second));
+    }
+
+    @Test
+    @DisplayName("Should give equal keys the same canonical text and keep separators inside values apart")
+    void shouldWriteCanonicalText() {
+        // Given
+        DuckDBService.ProductFilterRequest first = new DuckDBService.ProductFilterRequest();
+        first.setBuildings(Arrays.asList("North Tower", "Annex A"));
+        DuckDBService.ProductFilterRequest reordered = new DuckDBService.ProductFilterRequest();
+        reordered.setBuildings(Arrays.asList("Annex A", "North Tower"));
+        DuckDBService.ProductFilterRequest joined = new DuckDBService.ProductFilterRequest();
+        joined.setBuildings(List.of("Annex A;North Tower"));
+
+        // Then
+        assertEquals(ProductFilterKey.of(first).canonicalText(), ProductFilterKey.of(reordered).canonicalText());
+        assertNotEquals(ProductFilterKey.of(first).canonicalText(), ProductFilterKey.of(joined).canonicalText());
+        assertNotEquals(ProductFilterKey.of(first, "full").canonicalText(),
+                ProductFilterKey.of(first, "reporting").canonicalText());
+    }
+
+    @Test
+    @DisplayName("Should count hits and misses")
+    void shouldCountHitsAndMisses() {
+        // Given
+        ProductFilterKey key = ProductFilterKey.of(null);
+
+        // When
+        assertNull(cache.get(key, 1));
+        cache.put(key, 1, "rows");
+        assertEquals("rows", cache.get(key, 1));
+
+        // Then
+        FilterResultCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry when full")
+    void shouldEvictLeastRecentlyUsedEntry() {
+        // Given
+        ProductFilterKey a = keyForBuilding("A");
+        ProductFilterKey b = keyForBuilding("B");
+        ProductFilterKey c = keyForBuilding("C");
+        cache.put(a, 1, "a");
+        cache.put(b, 1, "b");
+        cache.get(a, 1);
+
+        // When
+        cache.put(c, 1, "c");
+
+        // Then
+        assertEquals(2, cache.size());
+        assertNull(cache.get(b, 1), "B was least recently used");
+        assertEquals("a", cache.get(a, 1));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should expire entries after the TTL")
+    void shouldExpireEntriesAfterTtl() {
+        // Given
+        ProductFilterKey key = keyForBuilding("A");
+        cache.put(key, 1, "a");
+
+        // When
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        // Then
+        assertNull(cache.get(key, 1));
+        assertEquals(1, cache.getStats().getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should not serve entries from another data version")
+    void shouldNotServeEntriesFromAnotherDataVersion() {
+        // Given
+        cache.put(keyForBuilding("A"), 1, "a");
+        cache.put(keyForBuilding("B"), 2, "b");
+
+        // When
+        cache.invalidateOlderThan(2);
+
+        // Then
+        assertEquals(1, cache.size());
+        assertNull(cache.get(keyForBuilding("B"), 3), "Version 3 should not see version 2 results");
+        assertEquals(2, cache.getStats().getInvalidations());
+    }
+
+    private ProductFilterKey keyForBuilding(String building) {
+        DuckDBService.ProductFilterRequest request = new DuckDBService.ProductFilterRequest();
+        request.setBuildings(List.of(building));
+        return ProductFilterKey.of(request);
+    }
+}
@@ -0,0 +1,262 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Parquet Snapshot Service Tests")
+class ParquetSnapshotServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path bucket;
+    private Path localDir;
+    private List<Object> publishedEvents;
+    private ParquetSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bucket = tempDir.resolve("bucket");
+        localDir = tempDir.resolve("snapshot");
+        publishedEvents = new ArrayList<>();
+
+        writeBucketFile("clustering/clustered_products/part-0.parquet", "products");
+        writeBucketFile("buildings/part-0.parquet", "buildings");
+        writeBucketFile("prices/part-0.parquet", "prices");
+        writeBucketFile("clustering/cluster_metrics/part-0.parquet", "metrics");
+
+        snapshotService = newSnapshotService();
+    }
+
+    @Test
+    @DisplayName("Should copy all datasets on first sync")
+    void shouldCopyAllDatasetsOnFirstSync() {
+        // When
+        snapshotService.init();
+
+        // Then
+        assertEquals(1, snapshotService.getVersion(), "First sync should create version 1");
+        assertTrue(Files.exists(localDir.resolve("prices/part-0.parquet")));
+        assertTrue(Files.exists(localDir.resolve("clustering/clustered_products/part-0.parquet")));
+        for (String dataset : ParquetSnapshotService.DATASET_PREFIXES.keySet()) {
+            assertTrue(snapshotService.hasDataset(dataset), "Should have dataset " + dataset);
+        }
+        assertEquals(1, publishedEvents.size(), "Should publish one update event");
+    }
+
+    @Test
+    @DisplayName("Should not fetch unchanged files again")
+    void shouldNotFetchUnchangedFilesAgain() throws IOException {
+        // Given
+        snapshotService.init();
+
+        // When
+        Set<String> changed = snapshotService.sync();
+
+        // Then
+        assertTrue(changed.isEmpty(), "Nothing changed on the source");
+        assertEquals(1, snapshotService.getVersion(), "Version should not move");
+        assertEquals(1, publishedEvents.size(), "No new event should be published");
+    }
+
+    @Test
+    @DisplayName("Should only report the dataset whose files changed")
+    void shouldOnlyReportChangedDataset() throws IOException {
+        // Given
+        snapshotService.init();
+        writeBucketFile("prices/part-0.parquet", "prices-updated");
+        writeBucketFile("prices/_SUCCESS", "");
+
+        // When
+        Set<String> changed = snapshotService.sync();
+
+        // Then
+        assertEquals(Set.of(ParquetSnapshotService.PRICES), changed);
+        assertEquals(2, snapshotService.getVersion());
+        assertEquals("prices-updated", Files.readString(localDir.resolve("prices/part-0.parquet")));
+        assertFalse(Files.exists(localDir.resolve("prices/_SUCCESS")), "Non-parquet files should be ignored");
+    }
+
+    @Test
+    @DisplayName("Should remove files deleted from the source")
+    void shouldRemoveFilesDeletedFromSource() throws IOException {
+        // Given
+        writeBucketFile("prices/part-1.parquet", "more prices");
+        snapshotService.init();
+        Files.delete(bucket.resolve("prices/part-1.parquet"));
+
+        // When
+        Set<String> changed = snapshotService.sync();
+
+        // Then
+        assertEquals(Set.of(ParquetSnapshotService.PRICES), changed);
+        assertFalse(Files.exists(localDir.resolve("prices/part-1.parquet")));
+        assertTrue(Files.exists(localDir.resolve("prices/part-0.parquet")));
+    }
+
+    @Test
+    @DisplayName("Should report newly landed files as append-only, in landing order")
+    void shouldReportNewFilesAsAppendOnly() throws IOException {
+        // Given
+        snapshotService.init();
+        writeBucketFile("prices/delta-1.parquet", "new prices");
+
+        // When
+        snapshotService.sync();
+
+        // Then
+        SnapshotUpdatedEvent event = (SnapshotUpdatedEvent) publishedEvents.get(publishedEvents.size() - 1);
+        String added = localDir.resolve("prices/delta-1.parquet").toAbsolutePath().toString();
+        assertTrue(event.isAppendOnly());
+        assertEquals(List.of(added), event.getAddedFiles().get(ParquetSnapshotService.PRICES));
+        List<String> files = snapshotService.getDatasetFiles(ParquetSnapshotService.PRICES);
+        assertEquals(2, files.size());
+        assertEquals(added, files.get(1), "Most recently landed file comes last");
+        assertEquals(1, snapshotService.getLandedVersion(files.get(0)));
+        assertEquals(2, snapshotService.getLandedVersion(files.get(1)));
+    }
+
+    @Test
+    @DisplayName("Should report rewritten files as not append-only")
+    void shouldReportRewrittenFiles() throws IOException {
+        // Given
+        snapshotService.init();
+        writeBucketFile("prices/part-0.parquet", "rewritten prices");
+
+        // When
+        snapshotService.sync();
+
+        // Then
+        SnapshotUpdatedEvent event = (SnapshotUpdatedEvent) publishedEvents.get(publishedEvents.size() - 1);
+        assertFalse(event.isAppendOnly());
+        assertEquals(Set.of(ParquetSnapshotService.PRICES), event.getRewrittenDatasets());
+    }
+
+    @Test
+    @DisplayName("Should not record files fetched by a sync that failed on a later download")
+    void shouldNotRecordFilesOfFailedSync() throws IOException {
+        // Given
+        snapshotService.init();
+        writeBucketFile("prices/delta-1.parquet", "new prices");
+        writeBucketFile("clustering/cluster_metrics/delta-1.parquet", "new metrics");
+        SnapshotSource bucketSource = (SnapshotSource) ReflectionTestUtils.getField(snapshotService, "source");
+        ReflectionTestUtils.setField(snapshotService, "source", new SnapshotSource() {
+            @Override
+            public List<RemoteFile> listFiles(String prefix) throws IOException {
+                return bucketSource.listFiles(prefix);
+            }
+
+            @Override
+            public void download(RemoteFile file, Path target) throws IOException {
+                if (file.getKey().startsWith("clustering/cluster_metrics/")) {
+                    throw new IOException("Connection reset");
+                }
+                bucketSource.download(file, target);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        // When
+        assertThrows(IOException.class, snapshotService::sync);
+        ReflectionTestUtils.setField(snapshotService, "source", bucketSource);
+        snapshotService.sync();
+
+        // Then
+        assertEquals(2, snapshotService.getVersion(), "The failed sync should not take a version");
+        assertEquals(2, publishedEvents.size());
+        SnapshotUpdatedEvent event = (SnapshotUpdatedEvent) publishedEvents.get(1);
+        assertEquals(List.of(localDir.resolve("prices/delta-1.parquet").toAbsolutePath().toString()),
+                event.getAddedFiles().get(ParquetSnapshotService.PRICES),
+                "Prices fetched before the failure should still be reported as added");
+        assertTrue(event.isAppendOnly());
+        assertEquals(Set.of(ParquetSnapshotService.PRICES, ParquetSnapshotService.CLUSTER_METRICS),
+                event.getChangedDatasets());
+    }
+
+    @Test
+    @DisplayName("Should sync on its own when a file lands in a watched local source")
+    void shouldSyncWhenWatchedSourceChanges() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(snapshotService, "watch", true);
+        snapshotService.init();
+
+        // When
+        Path staged = tempDir.resolve("staged.parquet");
+        Files.writeString(staged, "late prices");
+        Files.move(staged, bucket.resolve("prices/delta-1.parquet"));
+
+        // Then
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (snapshotService.getVersion() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, snapshotService.getVersion(), "Watcher should have triggered a sync");
+            assertTrue(Files.exists(localDir.resolve("prices/delta-1.parquet")));
+        } finally {
+            snapshotService.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the manifest across restarts")
+    void shouldKeepManifestAcrossRestarts() throws IOException {
+        // Given
+        snapshotService.init();
+
+        // When
+        ParquetSnapshotService restarted = newSnapshotService();
+        restarted.init();
+
+        // Then
+        assertEquals(1, restarted.getVersion(), "Restart should not re-download anything");
+        assertEquals(1, publishedEvents.size());
+    }
+
+    @Test
+    @DisplayName("Should build local globs for read_parquet")
+    void shouldBuildLocalGlobs() {
+        // Given
+        snapshotService.init();
+
+        // When
+        String glob = snapshotService.getDatasetGlob(ParquetSnapshotService.PRODUCTS);
+
+        // Then
+        assertTrue(glob.endsWith("clustering/clustered_products/**/*.parquet"), "Glob should reach partition directories");
+        assertFalse(snapshotService.isHivePartitioned(ParquetSnapshotService.PRODUCTS), "Flat layout is not partitioned");
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.getDatasetGlob("unknown"));
+    }
+
+    private ParquetSnapshotService newSnapshotService() {
+        ParquetSnapshotService service = new ParquetSnapshotService();
+        ReflectionTestUtils.setField(service, "sourceUri", bucket.toUri().toString());
+        ReflectionTestUtils.setField(service, "localDir", localDir.toString());
+        ReflectionTestUtils.setField(service, "region", "eu-north-1");
+        ReflectionTestUtils.setField(service, "eventPublisher",
+                (ApplicationEventPublisher) publishedEvents::add);
+        return service;
+    }
+
+    private void writeBucketFile(String key, String content) throws IOException {
+        Path file = bucket.resolve(key);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
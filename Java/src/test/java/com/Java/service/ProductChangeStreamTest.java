@@ -0,0 +1,248 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import com.Java.dto.ProductChangesResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Product Change Stream Tests")
+class ProductChangeStreamTest {
+
+    private final AtomicLong dataVersion = new AtomicLong(2);
+    private final List<String> computed = new CopyOnWriteArrayList<>();
+    // A version landing while changes are computed: the store they are read from is already newer
+    private volatile boolean versionMovesDuringCompute;
+    private ProductChangeStream changeStream;
+
+    @BeforeEach
+    void setUp() {
+        // Changes since 0 are no longer known; any other since gets one changed product and one to drop
+        DuckDBService duckDBService = new DuckDBService() {
+            @Override
+            public long getDataVersion() {
+                return dataVersion.get();
+            }
+
+            @Override
+            public ProductChangesResponse getProductChangesSince(long sinceVersion, ProductFilterRequest filters,
+                                                                 RoleQueryPlan plan) {
+                if (versionMovesDuringCompute) {
+                    dataVersion.incrementAndGet();
+                }
+                computed.add(sinceVersion + "->" + dataVersion.get());
+                return new ProductChangesResponse(dataVersion.get(), sinceVersion, sinceVersion == 0,
+                        List.of("PROD_9"), List.of(new BuildingGroupResponse("North Tower", List.of(
+                                new BuildingGroupResponse.ProductSummary("PROD_1", "Sea View", 2, "Double", "No",
+                                        new BigDecimal("100.00"), new BigDecimal("120.00"), "USD")))));
+            }
+        };
+        ProductMetrics metrics = new ProductMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", new SimpleMeterRegistry());
+
+        changeStream = new ProductChangeStream();
+        ReflectionTestUtils.setField(changeStream, "senderThreads", 1);
+        ReflectionTestUtils.setField(changeStream, "maxClients", 3);
+        ReflectionTestUtils.setField(changeStream, "retryAfterSeconds", 1L);
+        ReflectionTestUtils.setField(changeStream, "duckDBService", duckDBService);
+        ReflectionTestUtils.setField(changeStream, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(changeStream, "metrics", metrics);
+        changeStream.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        changeStream.close();
+    }
+
+    @Test
+    @DisplayName("Should send per-building batches closed by a version event")
+    void shouldSendBuildingBatches() throws Exception {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter(null);
+
+        // When
+        changeStream.subscribe(emitter, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 1);
+
+        // Then
+        List<String> events = emitter.awaitEvents(3);
+        assertTrue(events.get(0).startsWith("event:building\ndata:{\"buildingName\":\"North Tower\""), events.get(0));
+        assertEquals("event:removed\ndata:[\"PROD_9\"]\n\n", events.get(1));
+        assertEquals("event:version\ndata:{\"version\":2,\"sinceVersion\":1}\nid:2\n\n", events.get(2));
+    }
+
+    @Test
+    @DisplayName("Should coalesce versions that land while a slow client is still being written to")
+    void shouldCoalesceVersionsForSlowClient() throws Exception {
+        // Given
+        CountDownLatch slowSocket = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(slowSocket);
+        changeStream.subscribe(slow, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 1);
+        while (computed.isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        // When
+        for (long version = 3; version <= 5; version++) {
+            dataVersion.set(version);
+            changeStream.publish();
+        }
+        slowSocket.countDown();
+
+        // Then
+        List<String> events = slow.awaitEvents(6);
+        assertEquals(List.of("1->2", "2->5"), computed, "Versions 3 to 5 should go out as one batch");
+        assertTrue(events.get(5).contains("\"version\":5,\"sinceVersion\":2"), events.get(5));
+    }
+
+    @Test
+    @DisplayName("Should compute and serialize a batch once for subscribers with the same filters")
+    void shouldShareBatchesBetweenSubscribers() throws Exception {
+        // Given
+        RecordingEmitter first = new RecordingEmitter(null);
+        RecordingEmitter second = new RecordingEmitter(null);
+
+        // When
+        changeStream.subscribe(first, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 1);
+        changeStream.subscribe(second, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 1);
+
+        // Then
+        assertEquals(first.awaitEvents(3), second.awaitEvents(3));
+        assertEquals(List.of("1->2"), computed);
+    }
+
+    @Test
+    @DisplayName("Should tag a batch with the version of the store its changes were read from")
+    void shouldTagBatchWithVersionOfItsChanges() throws Exception {
+        // Given
+        versionMovesDuringCompute = true;
+        RecordingEmitter emitter = new RecordingEmitter(null);
+
+        // When
+        changeStream.subscribe(emitter, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 1);
+
+        // Then
+        List<String> events = emitter.awaitEvents(3);
+        assertEquals("event:version\ndata:{\"version\":3,\"sinceVersion\":1}\nid:3\n\n", events.get(2));
+        versionMovesDuringCompute = false;
+        Thread.sleep(100);
+        assertEquals(List.of("1->3"), computed, "Already at the version it was sent, no second batch");
+        assertEquals(3, emitter.awaitEvents(3).size());
+    }
+
+    @Test
+    @DisplayName("Should ask for a refetch when the changes since a version are unknown")
+    void shouldResetWhenChangesAreUnknown() throws Exception {
+        // Given
+        RecordingEmitter emitter = new RecordingEmitter(null);
+
+        // When
+        changeStream.subscribe(emitter, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 0);
+
+        // Then
+        assertEquals(List.of("event:reset\ndata:{\"version\":2,\"sinceVersion\":0}\nid:2\n\n"), emitter.awaitEvents(1));
+    }
+
+    @Test
+    @DisplayName("Should drop a client whose write stalls and keep serving the others")
+    void shouldDropStalledClient() throws Exception {
+        // Given - the only sender thread stuck in a write that ignores interrupts
+        ReflectionTestUtils.setField(changeStream, "sendTimeoutMs", 100L);
+        changeStream.close();
+        changeStream.init();
+        CountDownLatch socket = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        SseEmitter stalled = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                writing.countDown();
+                while (socket.getCount() > 0) {
+                    try {
+                        socket.await();
+                    } catch (InterruptedException e) {
+                        // a blocked socket write does not give up on interrupt either
+                    }
+                }
+            }
+        };
+        changeStream.subscribe(stalled, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        try {
+            // When
+            RecordingEmitter healthy = new RecordingEmitter(null);
+            changeStream.subscribe(healthy, new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 1);
+
+            // Then
+            assertEquals(3, healthy.awaitEvents(3).size());
+            assertEquals(1, changeStream.getSubscriberCount(), "The stalled client should be dropped");
+        } finally {
+            socket.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse streams beyond the client limit")
+    void shouldRefuseStreamsBeyondLimit() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            changeStream.subscribe(new RecordingEmitter(null), new DuckDBService.ProductFilterRequest(),
+                    RoleQueryPlan.FULL, 2);
+        }
+
+        // Then
+        assertEquals(3, changeStream.getSubscriberCount());
+        assertThrows(QueryRejectedException.class, () -> changeStream.subscribe(new RecordingEmitter(null),
+                new DuckDBService.ProductFilterRequest(), RoleQueryPlan.FULL, 2));
+    }
+
+    /**
+     * Keeps the text of every event sent, optionally blocking the first send like a client that reads slowly
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blockFirstSend;
+
+        RecordingEmitter(CountDownLatch blockFirstSend) {
+            this.blockFirstSend = blockFirstSend;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (blockFirstSend != null && events.isEmpty()) {
+                try {
+                    blockFirstSend.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(builder.build().stream().map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(String::valueOf).collect(Collectors.joining()));
+        }
+
+        List<String> awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, events.size(), "Events: " + events);
+            return List.copyOf(events);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Product Grouping Service Tests")
+class ProductGroupingServiceTest {
+
+    private final ProductGroupingService groupingService = new ProductGroupingService();
+
+    @Test
+    @DisplayName("Should group rows by building in building name order")
+    void shouldGroupRowsByBuilding() {
+        // Given
+        List<ProductRow> rows = List.of(
+                row("South Tower", "PROD_0001"),
+                row("Annex A", "PROD_0002"),
+                row("South Tower", "PROD_0003"));
+
+        // When
+        List<BuildingGroupResponse> groups = groupingService.groupProductsByBuilding(rows);
+
+        // Then
+        assertEquals(2, groups.size());
+        assertEquals("Annex A", groups.get(0).getBuildingName());
+        assertEquals("South Tower", groups.get(1).getBuildingName());
+        assertEquals(2, groups.get(1).getProducts().size());
+    }
+
+    @Test
+    @DisplayName("Should group in parallel above the threshold with the same result as sequential grouping")
+    void shouldGroupInParallelAboveThreshold() {
+        // Given
+        List<ProductRow> rows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            rows.add(row("Building " + (i * 7 % 13), String.format("PROD_%05d", i)));
+        }
+        ProductGroupingService parallel = new ProductGroupingService();
+        ReflectionTestUtils.setField(parallel, "parallelThreshold", 1_000);
+        ReflectionTestUtils.setField(parallel, "parallelism", 4);
+        parallel.init();
+
+        try {
+            // When
+            List<BuildingGroupResponse> expected = groupingService.groupProductsByBuilding(rows);
+            List<BuildingGroupResponse> actual = parallel.groupProductsByBuilding(rows);
+
+            // Then
+            assertNotNull(parallel.poolFor(rows.size()));
+            assertNull(parallel.poolFor(999), "Small results should stay sequential");
+            assertEquals(13, actual.size());
+            for (int g = 0; g < expected.size(); g++) {
+                assertEquals(expected.get(g).getBuildingName(), actual.get(g).getBuildingName());
+                assertEquals(productIds(expected.get(g)), productIds(actual.get(g)),
+                        "Rows should keep their input order within a building");
+            }
+        } finally {
+            parallel.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should map missing prices and beds to zero")
+    void shouldMapMissingValuesToZero() {
+        // Given
+        ProductRow row = new ProductRow("Annex A", "PROD_0001", "Room A", null, "Suite", "No", null, "USD")
+                .withRecommendedPrice(null);
+
+        // When
+        BuildingGroupResponse.ProductSummary summary = groupingService.mapToProductSummary(row);
+
+        // Then
+        assertEquals(BigDecimal.ZERO, summary.getCurrentPrice());
+        assertEquals(BigDecimal.ZERO, summary.getRecommendedPrice());
+        assertEquals(0, summary.getBeds());
+    }
+
+    @Test
+    @DisplayName("Should leave the recommended price null for plans without recommendations")
+    void shouldLeaveRecommendationNullOutsidePlan() {
+        // Given
+        ProductRow row = new ProductRow("Annex A", "PROD_0001", "Room A", 2, "Suite", "No",
+                new BigDecimal("100.00"), "USD");
+
+        // When
+        BuildingGroupResponse.ProductSummary summary = groupingService.mapToProductSummary(row);
+
+        // Then
+        assertEquals(new BigDecimal("100.00"), summary.getCurrentPrice());
+        assertNull(summary.getRecommendedPrice());
+    }
+
+    private static List<String> productIds(BuildingGroupResponse group) {
+        return group.getProducts().stream().map(BuildingGroupResponse.ProductSummary::getProductId).toList();
+    }
+
+    private ProductRow row(String building, String productId) {
+        return new ProductRow(building, productId, "Room A", 2, "Suite", "No", new BigDecimal("100.00"), "USD")
+                .withRecommendedPrice(new BigDecimal("120.00"));
+    }
+}
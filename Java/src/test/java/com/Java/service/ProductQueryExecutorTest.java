@@ -0,0 +1,146 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Product Query Executor Tests")
+class ProductQueryExecutorTest {
+
+    private ProductQueryExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    private ProductQueryExecutor newExecutor(int maxConcurrent, int maxQueued, long queueTimeoutMs) {
+        ProductQueryExecutor queryExecutor = new ProductQueryExecutor();
+        ReflectionTestUtils.setField(queryExecutor, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(queryExecutor, "maxQueued", maxQueued);
+        ReflectionTestUtils.setField(queryExecutor, "queueTimeoutMs", queueTimeoutMs);
+        ReflectionTestUtils.setField(queryExecutor, "retryAfterSeconds", 3L);
+        ReflectionTestUtils.setField(queryExecutor, "virtualThreads", true);
+        queryExecutor.init();
+        return queryExecutor;
+    }
+
+    @Test
+    @DisplayName("Should run queries off the calling thread")
+    void shouldRunQueriesOffCallingThread() throws Exception {
+        // Given
+        executor = newExecutor(2, 2, 1000);
+        Thread caller = Thread.currentThread();
+
+        // When
+        Thread worker = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertNotSame(caller, worker);
+        assertEquals(0, executor.getRunningCount());
+    }
+
+    @Test
+    @DisplayName("Should shed requests beyond running plus queued with a retry hint")
+    void shouldShedRequestsBeyondCapacity() throws Exception {
+        // Given - one running, one queued
+        executor = newExecutor(1, 1, 10_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = executor.submit(() -> {
+            started.countDown();
+            await(release);
+            return "first";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit(() -> "second");
+
+        // When
+        CompletableFuture<String> shed = executor.submit(() -> "third");
+
+        // Then
+        ExecutionException error = assertThrows(ExecutionException.class, () -> shed.get(1, TimeUnit.SECONDS));
+        QueryRejectedException rejected = assertInstanceOf(QueryRejectedException.class, error.getCause());
+        assertEquals(3, rejected.getRetryAfterSeconds());
+        assertEquals(1, executor.getRejectedCount());
+
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should reject a queued request when no slot frees up in time")
+    void shouldRejectWhenQueueTimeoutExpires() throws Exception {
+        // Given
+        executor = newExecutor(1, 4, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            return await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<String> waiting = executor.submit(() -> "late");
+
+        // Then
+        ExecutionException error = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(QueryRejectedException.class, error.getCause());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should give the slot back when a permit is closed")
+    void shouldReleasePermitOnClose() {
+        // Given
+        executor = newExecutor(1, 0, 10);
+
+        // When
+        try (ProductQueryExecutor.Permit permit = executor.acquire()) {
+            assertEquals(1, executor.getRunningCount());
+            assertThrows(QueryRejectedException.class, executor::acquire);
+        }
+
+        // Then
+        assertEquals(0, executor.getRunningCount());
+        executor.acquire().close();
+    }
+
+    @Test
+    @DisplayName("Should release the slot when a query fails")
+    void shouldReleaseSlotWhenQueryFails() throws Exception {
+        // Given
+        executor = newExecutor(1, 0, 10);
+
+        // When
+        CompletableFuture<Object> failed = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        // Then
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals("ok", executor.submit(() -> "ok").get(5, TimeUnit.SECONDS));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
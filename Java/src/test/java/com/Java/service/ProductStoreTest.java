@@ -0,0 +1,279 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Product Store Tests")
+class ProductStoreTest {
+
+    private static ProductStore sampleStore() {
+        return ProductStore.builder(3)
+                .add("Annex A", "PROD_1", "Garden View", 2, "Double", "No", 3, LocalDate.of(2024, 3, 1),
+                        new BigDecimal("100.00"), "USD", new BigDecimal("0.850"))
+                .add("Annex A", "PROD_1", "Garden View", 2, "Double", "No", 3, LocalDate.of(2024, 3, 1),
+                        new BigDecimal("92.00"), "EUR", new BigDecimal("0.850"))
+                .add("North Tower", "PROD_2", "Sea View", 3, "Suite", "Yes", 5, LocalDate.of(2024, 5, 10),
+                        new BigDecimal("250.00"), "USD", null)
+                .add("North Tower", "PROD_3", null, null, "Suite", "No", 4, null,
+                        null, null, new BigDecimal("0.300"))
+                .build(DuckDBServiceTest.pricingEngine());
+    }
+
+    @Test
+    @DisplayName("Should group every row by building with recommended prices")
+    void shouldGroupAllRowsByBuilding() {
+        // Given
+        ProductStore store = sampleStore();
+
+        // When
+        List<BuildingGroupResponse> groups = store.groupByBuilding(
+                store.filter(new DuckDBService.ProductFilterRequest()), RoleQueryPlan.FULL);
+
+        // Then
+        assertEquals(3, store.getDataVersion());
+        assertEquals(List.of("Annex A", "North Tower"),
+                groups.stream().map(BuildingGroupResponse::getBuildingName).collect(Collectors.toList()));
+        BuildingGroupResponse.ProductSummary first = groups.get(0).getProducts().get(0);
+        assertEquals("PROD_1", first.getProductId());
+        assertEquals(new BigDecimal("100.00"), first.getCurrentPrice());
+        assertEquals(new BigDecimal("120.00"), first.getRecommendedPrice(), "0.85 booking rate is the top tier");
+        assertEquals(new BigDecimal("262.50"), groups.get(1).getProducts().get(0).getRecommendedPrice(),
+                "An unknown booking rate should use the default rate");
+
+        BuildingGroupResponse.ProductSummary sparse = groups.get(1).getProducts().get(1);
+        assertNull(sparse.getRoomName());
+        assertNull(sparse.getCurrency());
+        assertEquals(0, sparse.getBeds());
+        assertEquals(new BigDecimal("0.00"), sparse.getCurrentPrice(), "A missing price reads as zero like the query path");
+    }
+
+    @Test
+    @DisplayName("Should apply every filter and exclude rows without a date from date ranges")
+    void shouldFilterRows() {
+        // Given
+        ProductStore store = sampleStore();
+        DuckDBService.ProductFilterRequest suites = new DuckDBService.ProductFilterRequest();
+        suites.setRoomTypes(List.of("Suite"));
+        suites.setGrades(List.of(4, 5));
+        DuckDBService.ProductFilterRequest dated = new DuckDBService.ProductFilterRequest();
+        dated.setArrivalDateFrom("2024-01-01");
+        dated.setBeds(List.of(2, 3));
+        DuckDBService.ProductFilterRequest unknown = new DuckDBService.ProductFilterRequest();
+        unknown.setBuildings(List.of("Nowhere"));
+
+        // Then
+        assertArrayEquals(new int[] {2, 3}, store.filter(suites));
+        assertArrayEquals(new int[] {0, 1, 2}, store.filter(dated));
+        assertArrayEquals(new int[0], store.filter(unknown));
+        DuckDBService.ProductFilterRequest invalid = new DuckDBService.ProductFilterRequest();
+        invalid.setArrivalDateTo("31/12/2024");
+        assertThrows(IllegalArgumentException.class, () -> store.filter(invalid));
+    }
+
+    @Test
+    @DisplayName("Should match a row-by-row evaluation of random filters with the bitmap and date indexes")
+    void shouldMatchRowByRowFiltering() {
+        // Given
+        Random random = new Random(42);
+        List<String> buildings = List.of("Annex A", "Building 1", "North Tower");
+        List<String> roomTypes = List.of("Double", "Single", "Suite");
+        List<Object[]> rows = new ArrayList<>();
+        ProductStore.Builder builder = ProductStore.builder(1);
+        for (String building : buildings) {
+            for (int i = 0; i < 700; i++) {
+                Object[] row = {building, roomTypes.get(random.nextInt(3)),
+                        random.nextInt(10) == 0 ? null : 1 + random.nextInt(4), 1 + random.nextInt(5),
+                        random.nextBoolean() ? "Yes" : "No",
+                        random.nextInt(20) == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366))};
+                rows.add(row);
+                builder.add(building, "PROD_" + rows.size(), "Room", (Integer) row[2], (String) row[1], (String) row[4],
+                        (Integer) row[3], (LocalDate) row[5], new BigDecimal("100.00"), "USD", null);
+            }
+        }
+        ProductStore store = builder.build(DuckDBServiceTest.pricingEngine());
+
+        for (int trial = 0; trial < 200; trial++) {
+            DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+            if (random.nextBoolean()) {
+                filters.setBuildings(List.of(buildings.get(random.nextInt(3)), "Nowhere"));
+            }
+            if (random.nextBoolean()) {
+                filters.setRoomTypes(List.of(roomTypes.get(random.nextInt(3)), roomTypes.get(random.nextInt(3))));
+            }
+            if (random.nextBoolean()) {
+                filters.setBeds(List.of(1 + random.nextInt(4)));
+            }
+            if (random.nextBoolean()) {
+                filters.setGrades(List.of(1 + random.nextInt(5), 1 + random.nextInt(5)));
+            }
+            if (random.nextInt(4) == 0) {
+                filters.setPrivatePool(List.of("Yes"));
+            }
+            LocalDate from = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366));
+            if (random.nextBoolean()) {
+                filters.setArrivalDateFrom(from.toString());
+            }
+            if (random.nextBoolean()) {
+                filters.setArrivalDateTo(from.plusDays(random.nextInt(60)).toString());
+            }
+
+            // When
+            int[] matched = store.filter(filters);
+
+            // Then
+            List<Integer> expected = new ArrayList<>();
+            for (int row = 0; row < rows.size(); row++) {
+                if (matches(rows.get(row), filters)) {
+                    expected.add(row);
+                }
+            }
+            assertEquals(expected, Arrays.stream(matched).boxed().collect(Collectors.toList()),
+                    "Filter " + ProductFilterKey.of(filters));
+        }
+    }
+
+    private static boolean matches(Object[] row, DuckDBService.ProductFilterRequest filters) {
+        LocalDate arrival = (LocalDate) row[5];
+        boolean dateBounded = filters.getArrivalDateFrom() != null || filters.getArrivalDateTo() != null;
+        return (filters.getBuildings() == null || filters.getBuildings().contains(row[0]))
+                && (filters.getRoomTypes() == null || filters.getRoomTypes().contains(row[1]))
+                && (filters.getBeds() == null || (row[2] != null && filters.getBeds().contains(row[2])))
+                && (filters.getGrades() == null || filters.getGrades().contains(row[3]))
+                && (filters.getPrivatePool() == null || filters.getPrivatePool().contains(row[4]))
+                && (!dateBounded || (arrival != null
+                        && (filters.getArrivalDateFrom() == null || !arrival.isBefore(LocalDate.parse(filters.getArrivalDateFrom())))
+                        && (filters.getArrivalDateTo() == null || !arrival.isAfter(LocalDate.parse(filters.getArrivalDateTo())))));
+    }
+
+    @Test
+    @DisplayName("Should leave out recommendations for plans without them")
+    void shouldFollowQueryPlan() {
+        // Given
+        ProductStore store = sampleStore();
+        RoleQueryPlan listing = new RoleQueryPlan("listing", Set.of(FacetIndex.BUILDING), List.of("product_id"));
+
+        // When
+        List<BuildingGroupResponse> groups = store.groupByBuilding(store.filter(new DuckDBService.ProductFilterRequest()),
+                listing);
+
+        // Then
+        assertTrue(groups.stream().flatMap(group -> group.getProducts().stream())
+                .allMatch(product -> product.getRecommendedPrice() == null));
+    }
+
+    @Test
+    @DisplayName("Should build and price summaries on a fork-join pool with the same groups as sequential")
+    void shouldGroupInParallel() {
+        // Given
+        ProductStore.Builder builder = ProductStore.builder(1);
+        for (int i = 0; i < 12_000; i++) {
+            builder.add("Building " + (i / 1_000), "PROD_" + i, "Room " + (i % 50), 2, "Double", "No", 4,
+                    null, new BigDecimal(100 + i % 90 + ".00"), "USD", new BigDecimal("0.500"));
+        }
+        ProductStore store = builder.build(DuckDBServiceTest.pricingEngine());
+        int[] rows = store.filter(new DuckDBService.ProductFilterRequest());
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            // When
+            List<BuildingGroupResponse> expected = store.groupByBuilding(rows, RoleQueryPlan.FULL);
+            List<BuildingGroupResponse> actual = store.groupByBuilding(rows, RoleQueryPlan.FULL, pool);
+
+            // Then
+            assertEquals(12, actual.size());
+            for (int g = 0; g < expected.size(); g++) {
+                assertEquals(expected.get(g).getBuildingName(), actual.get(g).getBuildingName());
+                assertEquals(summaries(expected.get(g)), summaries(actual.get(g)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<String> summaries(BuildingGroupResponse group) {
+        return group.getProducts().stream()
+                .map(p -> p.getProductId() + "/" + p.getCurrentPrice() + "/" + p.getRecommendedPrice())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should narrow rows to changed products and list products to drop")
+    void shouldFindChangesSinceOlderVersion() {
+        // Given
+        ProductStore older = sampleStore();
+        ProductStore newer = ProductStore.builder(4)
+                .add("Annex A", "PROD_1", "Garden View", 2, "Double", "No", 3, LocalDate.of(2024, 3, 1),
+                        new BigDecimal("92.00"), "EUR", new BigDecimal("0.850"))
+                .add("Annex A", "PROD_1", "Garden View", 2, "Double", "No", 3, LocalDate.of(2024, 3, 1),
+                        new BigDecimal("100.00"), "USD", new BigDecimal("0.850"))
+                .add("North Tower", "PROD_2", "Sea View", 3, "Suite", "Yes", 5, LocalDate.of(2024, 5, 10),
+                        new BigDecimal("260.00"), "USD", null)
+                .add("North Tower", "PROD_4", "Sea View", 1, "Single", "No", 2, null,
+                        new BigDecimal("80.00"), "USD", null)
+                .build(DuckDBServiceTest.pricingEngine());
+        DuckDBService.ProductFilterRequest singles = new DuckDBService.ProductFilterRequest();
+        singles.setRoomTypes(List.of("Single"));
+
+        // When
+        ProductStore.Changes changes = newer.changesSince(older.getFingerprints(),
+                newer.filter(new DuckDBService.ProductFilterRequest()));
+        ProductStore.Changes filtered = newer.changesSince(older.getFingerprints(), newer.filter(singles));
+        ProductStore.Changes none = newer.changesSince(newer.getFingerprints(),
+                newer.filter(new DuckDBService.ProductFilterRequest()));
+
+        // Then
+        assertArrayEquals(new int[] {2, 3}, changes.getRows(), "PROD_1 rows only swapped order");
+        assertEquals(List.of("PROD_3"), changes.getRemovedProductIds());
+        assertArrayEquals(new int[] {3}, filtered.getRows());
+        assertEquals(List.of("PROD_2", "PROD_3"), filtered.getRemovedProductIds(),
+                "A changed product outside the filter should be dropped by the client");
+        assertEquals(0, none.getRows().length);
+        assertEquals(List.of(), none.getRemovedProductIds());
+    }
+
+    @Test
+    @DisplayName("Should reject rows that are not grouped by building")
+    void shouldRejectUnorderedRows() {
+        // Given
+        ProductStore.Builder builder = ProductStore.builder(1)
+                .add("Annex A", "PROD_1", "Garden View", 2, "Double", "No", 3, null, null, "USD", null)
+                .add("North Tower", "PROD_2", "Sea View", 2, "Double", "No", 3, null, null, "USD", null);
+
+        // Then
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.add("Annex A", "PROD_3", "Garden View", 2, "Double", "No", 3, null, null, "USD", null));
+    }
+
+    @Test
+    @DisplayName("Should keep memory per row in tens of bytes")
+    void shouldKeepRowsCompact() {
+        // Given
+        ProductStore.Builder builder = ProductStore.builder(1);
+        for (int i = 0; i < 10_000; i++) {
+            builder.add("Building " + (i / 2_000), "PROD_" + (i / 2), "Room " + (i % 50), 2, "Double", "No", 4,
+                    LocalDate.of(2024, 1, 1).plusDays(i % 366), new BigDecimal("150.00"), i % 2 == 0 ? "USD" : "EUR",
+                    new BigDecimal("0.500"));
+        }
+
+        // When
+        ProductStore store = builder.build(DuckDBServiceTest.pricingEngine());
+
+        // Then
+        assertEquals(10_000, store.getRowCount());
+        assertTrue(store.getMemoryBytes() / store.getRowCount() < 100,
+                "Expected under 100 bytes per row, was " + store.getMemoryBytes() / store.getRowCount());
+    }
+}
@@ -0,0 +1,96 @@
+package com.Java.service;
+
+import com.Java.dto.BuildingGroupResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Product Warm-Up Tests")
+class ProductWarmUpTest {
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private ProductWarmUp warmUp;
+
+    @BeforeEach
+    void setUp() {
+        // Two buildings and one currency; multi-currency queries fail as if DuckDB were still busy
+        DuckDBService duckDBService = new DuckDBService() {
+            @Override
+            public FacetIndex.FacetCounts getFacetCounts(ProductFilterRequest filters) {
+                calls.add("facets");
+                return new FacetIndex.FacetCounts(1, 30, Map.of(FacetIndex.BUILDING, List.of(
+                        new FacetIndex.FacetValue("Annex A", 10), new FacetIndex.FacetValue("North Tower", 20))));
+            }
+
+            @Override
+            public List<ProductRow> getProductsWithFiltersOptimized(ProductFilterRequest filters,
+                                                                    RoleQueryPlan plan) {
+                calls.add("filter:" + plan.getName() + ":" + filters.getBuildings());
+                return List.of();
+            }
+
+            @Override
+            public List<BuildingGroupResponse> getProductsGroupedByBuilding(ProductFilterRequest filters,
+                                                                            RoleQueryPlan plan) {
+                calls.add("store:" + plan.getName() + ":" + filters.getBuildings());
+                return List.of();
+            }
+
+            @Override
+            public List<String> getCurrencies() {
+                return List.of("USD");
+            }
+
+            @Override
+            public List<MultiCurrencyRow> getMultiCurrencyPage(String sortCurrency, boolean descending,
+                                                               ProductPageCursor after, int offset, int limit) {
+                calls.add("currency:" + sortCurrency);
+                throw new IllegalStateException("busy");
+            }
+        };
+
+        warmUp = new ProductWarmUp();
+        ReflectionTestUtils.setField(warmUp, "enabled", true);
+        ReflectionTestUtils.setField(warmUp, "buildings", 1);
+        ReflectionTestUtils.setField(warmUp, "duckDBService", duckDBService);
+        ReflectionTestUtils.setField(warmUp, "filterConfigurationService", new FilterConfigurationService());
+    }
+
+    @Test
+    @DisplayName("Should report out of service until the warm-up has run")
+    void shouldReportOutOfServiceUntilWarm() {
+        // Given
+        assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus());
+
+        // When
+        warmUp.warmUp();
+
+        // Then
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        assertTrue(warmUp.isDone());
+    }
+
+    @Test
+    @DisplayName("Should run the unfiltered and largest-building queries of every role")
+    void shouldRunCommonQueriesOfEveryRole() {
+        // When
+        warmUp.warmUp();
+
+        // Then
+        for (String role : new FilterConfigurationService().getAvailableRoles()) {
+            assertTrue(calls.contains("filter:" + role + ":null"), role);
+            assertTrue(calls.contains("store:" + role + ":[North Tower]"), role);
+            assertFalse(calls.contains("store:" + role + ":[Annex A]"), "Only the largest building is warmed");
+        }
+        assertTrue(calls.containsAll(List.of("facets", "currency:null", "currency:USD")));
+        assertEquals(2, warmUp.health().getDetails().get("failures"), "Failed queries are counted, not fatal");
+    }
+}
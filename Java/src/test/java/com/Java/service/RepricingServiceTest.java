@@ -0,0 +1,251 @@
+package com.Java.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Repricing Service Tests")
+class RepricingServiceTest {
+
+    private static final int ROWS = 1000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private RepricingService repricingService;
+    private ProductStore store;
+
+    @BeforeEach
+    void setUp() {
+        ProductStore.Builder builder = ProductStore.builder(4);
+        for (int i = 0; i < ROWS; i++) {
+            builder.add("Building " + (char) ('A' + i / 100), "PROD_" + i, "Room", 1 + i % 3, "Double", "No",
+                    3, LocalDate.of(2024, 1, 1).plusDays(i % 30),
+                    i % 97 == 0 ? null : BigDecimal.valueOf(5000 + i, 2), "USD",
+                    i % 11 == 0 ? null : BigDecimal.valueOf(i % 100, 2));
+        }
+        store = builder.build(DuckDBServiceTest.pricingEngine());
+        DuckDBService duckDBService = new DuckDBService() {
+            @Override
+            public ProductStore getProductStore() {
+                return store;
+            }
+        };
+
+        repricingService = new RepricingService();
+        ReflectionTestUtils.setField(repricingService, "chunkSize", 64);
+        ReflectionTestUtils.setField(repricingService, "parallelism", 4);
+        ReflectionTestUtils.setField(repricingService, "maxRunning", 1);
+        ReflectionTestUtils.setField(repricingService, "retryAfterSeconds", 1L);
+        ReflectionTestUtils.setField(repricingService, "duckDBService", duckDBService);
+        ReflectionTestUtils.setField(repricingService, "pricingEngine", DuckDBServiceTest.pricingEngine());
+        ReflectionTestUtils.setField(repricingService, "metrics", DuckDBServiceTest.metrics(registry));
+        repricingService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        repricingService.close();
+    }
+
+    @Test
+    @DisplayName("Should reprice every row in store order the same as the scenario engine")
+    void shouldRepriceEveryRowInOrder() throws Exception {
+        // Given
+        PricingScenario scenario = new PricingScenario();
+        scenario.setDemandTiers("0.5=1.25");
+        scenario.setBaseMultiplier("0.9");
+        PricingEngine expectedEngine = DuckDBServiceTest.pricingEngine().forScenario(scenario);
+
+        // When
+        RepricingJob job = repricingService.start(scenario, new DuckDBService.ProductFilterRequest());
+        List<long[]> rows = new ArrayList<>();
+        List<String> productIds = new ArrayList<>();
+        job.forEachRow((productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) -> {
+            productIds.add(productId);
+            rows.add(new long[]{currentPrice, recommendedPrice, scenarioPrice});
+        });
+
+        // Then
+        assertEquals(ROWS, rows.size());
+        for (int row = 0; row < ROWS; row++) {
+            assertEquals("PROD_" + row, productIds.get(row));
+            long price = store.getPriceMinor(row) == Long.MIN_VALUE ? 0 : store.getPriceMinor(row);
+            assertEquals(price, rows.get(row)[0]);
+            assertEquals(store.getRecommendedPriceMinor(row), rows.get(row)[1]);
+            assertEquals(expectedEngine.recommend(price, store.getBookingRate(row)), rows.get(row)[2],
+                    "Scenario price of row " + row);
+        }
+        assertEquals(RepricingJob.Status.COMPLETED, job.getStatus(), "Complete once the last row is written");
+        assertEquals(ROWS, job.getEvaluatedRows());
+        assertEquals(ROWS, job.getWrittenRows());
+        assertEquals(1, registry.get("products.pricing.scenario").tag("outcome", "completed").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should reprice only the rows matching the scenario filters")
+    void shouldRepriceFilteredRows() throws Exception {
+        // Given
+        DuckDBService.ProductFilterRequest filters = new DuckDBService.ProductFilterRequest();
+        filters.setBuildings(List.of("Building C"));
+
+        // When
+        RepricingJob job = repricingService.start(new PricingScenario(), filters);
+        List<String> buildings = new ArrayList<>();
+        job.forEachRow((productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) -> {
+            buildings.add(buildingName);
+            assertEquals(recommendedPrice, scenarioPrice, "An empty scenario should match the live prices");
+        });
+
+        // Then
+        assertEquals(100, buildings.size());
+        assertTrue(buildings.stream().allMatch("Building C"::equals));
+        assertEquals(100, job.getTotalRows());
+    }
+
+    @Test
+    @DisplayName("Should stop writing rows and skip pending chunks when cancelled")
+    void shouldStopWhenCancelled() throws Exception {
+        // Given
+        RepricingJob job = repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest());
+        List<String> written = new ArrayList<>();
+
+        // When
+        assertThrows(CancellationException.class, () -> job.forEachRow(
+                (productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) -> {
+                    written.add(productId);
+                    if (written.size() == 10) {
+                        assertTrue(repricingService.cancel(job.getId()));
+                    }
+                }));
+
+        // Then
+        assertEquals(10, written.size());
+        assertEquals(RepricingJob.Status.CANCELLED, job.getStatus());
+        assertFalse(repricingService.cancel(job.getId()), "A finished job cannot be cancelled again");
+    }
+
+    @Test
+    @DisplayName("Should stay running and cancellable until every row is written")
+    void shouldStayRunningUntilRowsWritten() throws Exception {
+        // Given
+        RepricingJob job = repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.getEvaluatedRows() < ROWS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // When
+        assertEquals(ROWS, job.getEvaluatedRows());
+
+        // Then
+        assertEquals(RepricingJob.Status.RUNNING, job.getStatus(), "Evaluated but not yet written");
+        assertThrows(QueryRejectedException.class,
+                () -> repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest()),
+                "A scenario still streaming holds its running slot");
+        assertTrue(repricingService.cancel(job.getId()));
+        assertThrows(CancellationException.class, () -> job.forEachRow(
+                (productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) -> { }));
+        assertEquals(0, job.getWrittenRows());
+        assertNotNull(repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest()));
+    }
+
+    @Test
+    @DisplayName("Should cancel a scenario whose client goes away while streaming")
+    void shouldCancelWhenWriterFails() {
+        // Given
+        RepricingJob job = repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest());
+
+        // When
+        assertThrows(IOException.class, () -> job.forEachRow(
+                (productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) -> {
+                    throw new IOException("Broken pipe");
+                }));
+
+        // Then
+        assertEquals(RepricingJob.Status.CANCELLED, job.getStatus());
+        assertEquals(1, registry.get("products.pricing.scenario").tag("outcome", "cancelled").timer().count());
+        assertNotNull(repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest()));
+    }
+
+    @Test
+    @DisplayName("Should cancel a scenario whose rows are never read and free its slot")
+    void shouldCancelScenarioNeverRead() throws Exception {
+        // Given - a response that never ran
+        ReflectionTestUtils.setField(repricingService, "startTimeoutMs", 50L);
+        RepricingJob job = repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest());
+
+        // When
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.find("products.pricing.scenario").timer() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then
+        assertEquals(RepricingJob.Status.CANCELLED, job.getStatus());
+        assertEquals(1, registry.get("products.pricing.scenario").tag("outcome", "cancelled").timer().count());
+        assertThrows(CancellationException.class, () -> job.forEachRow(
+                (productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) -> { }));
+        RepricingJob next = repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest());
+        List<String> written = new ArrayList<>();
+        next.forEachRow((productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) ->
+                written.add(productId));
+        Thread.sleep(100);
+        assertEquals(RepricingJob.Status.COMPLETED, next.getStatus(), "A job already streaming is not abandoned");
+        assertEquals(ROWS, written.size());
+    }
+
+    @Test
+    @DisplayName("Should refuse scenarios beyond the running limit until the running one finishes")
+    void shouldRefuseScenariosBeyondLimit() throws Exception {
+        // Given
+        DemandTierPricingEngine live = DuckDBServiceTest.pricingEngine();
+        ReflectionTestUtils.setField(repricingService, "pricingEngine", new DemandTierPricingEngine() {
+            @Override
+            public DemandTierPricingEngine forScenario(PricingScenario scenario) {
+                DemandTierPricingEngine whatIf = live.forScenario(scenario);
+                return new DemandTierPricingEngine() {
+                    @Override
+                    public void recommend(long[] prices, double[] rates, long[] recommended, int length) {
+                        try {
+                            gate.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        whatIf.recommend(prices, rates, recommended, length);
+                    }
+                };
+            }
+        });
+        RepricingJob running = repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest());
+
+        // When
+        PricingScenario malformed = new PricingScenario();
+        malformed.setDemandTiers("0.5");
+
+        // Then
+        assertThrows(IllegalArgumentException.class,
+                () -> repricingService.start(malformed, new DuckDBService.ProductFilterRequest()));
+        assertThrows(QueryRejectedException.class,
+                () -> repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest()));
+        assertEquals(RepricingJob.Status.RUNNING, repricingService.getJob(running.getId()).getStatus());
+        gate.countDown();
+        running.forEachRow((productId, buildingName, currency, currentPrice, recommendedPrice, scenarioPrice) -> { });
+        assertEquals(RepricingJob.Status.COMPLETED, running.getStatus());
+        assertNotNull(repricingService.start(new PricingScenario(), new DuckDBService.ProductFilterRequest()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.Java.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Writes ETL-shaped Parquet files into a directory that stands in for the S3 bucket.
+ * Data is generated like python-etl/generate_sample_data.py, but deterministically from the row number.
+ */
+public final class SampleDataFixtures {
+
+    public static final String[] BUILDINGS = {"Building 1", "Building 2", "Building 3", "North Tower",
+            "South Tower", "Main Building", "Annex A", "Annex B"};
+
+    private SampleDataFixtures() {
+    }
+
+    /**
+     * Write clustered_products, buildings, prices and cluster_metrics for the given number of products
+     */
+    public static void writeBucket(Path bucket, int productCount) throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:");
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                CREATE TABLE products AS
+                SELECT
+                    printf('PROD_%%04d', i + 1) AS Id,
+                    (['Room A', 'Room B', 'Room C', 'Executive Suite', 'Presidential Suite', 'Ocean View',
+                      'Garden View', 'City View', 'Penthouse', 'Standard Room'])[1 + (hash(i, 1)::HUGEINT %% 10)::INTEGER] AS room_name,
+                    DATE '2024-01-01' + (hash(i, 2)::HUGEINT %% 366)::INTEGER AS arrival_date,
+                    ([1, 2, 3, 4, 6])[1 + (hash(i, 3)::HUGEINT %% 5)::INTEGER] AS "no._of_beds",
+                    (['Single', 'Double Room', 'Suite', 'Deluxe', 'Standard'])[1 + (hash(i, 4)::HUGEINT %% 5)::INTEGER] AS room_type,
+                    ([1, 2, 3, 4, 5, 7])[1 + (hash(i, 5)::HUGEINT %% 6)::INTEGER] AS Grade,
+                    (['Yes', 'No'])[1 + (hash(i, 6)::HUGEINT %% 2)::INTEGER] AS private_pool
+                FROM range(%d) t(i)
+                """.formatted(productCount));
+            statement.execute("""
+                CREATE TABLE clustered_products AS
+                SELECT *, concat_ws('_', strftime(arrival_date, '%b-%Y'), room_type, "no._of_beds" || '-beds',
+                                    Grade || '-stars', private_pool) AS cluster_key
+                FROM products
+                """);
+
+            writeDataset(statement, bucket, "clustering/clustered_products", "SELECT * FROM clustered_products");
+            writeDataset(statement, bucket, "buildings", """
+                SELECT (%s)[1 + (hash(Id, 7)::HUGEINT %% %d)::INTEGER] AS Building, Id AS product_id FROM products
+                """.formatted(buildingsLiteral(), BUILDINGS.length));
+            writeDataset(statement, bucket, "prices", """
+                SELECT Id AS product_id, (50 + hash(Id, c)::HUGEINT % 451)::DECIMAL(10,2) AS Price, c AS Currency
+                FROM products, (VALUES ('USD'), ('EUR'), ('GBP'), ('EGP')) currencies(c)
+                WHERE hash(Id, c, 8)::HUGEINT % 3 = 0 OR c = 'USD'
+                """);
+            writeDataset(statement, bucket, "clustering/cluster_metrics", """
+                SELECT cluster_key, round((hash(cluster_key)::HUGEINT % 1000) / 1000.0, 3)::DECIMAL(5,3) AS booking_rate
+                FROM clustered_products GROUP BY cluster_key
+                """);
+        }
+    }
+
+    /**
+     * Rewrite clustered_products as a Hive-partitioned layout (building=.../arrival_month=...),
+     * like product_cluster.py run with --partition_by building,arrival_month
+     */
+    public static void partitionProducts(Path bucket) throws Exception {
+        Path products = bucket.resolve("clustering/clustered_products");
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:");
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                CREATE TABLE partitioned AS
+                SELECT p.*, b.Building AS building, strftime(p.arrival_date, '%%Y-%%m') AS arrival_month
+                FROM read_parquet('%s/*.parquet') p JOIN read_parquet('%s/*.parquet') b ON p.Id = b.product_id
+                """.formatted(slashes(products), slashes(bucket.resolve("buildings"))));
+            Files.delete(products.resolve("part-00000.parquet"));
+            statement.execute("COPY (SELECT * FROM partitioned ORDER BY arrival_date) TO '" + slashes(products)
+                    + "' (FORMAT PARQUET, PARTITION_BY (building, arrival_month))");
+        }
+    }
+
+    /**
+     * Overwrite one dataset of the bucket with the given query, e.g. to simulate an ETL run
+     */
+    public static void writeDataset(Path bucket, String prefix, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:");
+             Statement statement = connection.createStatement()) {
+            writeDataset(statement, bucket, prefix, sql);
+        }
+    }
+
+    private static void writeDataset(Statement statement, Path bucket, String prefix, String sql) throws SQLException {
+        Path target = bucket.resolve(prefix).resolve("part-00000.parquet");
+        try {
+            Files.createDirectories(target.getParent());
+        } catch (IOException e) {
+            throw new SQLException("Cannot create " + target.getParent(), e);
+        }
+        statement.execute("COPY (" + sql + ") TO '" + slashes(target) + "' (FORMAT PARQUET)");
+    }
+
+    private static String slashes(Path path) {
+        return path.toString().replace('\\', '/');
+    }
+
+    private static String buildingsLiteral() {
+        StringBuilder literal = new StringBuilder("[");
+        for (int i = 0; i < BUILDINGS.length; i++) {
+            literal.append(i == 0 ? "" : ", ").append('\'').append(BUILDINGS[i]).append('\'');
+        }
+        return literal.append(']').toString();
+    }
+}
@@ -0,0 +1,113 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Shared DuckDB DataSource Tests")
+class SharedDuckDBDataSourceTest {
+
+    private SharedDuckDBDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new SharedDuckDBDataSource("jdbc:duckdb:", new Properties(),
+                List.of("CREATE TABLE IF NOT EXISTS init_log AS SELECT 1 AS id", "SET enable_progress_bar = false"), 2);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("Should share tables between connections")
+    void shouldShareTablesBetweenConnections() throws SQLException {
+        // Given
+        try (Connection writer = dataSource.getConnection(); Statement statement = writer.createStatement()) {
+            statement.execute("CREATE TABLE shared AS SELECT 42 AS answer");
+        }
+
+        // When
+        try (Connection reader = dataSource.getConnection();
+             Statement statement = reader.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT answer FROM shared")) {
+
+            // Then
+            assertTrue(resultSet.next());
+            assertEquals(42, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Should run init statements on every new connection")
+    void shouldRunInitStatementsOnNewConnections() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM init_log")) {
+            assertTrue(resultSet.next());
+            assertEquals(1, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reuse prepared statements for the same SQL")
+    void shouldReusePreparedStatements() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            // Given
+            PreparedStatement first = connection.prepareStatement("SELECT ? + 1");
+            first.setInt(1, 1);
+            assertEquals(2, singleInt(first));
+            first.close();
+
+            // When
+            PreparedStatement second = connection.prepareStatement("SELECT ? + 1");
+            second.setInt(1, 41);
+
+            // Then
+            assertEquals(42, singleInt(second), "Reused statement should bind new parameters");
+            assertSame(first.unwrap(PreparedStatement.class), second.unwrap(PreparedStatement.class));
+        }
+    }
+
+    @Test
+    @DisplayName("Should see tables swapped in after a statement was prepared")
+    void shouldRebindCachedStatementsAfterSwap() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement ddl = connection.createStatement()) {
+            // Given
+            ddl.execute("CREATE TABLE data AS SELECT 1 AS version");
+            PreparedStatement query = connection.prepareStatement("SELECT max(version) FROM data WHERE version > ?");
+            query.setInt(1, 0);
+            assertEquals(1, singleInt(query));
+            query.close();
+
+            // When
+            ddl.execute("CREATE TABLE data_shadow AS SELECT 2 AS version");
+            ddl.execute("DROP TABLE data");
+            ddl.execute("ALTER TABLE data_shadow RENAME TO data");
+
+            // Then
+            PreparedStatement again = connection.prepareStatement("SELECT max(version) FROM data WHERE version > ?");
+            again.setInt(1, 0);
+            assertEquals(2, singleInt(again));
+        }
+    }
+
+    private int singleInt(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Single Flight Tests")
+class SingleFlightTest {
+
+    @Test
+    @DisplayName("Should run identical concurrent loads once and share the result")
+    void shouldShareIdenticalConcurrentLoads() throws Exception {
+        // Given
+        SingleFlight<String, String> flights = new SingleFlight<>(Duration.ofSeconds(10));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            Future<String> leader = pool.submit(() -> flights.execute("all", 1, () -> {
+                loads.incrementAndGet();
+                leaderStarted.countDown();
+                await(release);
+                return "rows";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(pool.submit(() -> flights.execute("all", 1, () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (flights.getShared() < 7) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // Then
+            assertEquals("rows", leader.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("rows", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, flights.getExecutions());
+            assertEquals(0, flights.inFlightCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should not share a load across keys or data versions")
+    void shouldNotShareAcrossKeysOrVersions() {
+        // Given
+        SingleFlight<String, String> flights = new SingleFlight<>(Duration.ofSeconds(10));
+
+        // When - nested calls would deadlock if any of these shared the outer flight
+        String result = flights.execute("all", 1, () ->
+                flights.execute("all", 2, () -> flights.execute("narrow", 2, () -> "inner")));
+
+        // Then
+        assertEquals("inner", result);
+        assertEquals(3, flights.getExecutions());
+        assertEquals(0, flights.getShared());
+    }
+
+    @Test
+    @DisplayName("Should hand the leader's failure to waiters and allow a retry")
+    void shouldPropagateFailureAndAllowRetry() throws Exception {
+        // Given
+        SingleFlight<String, String> flights = new SingleFlight<>(Duration.ofSeconds(10));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = pool.submit(() -> flights.execute("all", 1, () -> {
+                leaderStarted.countDown();
+                await(release);
+                throw new IllegalStateException("engine down");
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            Future<String> follower = pool.submit(() -> flights.execute("all", 1, () -> "unused"));
+            while (flights.getShared() < 1) {
+                Thread.sleep(5);
+            }
+
+            // When
+            release.countDown();
+
+            // Then
+            ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertEquals("engine down", leaderError.getCause().getMessage());
+            assertEquals("engine down", followerError.getCause().getMessage());
+            assertEquals("retried", flights.execute("all", 1, () -> "retried"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should give up waiting after the timeout")
+    void shouldTimeOutWaiters() throws Exception {
+        // Given
+        SingleFlight<String, String> flights = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> leader = pool.submit(() -> flights.execute("all", 1, () -> {
+                leaderStarted.countDown();
+                await(release);
+                return "slow";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            // When / Then
+            assertThrows(QueryRejectedException.class, () -> flights.execute("all", 1, () -> "unused"));
+            assertEquals(1, flights.getTimeouts());
+
+            release.countDown();
+            assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
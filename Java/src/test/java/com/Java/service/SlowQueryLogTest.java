@@ -0,0 +1,70 @@
+package com.Java.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Slow Query Log Tests")
+class SlowQueryLogTest {
+
+    @Test
+    @DisplayName("Should keep only the most recent entries, newest first")
+    void shouldKeepMostRecentEntries() {
+        // Given
+        SlowQueryLog log = new SlowQueryLog(3);
+
+        // When
+        for (int i = 1; i <= 5; i++) {
+            log.add(query("grouped-by-building", "SELECT " + i));
+        }
+
+        // Then
+        List<String> sql = log.recent(10, null).stream().map(SlowQueryLog.SlowQuery::getSql).collect(Collectors.toList());
+        assertEquals(List.of("SELECT 5", "SELECT 4", "SELECT 3"), sql);
+        assertEquals(3, log.size());
+        assertEquals(5, log.getRecordedCount());
+    }
+
+    @Test
+    @DisplayName("Should filter by endpoint and honour the limit")
+    void shouldFilterByEndpointAndLimit() {
+        // Given
+        SlowQueryLog log = new SlowQueryLog(10);
+        log.add(query("grouped-by-building", "SELECT 1"));
+        log.add(query("multi-currency", "SELECT 2"));
+        log.add(query("grouped-by-building", "SELECT 3"));
+        log.add(query("grouped-by-building", "SELECT 4"));
+
+        // When
+        List<SlowQueryLog.SlowQuery> recent = log.recent(2, "grouped-by-building");
+
+        // Then
+        assertEquals(2, recent.size());
+        assertEquals("SELECT 4", recent.get(0).getSql());
+        assertEquals("SELECT 3", recent.get(1).getSql());
+        assertTrue(recent.get(0).getId() > recent.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Should count but not keep entries when capacity is zero")
+    void shouldOnlyCountWhenDisabled() {
+        // Given
+        SlowQueryLog log = new SlowQueryLog(0);
+
+        // When
+        log.add(query("grouped-by-building", "SELECT 1"));
+
+        // Then
+        assertTrue(log.recent(10, null).isEmpty());
+        assertEquals(1, log.getRecordedCount());
+    }
+
+    private static SlowQueryLog.SlowQuery query(String endpoint, String sql) {
+        return new SlowQueryLog.SlowQuery(Instant.now(), endpoint, sql, List.of(), 600, 500, 10, 1);
+    }
+}
@@ -103,27 +103,47 @@ def create_pricing_insights(cluster_metrics):
     except Exception as e:
         return None
 
-def save_dataframe_as_parquet(glue_context, df, output_path, table_name):
-    """Save DataFrame as Parquet to S3"""
+def add_partition_columns(clustered_df, buildings_df, partition_keys):
+    """Add the building / arrival_month columns used as Hive partition keys"""
+    try:
+        if "arrival_month" in partition_keys:
+            clustered_df = clustered_df.withColumn("arrival_month", date_format(col("arrival_date"), "yyyy-MM"))
+        if "building" in partition_keys:
+            buildings = buildings_df.select(col("product_id"), col("Building").alias("building"))
+            clustered_df = clustered_df.join(buildings, clustered_df["Id"] == buildings["product_id"], "left") \
+                .drop(buildings["product_id"])
+        return clustered_df
+    except Exception as e:
+        return None
+
+def save_dataframe_as_parquet(glue_context, df, output_path, table_name, partition_keys=None):
+    """Save DataFrame as Parquet to S3, optionally Hive-partitioned (key=value/ directories)"""
     if df is None or df.count() == 0:
         return False
     
     try:
         full_path = f"{output_path}/{table_name}"
-        # Force single file output using coalesce(1)
-        dynamic_frame = DynamicFrame.fromDF(df.coalesce(1), glue_context, table_name)
+        connection_options = {"path": full_path}
+        if partition_keys:
+            # One file per partition, sorted so row-group min/max stats on arrival_date are tight
+            df = df.repartition(*partition_keys).sortWithinPartitions("arrival_date")
+            connection_options["partitionKeys"] = partition_keys
+        else:
+            # Force single file output using coalesce(1)
+            df = df.coalesce(1)
+        dynamic_frame = DynamicFrame.fromDF(df, glue_context, table_name)
         
         glue_context.write_dynamic_frame.from_options(
             frame=dynamic_frame,
             connection_type="s3",
-            connection_options={"path": full_path},
+            connection_options=connection_options,
             format="parquet"
         )
         return True
     except Exception as e:
         return False
 
-def process_clustering_analysis(glue_context, input_path, output_path):
+def process_clustering_analysis(glue_context, input_path, output_path, partition_keys=None):
     """Main clustering processing function"""
     
     # Read input data
@@ -169,8 +189,19 @@ def process_clustering_analysis(glue_context, input_path, output_path):
         return False
     
     # Step 6: Save all results
+    clustered_output = clustered_df
+    if partition_keys:
+        buildings_df = None
+        if "building" in partition_keys:
+            buildings_df = read_parquet_data(glue_context, f"{input_path}/buildings")
+            if buildings_df is None:
+                return False
+        clustered_output = add_partition_columns(clustered_df, buildings_df, partition_keys)
+        if clustered_output is None:
+            return False
+
     results = {
-        "clustered_products": clustered_df,
+        "clustered_products": clustered_output,
         "cluster_summary": cluster_summary,
         "cluster_metrics": cluster_metrics,
         "pricing_insights": pricing_insights
@@ -178,7 +209,8 @@ def process_clustering_analysis(glue_context, input_path, output_path):
     
     success_count = 0
     for table_name, df in results.items():
-        if save_dataframe_as_parquet(glue_context, df, output_path, table_name):
+        keys = partition_keys if table_name == "clustered_products" else None
+        if save_dataframe_as_parquet(glue_context, df, output_path, table_name, keys):
             success_count += 1
     
     return success_count == len(results)
@@ -186,6 +218,14 @@ def process_clustering_analysis(glue_context, input_path, output_path):
 def main():
     """Main function for AWS Glue job"""
     args = getResolvedOptions(sys.argv, ['JOB_NAME', 'input_path', 'output_path'])
+    # Optional, e.g. --partition_by building,arrival_month
+    partition_keys = None
+    if '--partition_by' in sys.argv:
+        partition_by = getResolvedOptions(sys.argv, ['partition_by'])['partition_by']
+        partition_keys = [key.strip() for key in partition_by.split(',') if key.strip()]
+        unsupported = set(partition_keys) - {"building", "arrival_month"}
+        if unsupported:
+            raise ValueError(f"Unsupported partition keys: {sorted(unsupported)}")
     
     sc = SparkContext()
     glue_context = GlueContext(sc)
@@ -196,7 +236,8 @@ def main():
         success = process_clustering_analysis(
             glue_context=glue_context,
             input_path=args['input_path'],
-            output_path=args['output_path']
+            output_path=args['output_path'],
+            partition_keys=partition_keys
         )
         
         if not success: